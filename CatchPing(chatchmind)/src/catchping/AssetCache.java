@@ -0,0 +1,159 @@
+package catchping;
+
+import javax.imageio.ImageIO;
+import javax.swing.SwingUtilities;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+// 클라이언트 이미지 캐시
+// 백그라운드 스레드에서 이미지를 디코딩하고 원하는 크기로 미리 줄여서 (경로, 크기) 키로 LRU 캐시에 보관한다.
+// 캐시 용량은 항목 수가 아니라 픽셀 바이트 수로 제한한다.
+public class AssetCache {
+    private static final AssetCache instance = new AssetCache();
+    private static final int ORIGINAL = -1;  // 원본 크기를 뜻하는 크기 값
+
+    private final ExecutorService loader;
+    private final Map<String, BufferedImage> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<BufferedImage>> inFlight = new ConcurrentHashMap<>();
+    private long cachedBytes;
+
+    private AssetCache() {
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        loader = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "asset-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static AssetCache getInstance() {
+        return instance;
+    }
+
+    // 미리 디코딩과 크기 조정을 시작해둔다 (결과는 캐시에 남는다)
+    public void preload(String path, int width, int height) {
+        request(path, width, height);
+    }
+
+    // 그릴 크기를 아직 모르는 이미지 (창에 맞춰 늘리는 배경) - 원본 디코딩만 해둔다
+    public void preload(String path) {
+        request(path, ORIGINAL, ORIGINAL);
+    }
+
+    // 이미지를 비동기로 받아 EDT에서 콜백을 호출한다. 실패하면 onFailed (null 가능)
+    public void load(String path, int width, int height, Consumer<BufferedImage> onLoaded, Runnable onFailed) {
+        BufferedImage cached = getCached(key(path, width, height));
+        if (cached != null && SwingUtilities.isEventDispatchThread()) {
+            onLoaded.accept(cached);
+            return;
+        }
+        request(path, width, height).whenComplete((image, error) -> SwingUtilities.invokeLater(() -> {
+            if (image != null) {
+                onLoaded.accept(image);
+            } else if (onFailed != null) {
+                onFailed.run();
+            }
+        }));
+    }
+
+    private CompletableFuture<BufferedImage> request(String path, int width, int height) {
+        String key = key(path, width, height);
+        BufferedImage cached = getCached(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        // 같은 이미지를 여러 곳에서 동시에 요청해도 한 번만 디코딩한다
+        CompletableFuture<BufferedImage> existing = inFlight.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        CompletableFuture<BufferedImage> created = new CompletableFuture<>();
+        existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing;
+        }
+
+        // 크기 조정은 원본 디코딩이 끝난 뒤 이어서 실행한다 (로더 스레드를 막지 않는다)
+        CompletableFuture<BufferedImage> work = width == ORIGINAL
+            ? CompletableFuture.supplyAsync(() -> decode(path), loader)
+            : request(path, ORIGINAL, ORIGINAL).thenApplyAsync(source -> scale(source, width, height), loader);
+        work.whenComplete((image, error) -> {
+            if (image != null) {
+                put(key, image);
+            }
+            inFlight.remove(key);
+            if (error != null) {
+                created.completeExceptionally(error);
+            } else {
+                created.complete(image);
+            }
+        });
+        return created;
+    }
+
+    private BufferedImage decode(String path) {
+        try {
+            BufferedImage image = ImageIO.read(new File(path));
+            if (image == null) {
+                throw new IllegalStateException("지원하지 않는 이미지 형식: " + path);
+            }
+            return image;
+        } catch (IOException e) {
+            throw new IllegalStateException("이미지 로드 실패: " + path, e);
+        }
+    }
+
+    // getScaledInstance(SCALE_SMOOTH) 대신 한 번의 바이큐빅 보간으로 크기를 줄인다
+    private BufferedImage scale(BufferedImage source, int width, int height) {
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage scaled = new BufferedImage(width, height, type);
+        Graphics2D g2d = scaled.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g2d.drawImage(source, 0, 0, width, height, null);
+        g2d.dispose();
+        return scaled;
+    }
+
+    private synchronized BufferedImage getCached(String key) {
+        return cache.get(key);
+    }
+
+    private synchronized void put(String key, BufferedImage image) {
+        BufferedImage previous = cache.put(key, image);
+        if (previous != null) {
+            cachedBytes -= bytesOf(previous);
+        }
+        cachedBytes += bytesOf(image);
+        // 가장 오래 쓰지 않은 항목부터 비운다
+        Iterator<Map.Entry<String, BufferedImage>> it = cache.entrySet().iterator();
+        while (cachedBytes > Constants.ASSET_CACHE_BYTES && it.hasNext()) {
+            Map.Entry<String, BufferedImage> eldest = it.next();
+            if (eldest.getKey().equals(key)) {
+                continue;
+            }
+            cachedBytes -= bytesOf(eldest.getValue());
+            it.remove();
+        }
+    }
+
+    private static long bytesOf(BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight() * 4;
+    }
+
+    private static String key(String path, int width, int height) {
+        return path + "@" + width + "x" + height;
+    }
+}
@@ -0,0 +1,46 @@
+package catchping;
+
+import javax.swing.JComponent;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+
+// 컴포넌트 크기에 맞춘 배경 이미지 그리기
+// 매 paintComponent마다 원본을 다시 줄이지 않고, 크기가 바뀔 때만 AssetCache에 새 크기를 요청한다.
+public class BackgroundPainter {
+    private final String path;
+    private final JComponent owner;
+    private BufferedImage scaled;
+    private int requestedWidth;
+    private int requestedHeight;
+
+    public BackgroundPainter(String path, JComponent owner) {
+        this.path = path;
+        this.owner = owner;
+    }
+
+    // EDT에서 paintComponent 중에 호출한다. 배경을 그렸으면 true
+    public boolean paint(Graphics g) {
+        int width = owner.getWidth();
+        int height = owner.getHeight();
+        if (width <= 0 || height <= 0) {
+            return false;
+        }
+        if (width != requestedWidth || height != requestedHeight) {
+            requestedWidth = width;
+            requestedHeight = height;
+            AssetCache.getInstance().load(path, width, height, image -> {
+                if (image.getWidth() == requestedWidth && image.getHeight() == requestedHeight) {
+                    scaled = image;
+                    owner.repaint();
+                }
+            }, null);
+        }
+        if (scaled == null) {
+            return false;
+        }
+        // 새 크기 이미지가 준비될 때까지는 이전 이미지를 늘려서 쓴다
+        g.drawImage(scaled, 0, 0, width, height, null);
+        return true;
+    }
+}
@@ -0,0 +1,70 @@
+package catchping;
+
+import java.util.Arrays;
+
+// 논리 캔버스 좌표와 그 텍스트 인코딩 (좌표를 다루는 코드는 모두 여기를 거친다)
+// 논리 좌표는 기준 캔버스(FRAME_WIDTH x FRAME_HEIGHT) 한 픽셀을 SUBPIXELS 칸으로 나눈 16비트 고정소수점이다.
+// 창 크기나 화면 배율과 상관없이 모든 클라이언트가 같은 좌표를 주고받고, 그릴 때만 자기 크기로 바꾼다.
+// 메시지에서는 좌표 하나를 base64url 문자 3개로 쓴다 - 점 하나가 구분자 없이 항상 6글자다.
+public class CanvasCodec {
+    public static final int SUBPIXELS = 16;
+    public static final int WIDTH = Constants.FRAME_WIDTH * SUBPIXELS;     // 19200 (short에 들어간다)
+    public static final int HEIGHT = Constants.FRAME_HEIGHT * SUBPIXELS;   // 12800
+    public static final int POINT_CHARS = 6;
+    private static final char[] DIGITS =
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < DIGITS.length; i++) {
+            VALUES[DIGITS[i]] = (byte) i;
+        }
+    }
+
+    private CanvasCodec() {
+    }
+
+    public static boolean inBounds(int x, int y) {
+        return x >= 0 && x <= WIDTH && y >= 0 && y <= HEIGHT;
+    }
+
+    // 기준 캔버스 픽셀 (BufferedImage에 그릴 때)
+    public static double toPixel(int logical) {
+        return (double) logical / SUBPIXELS;
+    }
+
+    // 화면 좌표 -> 논리 좌표. scale은 기준 캔버스 한 픽셀이 화면에서 몇 픽셀인지
+    public static int toLogical(int screen, double scale, int max) {
+        return Math.max(0, Math.min(max, (int) Math.round(screen * SUBPIXELS / scale)));
+    }
+
+    public static StringBuilder appendPoint(StringBuilder out, int x, int y) {
+        return appendValue(appendValue(out, x), y);
+    }
+
+    public static String encodePoint(int x, int y) {
+        return appendPoint(new StringBuilder(POINT_CHARS), x, y).toString();
+    }
+
+    private static StringBuilder appendValue(StringBuilder out, int value) {
+        return out.append(DIGITS[(value >> 12) & 63]).append(DIGITS[(value >> 6) & 63]).append(DIGITS[value & 63]);
+    }
+
+    // text의 from 위치에서 좌표 하나(3글자)를 읽는다. 형식이 틀리면 -1
+    public static int decodeValue(CharSequence text, int from) {
+        if (from + 3 > text.length()) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = from; i < from + 3; i++) {
+            char c = text.charAt(i);
+            int digit = c < 128 ? VALUES[c] : -1;
+            if (digit < 0) {
+                return -1;
+            }
+            value = (value << 6) | digit;
+        }
+        return value;
+    }
+}
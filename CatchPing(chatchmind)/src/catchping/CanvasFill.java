@@ -0,0 +1,83 @@
+package catchping;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+// 채우기(페인트 통) - 시작점과 이어진 비슷한 색의 영역을 한 색으로 칠한다
+// 모든 클라이언트가 같은 캔버스에서 같은 픽셀 결과를 얻도록 정수 비교만 하는 스캔라인 방식이다.
+// 시작점 색과 채널마다 TOLERANCE 이하로 차이 나는 픽셀까지 칠한다 (안티에일리어싱된 선 가장자리에 틈이 남지 않게).
+public class CanvasFill {
+    public static final int TOLERANCE = 48;
+
+    private CanvasFill() {
+    }
+
+    // TYPE_INT_RGB 이미지에 바로 칠한다 (시작점은 이미지 픽셀 좌표). 칠한 픽셀 수를 돌려준다
+    public static int fill(BufferedImage image, int x, int y, int rgb) {
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        return fill(pixels, image.getWidth(), image.getHeight(), x, y, rgb);
+    }
+
+    // pixels는 한 줄에 width개씩 담긴 RGB 값. 시작점이 밖이면 아무것도 하지 않는다
+    public static int fill(int[] pixels, int width, int height, int x, int y, int rgb) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return 0;
+        }
+        int target = pixels[y * width + x] & 0xFFFFFF;
+        long[] visited = new long[(width * height + 63) >> 6];   // 칠할 색이 시작 색과 비슷해도 다시 보지 않게
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = y * width + x;
+        int filled = 0;
+        while (top > 0) {
+            int seed = stack[--top];
+            if (!matches(pixels, visited, seed, target)) {
+                continue;
+            }
+            int row = seed - seed % width;
+            int left = seed;
+            while (left > row && matches(pixels, visited, left - 1, target)) {
+                left--;
+            }
+            int right = seed;
+            while (right < row + width - 1 && matches(pixels, visited, right + 1, target)) {
+                right++;
+            }
+            for (int i = left; i <= right; i++) {
+                pixels[i] = rgb;
+                visited[i >> 6] |= 1L << i;
+            }
+            filled += right - left + 1;
+            // 위아래 줄에서 칠할 구간마다 시작점 하나씩 넣는다
+            for (int side = -1; side <= 1; side += 2) {
+                int offset = side * width;
+                if (row + offset < 0 || row + offset >= width * height) {
+                    continue;
+                }
+                boolean inRun = false;
+                for (int i = left + offset; i <= right + offset; i++) {
+                    boolean match = matches(pixels, visited, i, target);
+                    if (match && !inRun) {
+                        if (top == stack.length) {
+                            stack = Arrays.copyOf(stack, stack.length * 2);
+                        }
+                        stack[top++] = i;
+                    }
+                    inRun = match;
+                }
+            }
+        }
+        return filled;
+    }
+
+    private static boolean matches(int[] pixels, long[] visited, int index, int target) {
+        if ((visited[index >> 6] & (1L << index)) != 0) {
+            return false;
+        }
+        int pixel = pixels[index];
+        return Math.abs(((pixel >> 16) & 0xFF) - ((target >> 16) & 0xFF)) <= TOLERANCE
+            && Math.abs(((pixel >> 8) & 0xFF) - ((target >> 8) & 0xFF)) <= TOLERANCE
+            && Math.abs((pixel & 0xFF) - (target & 0xFF)) <= TOLERANCE;
+    }
+}
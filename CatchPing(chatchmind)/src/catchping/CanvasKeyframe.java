@@ -0,0 +1,98 @@
+package catchping;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.imageio.ImageIO;
+
+// 방 캔버스의 키프레임 - 키프레임과 그 뒤의 선분을 기준 캔버스 크기의 이미지에 그려 PNG로 굳힌다
+// 클라이언트도 같은 StrokeRenderer와 CanvasFill로 같은 크기의 이미지에 그리므로, 키프레임을 받아 깔면 선분을 다시 그린 것과 같다.
+// PNG는 손실이 없어서 키프레임 위에 하는 채우기도 모든 클라이언트에서 결과가 같다.
+// 서버에서는 키프레임 스레드에서만 부른다 (java.awt는 헤드리스로 처음 굳힐 때 로드된다).
+public class CanvasKeyframe {
+    private static final LongAdder KEYFRAMES = ServerMetrics.counter("canvas.keyframes");
+    private static final LongAdder FOLDED = ServerMetrics.counter("canvas.keyframe.segments");
+    private static final LongAdder BYTES = ServerMetrics.counter("canvas.keyframe.bytes");
+    private static final LongAdder MICROS = ServerMetrics.counter("canvas.keyframe.micros");
+    private static final LongAdder FAILED = ServerMetrics.counter("canvas.keyframe.failed");
+
+    private CanvasKeyframe() {
+    }
+
+    // 스냅샷을 그린 PNG 바이트. 실패하면 null (선분은 그대로 남는다)
+    public static byte[] render(RoomCanvas.Snapshot snapshot) {
+        long start = System.nanoTime();
+        try {
+            BufferedImage image = new BufferedImage(Constants.FRAME_WIDTH, Constants.FRAME_HEIGHT, BufferedImage.TYPE_INT_RGB);
+            paint(image, snapshot);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+            ImageIO.setUseCache(false);
+            ImageIO.write(image, "png", out);
+            byte[] png = out.toByteArray();
+            KEYFRAMES.increment();
+            FOLDED.add(snapshot.segments.length / RoomCanvas.INTS_PER_SEGMENT);
+            BYTES.add(png.length);
+            MICROS.add(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+            return png;
+        } catch (IOException | RuntimeException e) {
+            FAILED.increment();
+            System.out.println("캔버스 키프레임 에러: " + e);
+            return null;
+        }
+    }
+
+    // 흰 바탕에 키프레임을 깔고 그 뒤의 선분, 곡선, 채우기를 차례로 그린다 (그림 저장도 같은 코드를 쓴다)
+    public static void paint(BufferedImage image, RoomCanvas.Snapshot snapshot) throws IOException {
+        Graphics2D g2d = image.createGraphics();
+        try {
+            g2d.setColor(Color.WHITE);
+            g2d.fillRect(0, 0, image.getWidth(), image.getHeight());
+            if (snapshot.keyframe != null) {
+                g2d.drawImage(decode(snapshot.keyframe), 0, 0, null);
+            }
+            int[] strokes = snapshot.segments;
+            DrawSegment segment = new DrawSegment();
+            StrokeCurve curve = new StrokeCurve();
+            int count = strokes.length / RoomCanvas.INTS_PER_SEGMENT;
+            for (int i = 0; i < count; i += RoomCanvas.entries(strokes, i)) {
+                if (RoomCanvas.isCurve(strokes, i)) {
+                    RoomCanvas.readCurve(strokes, i, curve);
+                    StrokeRenderer.drawCurve(g2d, curve);   // 플레이어 화면과 같은 베지어 곡선
+                    continue;
+                }
+                RoomCanvas.read(strokes, i, segment);
+                if (RoomCanvas.isFill(strokes, i)) {
+                    CanvasFill.fill(image, (int) CanvasCodec.toPixel(segment.x1), (int) CanvasCodec.toPixel(segment.y1),
+                        segment.rgb);
+                } else {
+                    StrokeRenderer.draw(g2d, segment);
+                }
+            }
+        } finally {
+            g2d.dispose();
+        }
+    }
+
+    public static BufferedImage decode(byte[] png) throws IOException {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+        if (image == null) {
+            throw new IOException("키프레임 이미지를 읽을 수 없습니다");
+        }
+        return image;
+    }
+
+    // KEYFRAME 메시지 조각을 모두 이어 붙인 base64url 문자열을 이미지로 되돌린다 (클라이언트)
+    public static BufferedImage decode(CharSequence base64) throws IOException {
+        try {
+            return decode(Base64.getUrlDecoder().decode(base64.toString()));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("키프레임 형식 오류", e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package catchping;
+
+import javax.swing.AbstractListModel;
+
+import java.util.List;
+
+// 고정 용량 링 버퍼 기반 채팅 목록 모델
+// 용량을 넘으면 가장 오래된 줄부터 덮어쓰므로 세션이 길어져도 메모리와 추가 비용이 일정하다.
+// EDT에서만 사용한다.
+public class ChatHistoryModel extends AbstractListModel<String> {
+    private static final long serialVersionUID = 1L;
+
+    private final String[] lines;
+    private int head;   // 가장 오래된 줄의 위치
+    private int size;
+
+    public ChatHistoryModel(int capacity) {
+        this.lines = new String[capacity];
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public String getElementAt(int index) {
+        return lines[(head + index) % lines.length];
+    }
+
+    // 여러 줄을 한 번에 추가하고 변경 이벤트는 묶어서 한 번씩만 보낸다
+    public void appendAll(List<String> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        int capacity = lines.length;
+        int start = Math.max(0, batch.size() - capacity);  // 용량보다 많이 들어오면 마지막 줄들만 남긴다
+        int added = batch.size() - start;
+        int evicted = Math.max(0, size + added - capacity);
+
+        for (int i = start; i < batch.size(); i++) {
+            lines[(head + size) % capacity] = batch.get(i);
+            if (size < capacity) {
+                size++;
+            } else {
+                head = (head + 1) % capacity;
+            }
+        }
+
+        if (evicted > 0) {
+            fireIntervalRemoved(this, 0, evicted - 1);
+        }
+        fireIntervalAdded(this, size - added, size - 1);
+    }
+
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        int oldSize = size;
+        java.util.Arrays.fill(lines, null);
+        head = 0;
+        size = 0;
+        fireIntervalRemoved(this, 0, oldSize - 1);
+    }
+}
@@ -7,19 +7,60 @@ import catchping.GUIView.DrawingListener;
 import java.awt.*;
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 public class Client extends JFrame {
+    // 첫 화면 표시 시간 측정용
+    private static final long LAUNCH_NANOS = System.nanoTime();
+    private static boolean firstFrameReported;
     private LoginPanel loginPanel;
     private GUIView gameView;
     private Socket socket;
     private PrintWriter writer;
-    private BufferedReader reader;
+    private FrameReader reader;
+    private final Object writeLock = new Object();
+    // 보낼 메시지는 큐에 넣고 전송 스레드가 쓴다 - EDT가 소켓 쓰기에 막히지 않고, 밀린 양을 잴 수 있다
+    private final BlockingQueue<String> outbound = new LinkedBlockingQueue<>();
+    private final StrokeSampler sampler;
+    private final StrokeCurve incomingCurve = new StrokeCurve();   // EDT에서만 사용
+    private volatile long rttMillis;         // 마지막 TIME_SYNC 왕복 시간 (보낼 큐에서 기다린 시간 포함)
+    private long bestRttMillis;              // 이번 연결에서 가장 짧았던 왕복 시간 (읽기 스레드에서만 사용)
+    private volatile boolean loggedIn;       // LOGIN_OK를 받기 전에는 아무것도 보내지 않는다
+    private StreamCompression compression;
+    // 세션 - 연결이 잠깐 끊기면 같은 토큰으로 다시 붙고, 받은 프레임 수를 알려 놓친 메시지만 받는다
+    private volatile String sessionToken;
+    private long receivedSeq;                // LOGIN_OK 뒤로 받은 프레임 수 (읽기 스레드에서만 사용)
+    private boolean resuming;                // 이번 연결이 세션 이어받기를 요청했는지
+    // UDP 선분 채널 - 서버가 HELLO를 확인해준 뒤부터 선분을 UDP로 주고받는다
+    private volatile DatagramLink udpLink;
+    private SocketAddress udpServer;
+    private volatile boolean udpReady;
+    private int drawEpoch;                   // 마지막으로 본 캔버스 세대 (CLEAR마다 증가)
+    private final DrawSegment incoming = new DrawSegment();  // EDT에서만 사용 (TCP로 받은 DRAW, FILL)
+    private final StringBuilder keyframeChunks = new StringBuilder();   // 받는 중인 KEYFRAME 조각
     private String nickname;
+    private boolean spectator;               // 관전자로 입장을 요청했는지
+    private String room;                     // 로그인 때 고른 방 (자동 매칭이면 null)
+    // 접속할 서버 - 처음에는 기본 주소, REDIRECT를 받으면 방을 맡은 노드 (세션 이어받기도 이 노드로 간다)
+    private volatile String serverHost = Constants.SERVER_IP;
+    private volatile int serverPort = Constants.SERVER_PORT;
+    private int redirects;                   // 이번 로그인에서 따라간 REDIRECT 수 (읽기 스레드에서만 사용)
     private CardLayout cardLayout;
     private JPanel mainPanel;
     private volatile boolean isConnected;
     private Map<String, Integer> playerScores;
+    private String[] leaderboard;            // 게임이 끝날 때 서버가 보낸 전체 순위 (EDT에서만 사용)
+    private Set<String> readyPlayers;
+    private int stateVersion = -1;           // 마지막으로 반영한 플레이어 상태 버전
+    // 라운드 타이머 - 서버가 알려준 종료 시각을 기준으로 직접 카운트다운한다
+    private volatile long clockOffset;       // 서버 시계 - 클라이언트 시계 (ms)
+    private long roundDeadline;              // 클라이언트 시계 기준 라운드 종료 시각
+    private javax.swing.Timer countdownTimer;
 
     public Client() {
         setTitle("캐치마인드");
@@ -29,10 +70,17 @@ public class Client extends JFrame {
         
         cardLayout = new CardLayout();
         mainPanel = new JPanel(cardLayout);
-        playerScores = new HashMap<>();
+        playerScores = new LinkedHashMap<>();  // 서버의 입장 순서를 유지
+        readyPlayers = new HashSet<>();
+        countdownTimer = new javax.swing.Timer(Constants.COUNTDOWN_REFRESH_MILLIS, e -> refreshCountdown());
+        sampler = new StrokeSampler(this::onSamplingChanged);
         
         initializeComponents();
         setupListeners();
+        gameView.setStrokeSampler(sampler);
+        Thread sender = new Thread(this::sendLoop, "message-sender");
+        sender.setDaemon(true);
+        sender.start();
     }
 
     private void initializeComponents() {
@@ -51,8 +99,8 @@ public class Client extends JFrame {
 
     private void setupListeners() {
         // 로그인 패널 리스너
-        loginPanel.setLoginListener(nickname -> {
-            if (connectToServer(nickname)) {
+        loginPanel.setLoginListener((nickname, room, spectator) -> {
+            if (connectToServer(nickname, room, spectator)) {
                 this.nickname = nickname;
                 cardLayout.show(mainPanel, "GAME");
                 startMessageListener();
@@ -66,21 +114,15 @@ public class Client extends JFrame {
 
         // 게임 뷰 그리기 리스너
         gameView.setDrawingListener(new GUIView.DrawingListener() {
+            // 곡선은 UDP를 쓰더라도 TCP로 보낸다 - 받는 쪽마다 Path2D 곡선으로 그리고, 데이터그램으로 나누면 하나만 잃어도 끊긴다
             @Override
-            public void onDrawing(Point start, Point end, Color color, int size, boolean isEraser) {
-                String drawMsg = String.format("%s%s%d,%d%s%d,%d%s%d,%d,%d%s%d%s%b",
-                    Constants.CMD_DRAW,
-                    Constants.DELIMITER,
-                    start.x, start.y,
-                    Constants.DELIMITER,
-                    end.x, end.y,
-                    Constants.DELIMITER,
-                    color.getRed(), color.getGreen(), color.getBlue(),
-                    Constants.DELIMITER,
-                    size,  // 크기 정보 추가
-                    Constants.DELIMITER,
-                    isEraser);
-                sendMessage(drawMsg);
+            public void onCurve(StrokeCurve curve) {
+                sendMessage(curve.encode());
+            }
+
+            @Override
+            public void onFill(Point seed, Color color) {
+                sendMessage(DrawSegment.encodeFill(seed.x, seed.y, color.getRGB() & 0xFFFFFF));
             }
 
             @Override
@@ -101,14 +143,17 @@ public class Client extends JFrame {
         });
     }
 
-    private boolean connectToServer(String nickname) {
+    private boolean connectToServer(String nickname, String room, boolean spectator) {
         try {
-            socket = new Socket(Constants.SERVER_IP, Constants.SERVER_PORT);
-            writer = new PrintWriter(socket.getOutputStream(), true);
-            reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-            
-            // 닉네임 전송
-            writer.println(nickname);
+            stateVersion = -1;
+            drawEpoch = 0;
+            this.spectator = spectator;
+            this.room = room;
+            sessionToken = null;
+            serverHost = Constants.SERVER_IP;
+            serverPort = Constants.SERVER_PORT;
+            redirects = 0;
+            openConnection(nickname, false);
             isConnected = true;
             return true;
         } catch (IOException e) {
@@ -120,29 +165,287 @@ public class Client extends JFrame {
         }
     }
 
+    // 소켓을 열고 로그인을 보낸다 - 압축 방식을 함께 요청하고, LOGIN_OK가 올 때까지 다른 메시지는 보내지 않는다
+    // resume이면 세션 토큰과 마지막으로 받은 순번을 보내 이전 세션을 이어받는다
+    private void openConnection(String nickname, boolean resume) throws IOException {
+        Socket newSocket = new Socket(serverHost, serverPort);
+        synchronized (writeLock) {
+            loggedIn = false;
+            socket = newSocket;
+            outbound.clear();  // 끊긴 연결에 보내려던 메시지는 버린다
+            writer = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+            reader = new FrameReader(socket.getInputStream(), Constants.CLIENT_MAX_FRAME_LENGTH);
+            compression = null;
+        }
+        udpReady = false;
+        resuming = resume;
+
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("compress", Constants.CLIENT_COMPRESSION);
+        if (room != null) {
+            options.put("room", room);
+        } else {
+            options.put("match", "1");
+        }
+        if (spectator) {
+            options.put("role", Constants.ROLE_SPECTATOR);  // 관전자는 그리지 않으므로 UDP를 요청하지 않는다
+        } else if (Constants.CLIENT_UDP_ENABLED) {
+            options.put("udp", "1");
+        }
+        if (resume) {
+            options.put("resume", sessionToken);
+            options.put("lastSeq", String.valueOf(receivedSeq));
+        }
+        writer.println(LoginRequest.encode(nickname, options));
+    }
+
+    // 연결이 끊기면 세션이 있을 때 다시 연결을 시도하고, 안 되면 로그인 화면으로 돌아간다
     private void startMessageListener() {
         new Thread(() -> {
+            while (isConnected) {
+                String reason = "서버와의 연결이 끊어졌습니다.";
+                try {
+                    String message;
+                    while (isConnected && (message = reader.readFrame()) != null) {
+                        if (loggedIn) {
+                            receivedSeq++;
+                        }
+                        processMessage(message);
+                    }
+                } catch (IOException e) {
+                    reason = "서버와의 연결이 끊어졌습니다: " + e.getMessage();
+                }
+                if (isConnected && !reconnect()) {
+                    handleDisconnection(reason);
+                }
+            }
+        }, "message-listener").start();
+    }
+
+    // 같은 세션으로 다시 연결한다 (서버는 유예 시간 동안 자리와 점수를 지켜두고 놓친 메시지만 다시 보낸다)
+    private boolean reconnect() {
+        if (sessionToken == null) {
+            return false;
+        }
+        closeUdp();
+        loggedIn = false;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            System.out.println("연결 종료 중 오류: " + e.getMessage());
+        }
+        SwingUtilities.invokeLater(() -> gameView.addChatMessage("서버와의 연결이 끊겨 다시 연결하는 중입니다..."));
+        for (int attempt = 1; attempt <= Constants.RESUME_ATTEMPTS && isConnected; attempt++) {
             try {
-                String message;
-                while (isConnected && (message = reader.readLine()) != null) {
-                    processMessage(message);
+                Thread.sleep(Constants.RESUME_RETRY_MILLIS);
+                openConnection(nickname, true);
+                return true;
+            } catch (IOException e) {
+                System.out.println("다시 연결 실패 (" + attempt + "/" + Constants.RESUME_ATTEMPTS + "): " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return false;
+    }
+
+    // 방을 맡은 다른 노드로 옮겨서 다시 로그인한다 (LOGIN_OK보다 먼저 온다)
+    // 노드 목록이 아직 맞춰지지 않아 계속 옮겨지면 몇 번 만에 포기한다
+    private void followRedirect(String[] parts) {
+        if (parts.length < 3 || ++redirects > Constants.REDIRECT_MAX_HOPS) {
+            handleDisconnection("방을 맡은 서버를 찾지 못했습니다. 잠시 후 다시 시도해주세요.");
+            return;
+        }
+        try {
+            socket.close();
+            serverHost = parts[1];
+            serverPort = Integer.parseInt(parts[2]);
+            System.out.println("방을 맡은 서버로 옮깁니다: " + serverHost + ":" + serverPort);
+            openConnection(nickname, false);
+        } catch (IOException | NumberFormatException e) {
+            handleDisconnection("서버 연결에 실패했습니다: " + e.getMessage());
+        }
+    }
+
+    // 서버가 고른 압축 방식으로 스트림을 바꾸고, 그 뒤에 시계 오프셋 추정을 요청한다
+    private void handleLoginOk(String[] parts) {
+        Map<String, String> accepted = LoginRequest.parseOptions(parts.length > 1 ? parts[1] : "");
+        String mode = StreamCompression.negotiate(accepted.get("compress"), true);
+        try {
+            synchronized (writeLock) {
+                if (!StreamCompression.NONE.equals(mode)) {
+                    compression = new StreamCompression(mode, Constants.COMPRESSION_LEVEL);
+                    writer = new PrintWriter(new OutputStreamWriter(
+                        compression.wrapOutput(socket.getOutputStream()), StandardCharsets.UTF_8), true);
+                    reader = new FrameReader(compression.wrapInput(reader.remaining()), Constants.CLIENT_MAX_FRAME_LENGTH);
+                    System.out.println("스트림 압축 사용: " + mode);
+                }
+                loggedIn = true;
+            }
+        } catch (IOException e) {
+            handleDisconnection("서버와의 연결이 끊어졌습니다: " + e.getMessage());
+            return;
+        }
+        bestRttMillis = Long.MAX_VALUE;
+        // 다음 프레임부터 순번을 센다 (이어받은 경우 서버가 다시 보내는 메시지의 바로 앞 순번)
+        sessionToken = accepted.get("session");
+        receivedSeq = accepted.containsKey("seq") ? Long.parseLong(accepted.get("seq")) : 0;
+        if (resuming) {
+            boolean resumed = "1".equals(accepted.get("resumed"));
+            SwingUtilities.invokeLater(() -> {
+                if (!resumed) {
+                    gameView.resetGame();  // 세션이 만료되어 새 플레이어로 들어왔다
+                }
+                gameView.addChatMessage(resumed ? "다시 연결되었습니다." : "이전 세션이 만료되어 새로 입장했습니다.");
+            });
+        }
+        sendMessage(Constants.CMD_TIME_SYNC + Constants.DELIMITER + System.currentTimeMillis());
+        // 서버가 관전자로 받아준 경우에만 읽기 전용 화면으로 바꾼다
+        boolean watching = Constants.ROLE_SPECTATOR.equals(accepted.get("role"));
+        SwingUtilities.invokeLater(() -> gameView.setSpectatorMode(watching));
+        if (spectator && !watching) {
+            System.out.println("서버가 관전을 지원하지 않아 플레이어로 입장합니다.");
+        }
+        if (accepted.containsKey("udpToken")) {
+            startUdp(accepted);
+        }
+    }
+
+    // 서버가 준 토큰으로 HELLO를 보내 주소를 등록한다. 확인이 오지 않으면 계속 TCP로 그린다
+    private void startUdp(Map<String, String> accepted) {
+        DatagramLink link;
+        StrokeStream stream;
+        try {
+            stream = new StrokeStream(Long.parseUnsignedLong(accepted.get("udpToken"), 16), Constants.UDP_REDUNDANCY);
+            udpServer = new InetSocketAddress(socket.getInetAddress(), Integer.parseInt(accepted.get("udpPort")));
+            link = new DatagramLink(0, Constants.UDP_SIMULATED_LOSS, Constants.UDP_SIMULATED_REORDER);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("UDP 채널을 쓸 수 없어 TCP로 그립니다: " + e.getMessage());
+            return;
+        }
+        udpLink = link;
+
+        Thread receiver = new Thread(() -> receiveDatagrams(link, stream), "udp-receiver");
+        receiver.setDaemon(true);
+        receiver.start();
+        Thread hello = new Thread(() -> {
+            try {
+                for (int i = 0; i < Constants.UDP_HELLO_ATTEMPTS && !udpReady && isConnected; i++) {
+                    link.send(StrokeStream.hello(StrokeStream.TYPE_HELLO, stream.getToken()), udpServer);
+                    Thread.sleep(Constants.UDP_HELLO_RETRY_MILLIS);
                 }
             } catch (IOException e) {
-                if (isConnected) {
-                    handleDisconnection("서버와의 연결이 끊어졌습니다: " + e.getMessage());
+                System.out.println("UDP HELLO 전송 실패: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!udpReady) {
+                System.out.println("UDP 확인을 받지 못해 TCP로 그립니다.");
+            }
+        }, "udp-hello");
+        hello.setDaemon(true);
+        hello.start();
+    }
+
+    private void receiveDatagrams(DatagramLink link, StrokeStream stream) {
+        ByteBuffer buffer = ByteBuffer.allocate(DatagramLink.MAX_DATAGRAM);
+        DrawSegment[] received = new DrawSegment[255];
+        for (int i = 0; i < received.length; i++) {
+            received[i] = new DrawSegment();
+        }
+        try {
+            while (isConnected) {
+                SocketAddress from = link.receive(buffer);
+                if (!from.equals(udpServer) || StrokeStream.tokenOf(buffer) != stream.getToken()) {
+                    continue;
+                }
+                if (StrokeStream.typeOf(buffer) == StrokeStream.TYPE_HELLO_ACK) {
+                    if (!udpReady) {
+                        udpReady = true;
+                        sendMessage(Constants.CMD_UDP + Constants.DELIMITER + "on");
+                        System.out.println("UDP 선분 채널을 사용합니다.");
+                    }
+                    continue;
                 }
+                int count = stream.receive(buffer, received);
+                if (count <= 0) {
+                    continue;
+                }
+                int epoch = StrokeStream.epochOf(buffer);
+                java.util.List<DrawSegment> batch = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    DrawSegment copy = new DrawSegment();
+                    copy.copyFrom(received[i]);
+                    batch.add(copy);
+                }
+                SwingUtilities.invokeLater(() -> {
+                    // CLEAR보다 다음 세대의 선분이 먼저 오면 여기서 지우고, 나중에 온 CLEAR는 무시한다
+                    if (StrokeStream.isStaleEpoch(epoch, drawEpoch)) {
+                        return;
+                    }
+                    if (epoch != drawEpoch) {
+                        drawEpoch = epoch;
+                        gameView.clearCanvas();
+                    }
+                    for (DrawSegment s : batch) {
+                        gameView.drawOnCanvas(new Point(s.x1, s.y1), new Point(s.x2, s.y2),
+                            new Color(s.rgb), s.size, s.eraser);
+                    }
+                });
             }
-        }).start();
+        } catch (IOException e) {
+            if (isConnected) {
+                System.out.println("UDP 수신 종료: " + e.getMessage());
+            }
+        }
     }
 
     private void processMessage(String message) {
         String[] parts = message.split(Constants.DELIMITER);
         String command = parts[0];
 
+        // 스트림 전환은 읽기 스레드에서 다음 프레임을 읽기 전에 해야 한다
+        if (command.equals(Constants.CMD_LOGIN_OK)) {
+            handleLoginOk(parts);
+            return;
+        }
+        if (command.equals(Constants.CMD_REDIRECT)) {
+            followRedirect(parts);
+            return;
+        }
+        // 입장 거절이면 읽기 스레드가 다시 연결을 시도하지 않도록 먼저 표시한다
+        if (command.equals(Constants.CMD_BUSY) && parts.length > 1 && parts[1].equals("0")) {
+            isConnected = false;
+        }
+        // 하트비트는 EDT를 거치지 않고 바로 응답한다
+        if (command.equals(Constants.CMD_PING)) {
+            sendMessage(Constants.CMD_PONG + Constants.DELIMITER + parts[1]);
+            return;
+        }
+        // 왕복 시간의 절반만큼 늦게 도착했다고 보고 서버 시계와의 차이를 계산한다
+        if (command.equals(Constants.CMD_TIME_SYNC)) {
+            long now = System.currentTimeMillis();
+            long sentAt = Long.parseLong(parts[1]);
+            long serverTime = Long.parseLong(parts[2]);
+            rttMillis = now - sentAt;
+            sampler.update(rttMillis, outbound.size(), now);
+            // 시계 오프셋은 가장 빨리 돌아온 응답으로만 정한다 (밀린 큐에서 기다린 응답은 한쪽만 늦다)
+            if (rttMillis <= bestRttMillis) {
+                bestRttMillis = rttMillis;
+                clockOffset = serverTime + (now - sentAt) / 2 - now;
+            }
+            return;
+        }
+
         SwingUtilities.invokeLater(() -> {
             switch (command) {
-                case "PLAYERS":
-                    updatePlayers(parts);
+                case Constants.CMD_PLAYERS:
+                    applyPlayerState(parts, true);
+                    break;
+
+                case Constants.CMD_PLAYERS_DELTA:
+                    applyPlayerState(parts, false);
                     break;
                     
                 case Constants.CMD_CHAT:
@@ -152,36 +455,86 @@ public class Client extends JFrame {
                 case Constants.CMD_START:
                     boolean isDrawer = Boolean.parseBoolean(parts[3]);
                     handleGameStart(parts[1], Integer.parseInt(parts[2]), isDrawer);
+                    if (parts.length > 4) {
+                        startCountdown(Long.parseLong(parts[4]));
+                    }
                     break;
                     
                 case Constants.CMD_DRAW:
                     handleDrawing(parts);
                     break;
+
+                case Constants.CMD_STROKES:
+                    handleStrokes(parts);
+                    break;
+
+                case Constants.CMD_FILL:
+                    handleFill(parts);
+                    break;
+
+                case Constants.CMD_KEYFRAME:
+                    handleKeyframe(parts);
+                    break;
+
+                case Constants.CMD_CURVE:
+                    if (incomingCurve.parse(parts)) {
+                        gameView.drawCurve(incomingCurve);
+                    }
+                    break;
                     
                 case Constants.CMD_CLEAR:
+                    // 세대 번호가 있으면 UDP 선분 때문에 이미 지운 세대인지 확인한다
+                    if (parts.length > 1) {
+                        int epoch = Integer.parseInt(parts[1]);
+                        if (StrokeStream.isStaleEpoch(epoch, drawEpoch) || epoch == drawEpoch) {
+                            break;
+                        }
+                        drawEpoch = epoch;
+                    }
                     gameView.clearCanvas();
                     break;
                     
                 case Constants.CMD_TIMER:
-                    updateTimer(Integer.parseInt(parts[1]));
+                    startCountdown(Long.parseLong(parts[1]));  // 재동기화
+                    break;
+
+                case Constants.CMD_ROUND_END:
+                    stopCountdown();
+                    gameView.updateTimer(0);
                     break;
                     
                 case Constants.CMD_GAME_OVER:
+                    stopCountdown();
                     handleGameOver();
                     break;
-                case Constants.CMD_READY_STATUS:
+                case Constants.CMD_ROUND:
+                    int round = Integer.parseInt(parts[1]);
+                    int totalRounds = parts.length > 2 ? Integer.parseInt(parts[2]) : Constants.TOTAL_ROUNDS;
+                    gameView.updateRound(round, totalRounds);
+                    break;
+                case Constants.CMD_RTT:
                     for (int i = 1; i < parts.length; i++) {
-                        String[] playerInfo = parts[i].split(",");
-                        String playerName = playerInfo[0];
-                        boolean ready = playerInfo[1].equals("1");
-                        gameView.updatePlayerReadyStatus(playerName, ready);
+                        String[] rttInfo = parts[i].split(",");
+                        gameView.updatePlayerLatency(rttInfo[0], Long.parseLong(rttInfo[1]));
                     }
                     break;
-                case Constants.CMD_ROUND:
-                    int round = Integer.parseInt(parts[1]);
-                    gameView.updateRound(round);
+                case Constants.CMD_LEADERBOARD:
+                    leaderboard = parts;  // GAME_OVER 바로 앞에 온다
                     break;
-                    
+
+                case Constants.CMD_MATCHING:
+                    gameView.addChatMessage("자동 매칭을 기다리는 중입니다. (대기 " + parts[1] + "명)");
+                    break;
+
+                case Constants.CMD_BUSY:
+                    int position = Integer.parseInt(parts[1]);
+                    if (position > 0) {
+                        gameView.addChatMessage("서버가 혼잡합니다. 대기 순번: " + position + "번");
+                    } else {
+                        handleDisconnection("서버가 혼잡하여 입장할 수 없습니다. 잠시 후 다시 시도해주세요.");
+                    }
+                    break;
+
             }
         });
     }
@@ -192,58 +545,123 @@ public class Client extends JFrame {
  
         });
     }
-    private void updatePlayers(String[] playerData) {
-        playerScores.clear();
-        for (int i = 1; i < playerData.length; i++) {
-            String[] playerInfo = playerData[i].split(",");
+    // 전체 상태(PLAYERS) 또는 델타(PLAYERS_DELTA)를 playerScores에 반영한다
+    private void applyPlayerState(String[] parts, boolean fullSnapshot) {
+        int version = Integer.parseInt(parts[1]);
+        if (fullSnapshot) {
+            playerScores.clear();
+            readyPlayers.clear();
+        } else if (stateVersion < 0 || version <= stateVersion) {
+            return;  // 기준 상태가 없거나 이미 반영한 델타
+        }
+        stateVersion = version;
+
+        for (int i = 2; i < parts.length; i++) {
+            if (parts[i].startsWith("-")) {
+                String playerName = parts[i].substring(1);
+                playerScores.remove(playerName);
+                readyPlayers.remove(playerName);
+                continue;
+            }
+            String[] playerInfo = parts[i].split(",");
             String playerName = playerInfo[0];
-            int score = Integer.parseInt(playerInfo[1]);
-            playerScores.put(playerName, score);
-            
-            // GUIView의 플레이어 정보 업데이트
-            gameView.updatePlayerInfo(i - 1, playerName, score);
+            playerScores.put(playerName, Integer.parseInt(playerInfo[1]));
+            if (playerInfo[2].equals("1")) {
+                readyPlayers.add(playerName);
+            } else {
+                readyPlayers.remove(playerName);
+            }
+        }
+        refreshPlayerPanel();
+    }
+
+    private void refreshPlayerPanel() {
+        int index = 0;
+        for (Map.Entry<String, Integer> entry : playerScores.entrySet()) {
+            gameView.updatePlayerInfo(index++, entry.getKey(), entry.getValue(), readyPlayers.contains(entry.getKey()));
+        }
+        for (; index < Constants.MAX_PLAYERS; index++) {
+            gameView.clearPlayerInfo(index);
         }
     }
 
    
 
-    private void handleDrawing(String[] drawData) {
-        if (drawData.length == 6) {  // 크기 정보가 추가되어 6개의 데이터가 됨
+    // 선분, 채우기 모두 서버와 같은 DrawSegment로 읽고 검증한다 (좌표는 CanvasCodec 논리 좌표)
+    private void handleDrawing(String[] parts) {
+        if (incoming.parse(parts)) {
+            gameView.drawOnCanvas(new Point(incoming.x1, incoming.y1), new Point(incoming.x2, incoming.y2),
+                new Color(incoming.rgb), incoming.size, incoming.eraser);
+        }
+    }
+
+    // 키프레임 조각을 모으고 마지막 조각이 오면 캔버스에 깐다 (뒤따르는 선분은 그 위에 그려진다)
+    private void handleKeyframe(String[] parts) {
+        int index = Integer.parseInt(parts[1]);
+        int total = Integer.parseInt(parts[2]);
+        if (index == 0) {
+            keyframeChunks.setLength(0);
+        }
+        keyframeChunks.append(parts[3]);
+        if (index == total - 1) {
             try {
-                // 좌표 파싱
-                Point start = new Point(
-                    Integer.parseInt(drawData[1].split(",")[0]),
-                    Integer.parseInt(drawData[1].split(",")[1])
-                );
-                Point end = new Point(
-                    Integer.parseInt(drawData[2].split(",")[0]),
-                    Integer.parseInt(drawData[2].split(",")[1])
-                );
-                
-                // 색상 파싱
-                String[] colorParts = drawData[3].split(",");
-                Color color = new Color(
-                    Integer.parseInt(colorParts[0]),
-                    Integer.parseInt(colorParts[1]),
-                    Integer.parseInt(colorParts[2])
-                );
-                
-                int size = Integer.parseInt(drawData[4]);  // 크기 정보 파싱
-                boolean isEraser = Boolean.parseBoolean(drawData[5]);
-                
-                // 크기 정보를 포함하여 그리기
-                gameView.drawOnCanvas(start, end, color, size, isEraser);
-            } catch (Exception e) {
-                System.out.println("그리기 데이터 처리 오류: " + e.getMessage());
+                gameView.drawKeyframe(CanvasKeyframe.decode(keyframeChunks));
+            } catch (IOException e) {
+                System.out.println("키프레임 처리 오류: " + e.getMessage());
             }
+            keyframeChunks.setLength(0);
         }
     }
 
- // updateTimer 메소드도 수정
-    private void updateTimer(int timeLeft) {
-        SwingUtilities.invokeLater(() -> {
-            gameView.updateTimer(timeLeft);  // GUIView에 새로운 메소드 추가
-        });
+    private void handleFill(String[] parts) {
+        if (incoming.parseFill(parts)) {
+            gameView.fillOnCanvas(new Point(incoming.x1, incoming.y1), new Color(incoming.rgb));
+        }
+    }
+
+    // 관전자용 선분 묶음 - 필드 하나가 rgb,크기,지우개,점1점2... 로 이어진 선 하나
+    private void handleStrokes(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            try {
+                String field = parts[i];
+                int first = field.indexOf(',');
+                int second = field.indexOf(',', first + 1);
+                int third = field.indexOf(',', second + 1);
+                Color color = new Color(Integer.parseInt(field.substring(0, first)));
+                int size = Integer.parseInt(field.substring(first + 1, second));
+                boolean isEraser = "1".equals(field.substring(second + 1, third));
+                int from = third + 1;
+                Point previous = new Point(CanvasCodec.decodeValue(field, from), CanvasCodec.decodeValue(field, from + 3));
+                for (int j = from + CanvasCodec.POINT_CHARS; j + CanvasCodec.POINT_CHARS <= field.length();
+                        j += CanvasCodec.POINT_CHARS) {
+                    Point next = new Point(CanvasCodec.decodeValue(field, j), CanvasCodec.decodeValue(field, j + 3));
+                    gameView.drawOnCanvas(previous, next, color, size, isEraser);
+                    previous = next;
+                }
+            } catch (RuntimeException e) {
+                System.out.println("선분 묶음 처리 오류: " + e.getMessage());
+            }
+        }
+    }
+
+    // 서버 시계 기준 종료 시각을 받아 로컬 카운트다운을 시작한다
+    private void startCountdown(long serverDeadline) {
+        roundDeadline = serverDeadline - clockOffset;
+        refreshCountdown();
+        countdownTimer.start();
+    }
+
+    private void stopCountdown() {
+        countdownTimer.stop();
+    }
+
+    private void refreshCountdown() {
+        long remaining = roundDeadline - System.currentTimeMillis();
+        int seconds = (int) Math.max(0, (remaining + 999) / 1000);
+        gameView.updateTimer(seconds);
+        if (seconds == 0) {
+            stopCountdown();
+        }
     }
     private void handleGameOver() {
         StringBuilder resultMessage = new StringBuilder("게임 종료!\n\n최종 점수:\n");
@@ -254,17 +672,27 @@ public class Client extends JFrame {
                            .append(": ")
                            .append(entry.getValue())
                            .append("점\n"));
+        if (leaderboard != null && leaderboard.length > 1) {
+            resultMessage.append("\n전체 순위 (누적 점수):\n");
+            for (int i = 1; i < leaderboard.length; i++) {
+                String[] entry = leaderboard[i].split(",");
+                resultMessage.append(i).append(". ").append(entry[0]).append(": ").append(entry[1])
+                             .append("점 (우승 ").append(entry[2]).append("회 / ").append(entry[3]).append("게임)\n");
+            }
+            leaderboard = null;
+        }
         
         JOptionPane.showMessageDialog(this, resultMessage.toString(), "게임 종료", JOptionPane.INFORMATION_MESSAGE);
         
-        // 게임 관련 데이터 초기화
-        playerScores.clear();
+        // 게임 관련 데이터 초기화 (플레이어 목록은 서버 델타로 계속 유지된다)
         gameView.resetGame();  // GUIView에 새로운 메소드 추가 필요
+        refreshPlayerPanel();
       
     }
 
     private void handleDisconnection(String message) {
         isConnected = false;
+        closeUdp();
         SwingUtilities.invokeLater(() -> {
             JOptionPane.showMessageDialog(this, message, "연결 오류", JOptionPane.ERROR_MESSAGE);
             cardLayout.show(mainPanel, "LOGIN");
@@ -272,8 +700,17 @@ public class Client extends JFrame {
         });
     }
 
+    private void closeUdp() {
+        udpReady = false;
+        if (udpLink != null) {
+            udpLink.close();
+            udpLink = null;
+        }
+    }
+
     private void disconnect() {
         isConnected = false;
+        closeUdp();
         try {
             if (socket != null && !socket.isClosed()) {
                 socket.close();
@@ -284,12 +721,70 @@ public class Client extends JFrame {
     }
 
     private void sendMessage(String message) {
-        if (isConnected && writer != null) {
-            writer.println(message);
+        if (isConnected && loggedIn) {
+            outbound.add(message);
+        }
+    }
+
+    // 전송 스레드 - 큐에 있는 만큼 쓰고 한 번 flush한다 (압축 중이면 flush마다 sync flush)
+    // 연결이 좋으면 바로 보내고, 샘플링 단계가 오르면 조금 기다렸다가 모아서 보낸다.
+    // 주기적으로 TIME_SYNC를 큐 뒤에 넣어 밀린 시간까지 포함한 왕복 시간을 잰다.
+    private void sendLoop() {
+        java.util.List<String> batch = new ArrayList<>();
+        long lastProbeAt = 0;
+        while (true) {
+            try {
+                String message = outbound.poll(Constants.RTT_PROBE_MILLIS, TimeUnit.MILLISECONDS);
+                long now = System.currentTimeMillis();
+                sampler.update(rttMillis, outbound.size(), now);
+                if (loggedIn && now - lastProbeAt >= Constants.RTT_PROBE_MILLIS) {
+                    lastProbeAt = now;
+                    outbound.add(Constants.CMD_TIME_SYNC + Constants.DELIMITER + now);
+                }
+                if (message == null) {
+                    continue;
+                }
+                long batchMillis = sampler.batchMillis();
+                if (batchMillis > 0) {
+                    Thread.sleep(batchMillis);
+                }
+                batch.add(message);
+                outbound.drainTo(batch, Constants.SEND_BATCH_MAX);
+                synchronized (writeLock) {
+                    if (loggedIn) {
+                        for (String line : batch) {
+                            writer.print(line);
+                            writer.print('\n');
+                        }
+                        writer.flush();
+                    }
+                }
+                batch.clear();
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    // 샘플링 단계가 바뀌면 화면에 보이고 서버 지표로도 알린다
+    private void onSamplingChanged(int level, long rtt, int queueDepth) {
+        System.out.println("그림 전송 단계 " + level + " (왕복 " + rtt + "ms, 보낼 메시지 " + queueDepth + "개)");
+        sendMessage(Constants.CMD_SAMPLING + Constants.DELIMITER + level);
+        SwingUtilities.invokeLater(() -> gameView.updateSamplingLevel(level));
+    }
+
+    // 실행부터 배경까지 그려진 첫 화면이 나오기까지의 시간을 한 번 기록한다 (EDT에서 호출)
+    static void markFirstFrame() {
+        if (!firstFrameReported) {
+            firstFrameReported = true;
+            System.out.println("첫 화면 표시까지 " + (System.nanoTime() - LAUNCH_NANOS) / 1_000_000 + "ms");
         }
     }
 
     public static void main(String[] args) {
+        // 로그인 화면을 띄우는 동안 이미지 디코딩과 크기 조정을 백그라운드에서 진행
+        LoginPanel.preloadAssets();
+        GUIView.preloadAssets();
         SwingUtilities.invokeLater(() -> {
             new Client().setVisible(true);
         });
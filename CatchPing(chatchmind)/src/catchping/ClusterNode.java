@@ -0,0 +1,379 @@
+package catchping;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// 여러 서버 프로세스를 외부 조정 서비스 없이 하나의 클러스터로 묶는다
+// 노드마다 클러스터 포트를 열고, 주기마다 아는 노드들과 노드 목록(주소, 상태, 열린 방과 인원)을 주고받는다.
+// 살아있고 드레인 중이 아닌 노드로 일관 해시 링을 만들어 새 방을 맡을 노드를 정한다.
+// 이미 열린 방은 링이 바뀌어도 옮기지 않고 그 노드로 보낸다 - 링 변경으로 옮겨지는 것은 아직 열리지 않은 방뿐이다.
+// 형식 (한 줄에 노드 하나): NODE//id//호스트//게임 포트//클러스터 포트//하트비트//alive|draining//방=인원,방=인원
+// 보내는 쪽이 자기 목록과 END를 보내면 받는 쪽이 합친 뒤 자기 목록과 END로 답한다.
+public class ClusterNode {
+    private static final LongAdder GOSSIP_SENT = ServerMetrics.counter("cluster.gossip.sent");
+    private static final LongAdder GOSSIP_FAILED = ServerMetrics.counter("cluster.gossip.failed");
+    private static final LongAdder GOSSIP_RECEIVED = ServerMetrics.counter("cluster.gossip.received");
+    private static final LongAdder RING_CHANGES = ServerMetrics.counter("cluster.ring.changes");
+    private static final String NODE = "NODE";
+    private static final String END = "END";
+    private static final String DRAIN = "DRAIN";
+    private static final int CONNECT_TIMEOUT_MILLIS = 500;
+    private static final int READ_TIMEOUT_MILLIS = 2000;
+    private static final int SAMPLE_ROOMS = 1000;      // 링이 바뀔 때 옮겨지는 방 비율을 재는 표본 수
+    private static final int TOMBSTONE_FACTOR = 10;    // 죽은 노드는 이 배수만큼 더 기억해서 되살아나지 않게 한다
+
+    // 노드 하나의 상태 - 바뀔 때마다 새로 만든다
+    public static final class Member {
+        public final String id;
+        public final String host;
+        public final int port;
+        public final int clusterPort;
+        public final long heartbeat;      // 그 노드만 올린다 - 큰 값이 새 정보
+        public final boolean draining;
+        public final Map<String, Integer> rooms;
+        final long seenAt;                // 이 노드에서 마지막으로 하트비트가 오른 것을 본 시각
+
+        Member(String id, String host, int port, int clusterPort, long heartbeat,
+               boolean draining, Map<String, Integer> rooms, long seenAt) {
+            this.id = id;
+            this.host = host;
+            this.port = port;
+            this.clusterPort = clusterPort;
+            this.heartbeat = heartbeat;
+            this.draining = draining;
+            this.rooms = rooms;
+            this.seenAt = seenAt;
+        }
+
+        String encode() {
+            Map<String, String> counts = new LinkedHashMap<>();
+            for (Map.Entry<String, Integer> room : rooms.entrySet()) {
+                counts.put(room.getKey(), String.valueOf(room.getValue()));
+            }
+            return NODE + Constants.DELIMITER + id + Constants.DELIMITER + host
+                + Constants.DELIMITER + port + Constants.DELIMITER + clusterPort
+                + Constants.DELIMITER + heartbeat + Constants.DELIMITER + (draining ? "draining" : "alive")
+                + Constants.DELIMITER + LoginRequest.encodeOptions(counts);
+        }
+
+        // 형식이 잘못된 줄이면 null
+        static Member parse(String line, long now) {
+            String[] parts = line.split(Constants.DELIMITER, -1);
+            if (parts.length < 8 || !NODE.equals(parts[0])) {
+                return null;
+            }
+            long port = DrawSegment.parseLong(parts[3]);
+            long clusterPort = DrawSegment.parseLong(parts[4]);
+            long heartbeat = DrawSegment.parseLong(parts[5]);
+            if (port <= 0 || port > 65535 || clusterPort <= 0 || clusterPort > 65535 || heartbeat < 0) {
+                return null;
+            }
+            Map<String, Integer> rooms = new LinkedHashMap<>();
+            for (Map.Entry<String, String> room : LoginRequest.parseOptions(parts[7]).entrySet()) {
+                rooms.put(room.getKey(), (int) Math.max(0, DrawSegment.parseLong(room.getValue())));
+            }
+            return new Member(parts[1], parts[2], (int) port, (int) clusterPort, heartbeat,
+                "draining".equals(parts[6]), rooms, now);
+        }
+    }
+
+    private final String nodeId;
+    private final String host;
+    private final int port;
+    private final int clusterPort;
+    private final List<InetSocketAddress> seeds = new ArrayList<>();
+    private final int virtualNodes;
+    private final long gossipMillis;
+    private final long failMillis;
+    private final Supplier<Map<String, Integer>> localRooms;
+    private final Map<String, Member> members = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService gossipExecutor;
+    private ServerSocket serverSocket;
+    private volatile Member self;
+    private volatile boolean draining;
+    private boolean drainReported;
+    private long heartbeat = System.currentTimeMillis();   // 다시 시작한 노드의 하트비트가 이전보다 크도록
+    private volatile HashRing ring = new HashRing(Collections.<String>emptyList(), 0);
+    private List<String> ringNodes = Collections.emptyList();
+
+    public ClusterNode(ServerConfig config, Supplier<Map<String, Integer>> localRooms) {
+        this.nodeId = config.clusterNodeId;
+        this.host = config.clusterHost;
+        this.port = config.port;
+        this.clusterPort = config.clusterPort;
+        this.virtualNodes = config.clusterVirtualNodes;
+        this.gossipMillis = config.clusterGossipMillis;
+        this.failMillis = config.clusterFailMillis;
+        this.localRooms = localRooms;
+        for (String seed : config.clusterSeeds.split(",")) {
+            int colon = seed.lastIndexOf(':');
+            if (colon > 0) {
+                seeds.add(new InetSocketAddress(seed.substring(0, colon).trim(),
+                    Integer.parseInt(seed.substring(colon + 1).trim())));
+            }
+        }
+        this.gossipExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "cluster-gossip");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    // 클러스터 포트를 열고 주고받기를 시작한다. 포트를 열지 못하면 IOException
+    public void start() throws IOException {
+        serverSocket = new ServerSocket(clusterPort);
+        refreshSelf(System.currentTimeMillis());
+        updateRing(System.currentTimeMillis());
+        Thread listener = new Thread(this::listen, "cluster-listener");
+        listener.setDaemon(true);
+        listener.start();
+        gossipExecutor.scheduleWithFixedDelay(this::gossip, 0, gossipMillis, TimeUnit.MILLISECONDS);
+        ServerMetrics.gauge("cluster.nodes", this::aliveCount);
+        System.out.println("클러스터 노드가 시작되었습니다: " + nodeId + " (클러스터 포트 " + clusterPort
+            + ", 시드 " + seeds.size() + "개)");
+    }
+
+    // 새 방을 더 받지 않는다 - 이미 열린 방은 끝날 때까지 이 노드에서 계속된다
+    public void drain() {
+        gossipExecutor.execute(() -> {
+            if (draining) {
+                return;
+            }
+            draining = true;
+            System.out.println("드레인을 시작합니다: 새 방은 다른 노드로 보냅니다.");
+            long now = System.currentTimeMillis();
+            refreshSelf(now);
+            updateRing(now);
+        });
+    }
+
+    // 방을 맡을 다른 노드. 이 노드에서 열면 되면 null
+    public Member locate(String room, boolean hostedHere) {
+        if (hostedHere) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        Member host = null;
+        for (Member member : members.values()) {
+            if (member != self && isAlive(member, now) && member.rooms.containsKey(room)
+                    && (host == null || member.id.compareTo(host.id) < 0)) {
+                host = member;   // 두 노드가 같은 방을 열었으면 id가 작은 쪽으로 모은다
+            }
+        }
+        if (host != null) {
+            return host;
+        }
+        String owner = ring.owner(room);
+        if (owner == null || owner.equals(nodeId)) {
+            return null;
+        }
+        Member member = members.get(owner);
+        return member != null && isAlive(member, now) ? member : null;
+    }
+
+    // 메트릭 로그용 클러스터 방 목록
+    public String describe() {
+        long now = System.currentTimeMillis();
+        StringBuilder sb = new StringBuilder("[cluster]");
+        List<String> ids = new ArrayList<>(members.keySet());
+        Collections.sort(ids);
+        for (String id : ids) {
+            Member member = members.get(id);
+            if (member == null) {
+                continue;
+            }
+            sb.append(' ').append(id).append('(')
+              .append(!isAlive(member, now) ? "dead" : member.draining ? "draining" : "alive")
+              .append(") ").append(member.rooms);
+        }
+        return sb.toString();
+    }
+
+    private long aliveCount() {
+        long now = System.currentTimeMillis();
+        long count = 0;
+        for (Member member : members.values()) {
+            if (isAlive(member, now)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private boolean isAlive(Member member, long now) {
+        return member == self || now - member.seenAt <= failMillis;
+    }
+
+    // 주기 작업 - 자기 상태를 올리고, 아는 노드와 시드에 보내고, 오래된 노드를 잊고, 링을 다시 만든다
+    private void gossip() {
+        try {
+            long now = System.currentTimeMillis();
+            refreshSelf(now);
+            Set<InetSocketAddress> targets = new LinkedHashSet<>(seeds);
+            for (Member member : members.values()) {
+                if (member != self && isAlive(member, now)) {
+                    targets.add(new InetSocketAddress(member.host, member.clusterPort));
+                }
+            }
+            targets.remove(new InetSocketAddress(host, clusterPort));
+            for (InetSocketAddress target : targets) {
+                exchange(target);
+            }
+            long forgetBefore = System.currentTimeMillis() - failMillis * TOMBSTONE_FACTOR;
+            members.values().removeIf(member -> member != self && member.seenAt < forgetBefore);
+            updateRing(System.currentTimeMillis());
+            if (draining && self.rooms.isEmpty() && !drainReported) {
+                drainReported = true;
+                System.out.println("드레인 완료: 이 노드에 남은 방이 없습니다. 종료해도 됩니다.");
+            }
+        } catch (RuntimeException e) {
+            System.out.println("클러스터 주기 작업 에러: " + e);
+        }
+    }
+
+    private void refreshSelf(long now) {
+        Member updated = new Member(nodeId, host, port, clusterPort, ++heartbeat, draining,
+            new LinkedHashMap<>(localRooms.get()), now);
+        members.put(nodeId, updated);
+        self = updated;
+    }
+
+    private void exchange(InetSocketAddress target) {
+        try (Socket socket = new Socket()) {
+            socket.connect(target, CONNECT_TIMEOUT_MILLIS);
+            socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+            PrintWriter out = writerFor(socket);
+            writeTable(out);
+            BufferedReader in = readerFor(socket);
+            readTable(in, in.readLine());
+            GOSSIP_SENT.increment();
+        } catch (IOException e) {
+            GOSSIP_FAILED.increment();  // 응답 없는 노드는 failMillis 뒤에 링에서 빠진다
+        }
+    }
+
+    // 들어오는 연결은 짧으므로 한 스레드에서 차례로 처리한다
+    private void listen() {
+        while (!serverSocket.isClosed()) {
+            try (Socket socket = serverSocket.accept()) {
+                socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+                BufferedReader in = readerFor(socket);
+                PrintWriter out = writerFor(socket);
+                String first = in.readLine();
+                if (DRAIN.equals(first)) {
+                    // 드레인 요청은 같은 머신에서만 받는다
+                    if (socket.getInetAddress().isLoopbackAddress()) {
+                        drain();
+                        out.println("OK " + nodeId);
+                    } else {
+                        out.println("DENIED");
+                    }
+                    out.flush();
+                    continue;
+                }
+                readTable(in, first);
+                writeTable(out);
+                GOSSIP_RECEIVED.increment();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    System.out.println("클러스터 수신 에러: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void writeTable(PrintWriter out) {
+        for (Member member : members.values()) {
+            out.println(member.encode());
+        }
+        out.println(END);
+        out.flush();
+    }
+
+    private void readTable(BufferedReader in, String line) throws IOException {
+        long now = System.currentTimeMillis();
+        while (line != null && !END.equals(line)) {
+            Member received = Member.parse(line, now);
+            if (received != null && !received.id.equals(nodeId)) {
+                members.merge(received.id, received,
+                    (known, fresh) -> fresh.heartbeat > known.heartbeat ? fresh : known);
+            }
+            line = in.readLine();
+        }
+    }
+
+    // 살아있고 드레인 중이 아닌 노드가 바뀌었을 때만 링을 다시 만든다
+    private void updateRing(long now) {
+        List<String> placing = new ArrayList<>();
+        for (Member member : members.values()) {
+            if (isAlive(member, now) && !member.draining) {
+                placing.add(member.id);
+            }
+        }
+        Collections.sort(placing);
+        if (placing.equals(ringNodes)) {
+            return;
+        }
+        HashRing next = new HashRing(placing, virtualNodes);
+        int moved = 0;
+        for (int i = 0; i < SAMPLE_ROOMS; i++) {
+            String key = "room-" + i;
+            if (!Objects.equals(ring.owner(key), next.owner(key))) {
+                moved++;
+            }
+        }
+        ring = next;
+        ringNodes = placing;
+        RING_CHANGES.increment();
+        System.out.println("클러스터 링 변경: " + placing + " (새 방 배치가 바뀌는 비율 "
+            + String.format("%.1f", moved * 100.0 / SAMPLE_ROOMS) + "%, 열린 방은 옮기지 않음)");
+    }
+
+    private static PrintWriter writerFor(Socket socket) throws IOException {
+        return new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), false);
+    }
+
+    private static BufferedReader readerFor(Socket socket) throws IOException {
+        return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    // 실행 중인 노드를 드레인한다
+    // 사용법: java catchping.ClusterNode drain <호스트> <클러스터 포트>
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3 || !"drain".equals(args[0])) {
+            System.out.println("사용법: java catchping.ClusterNode drain <호스트> <클러스터 포트>");
+            return;
+        }
+        try (Socket socket = new Socket(args[1], Integer.parseInt(args[2]))) {
+            PrintWriter out = writerFor(socket);
+            out.println(DRAIN);
+            out.flush();
+            System.out.println(readerFor(socket).readLine());
+        }
+    }
+}
@@ -11,7 +11,8 @@ public class Constants {
     
     // 프로토콜 관련 상수
     public static final String DELIMITER = "//";
-    public static final String CMD_LOGIN = "LOGIN";
+    public static final String CMD_LOGIN = "LOGIN";           // 로그인 (LOGIN//닉네임//옵션)
+    public static final String CMD_LOGIN_OK = "LOGIN_OK";     // 로그인 응답 - 협상된 옵션 (압축하지 않고 보냄)
     public static final String CMD_CHAT = "CHAT";
     public static final String CMD_DRAW = "DRAW";
     public static final String CMD_CLEAR = "CLEAR";
@@ -21,8 +22,25 @@ public class Constants {
     public static final String CMD_TIMER = "TIMER";
     public static final String CMD_NEXT_TURN = "NEXT_TURN";
     public static final String CMD_READY = "READY";           // 준비 상태 변경 명령어 추가
-    public static final String CMD_READY_STATUS = "READY_STATUS";  // 준비 상태 업데이트 명령어 추가
+    public static final String CMD_PLAYERS = "PLAYERS";             // 전체 플레이어 상태 (버전//닉네임,점수,준비...)
+    public static final String CMD_PLAYERS_DELTA = "PLAYERS_DELTA"; // 바뀐 플레이어 상태만 담은 델타
     public static final String CMD_ROUND = "ROUND";
+    public static final String CMD_BUSY = "BUSY";             // 서버 혼잡 - 대기 순번 (0이면 입장 거절)
+    public static final String CMD_PING = "PING";             // 하트비트 요청 (서버 -> 클라이언트)
+    public static final String CMD_PONG = "PONG";             // 하트비트 응답 (클라이언트 -> 서버)
+    public static final String CMD_RTT = "RTT";               // 플레이어별 왕복 지연 시간 알림
+    public static final String CMD_TIME_SYNC = "TIME_SYNC";   // 로그인 시 시계 오프셋 추정
+    public static final String CMD_ROUND_END = "ROUND_END";   // 서버가 확정한 라운드 종료
+    public static final String CMD_UDP = "UDP";               // UDP 선분 채널 사용 여부 (UDP//on, UDP//off)
+    public static final String CMD_STROKES = "STROKES";       // 관전자용 선분 묶음 (이어진 선마다 rgb,크기,지우개,점...)
+    public static final String ROLE_SPECTATOR = "spectator";  // 로그인 옵션 role=spectator
+    public static final String CMD_REDIRECT = "REDIRECT";     // 방을 맡은 다른 노드로 다시 연결 (REDIRECT//호스트//포트//노드)
+    public static final String CMD_MATCHING = "MATCHING";     // 자동 매칭 대기 중 (MATCHING//대기 인원)
+    public static final String CMD_SAMPLING = "SAMPLING";     // 클라이언트 그림 전송 단계 (SAMPLING//단계, 0이 최고)
+    public static final String CMD_LEADERBOARD = "LEADERBOARD"; // 전체 순위 (LEADERBOARD//닉네임,점수,우승,게임 수//...)
+    public static final String CMD_FILL = "FILL";             // 채우기 (FILL//점//r,g,b), 점은 CanvasCodec 6글자
+    public static final String CMD_CURVE = "CURVE";           // 곡선 획 (CURVE//점0점1...//r,g,b//size//isEraser)
+    public static final String CMD_KEYFRAME = "KEYFRAME";     // 굳힌 캔버스 이미지 (KEYFRAME//순번//조각 수//base64url PNG 조각)
     // GUI 크기 관련 상수
     public static final int FRAME_WIDTH = 1200;
     public static final int FRAME_HEIGHT = 800;
@@ -30,6 +48,13 @@ public class Constants {
     public static final int TOOL_PANEL_HEIGHT = 100;
     public static final int PLAYER_PANEL_HEIGHT = 80;
     public static final int INFO_PANEL_HEIGHT = 50;
+    public static final int COLOR_ICON_SIZE = 30;
+    public static final int CLEAR_ICON_SIZE = 30;
+    public static final int ERASER_ICON_WIDTH = 40;
+    public static final int ERASER_ICON_HEIGHT = 50;
+    public static final long ASSET_CACHE_BYTES = 64L * 1024 * 1024;  // 이미지 캐시 최대 크기
+    public static final int CHAT_HISTORY_CAPACITY = 500;  // 채팅창에 남겨둘 최대 줄 수
+    public static final int CHAT_FLUSH_MILLIS = 16;       // 채팅 묶음 반영 주기 (약 한 프레임)
     
     // GUI 컬러 관련 상수
     public static final java.awt.Color BACKGROUND_COLOR = new java.awt.Color(255, 255, 255);
@@ -40,22 +65,116 @@ public class Constants {
     
     // 게임 관련 상수
     public static final int GAME_TIME_SECONDS = 60;
+    public static final int TIMER_RESYNC_SECONDS = 15;     // 남은 시간 재동기화 주기
+    public static final int COUNTDOWN_REFRESH_MILLIS = 200; // 클라이언트 타이머 표시 갱신 주기
+    public static final long STATE_PUBLISH_INTERVAL_MILLIS = 100; // 플레이어 상태 발행 주기
     public static final int TOTAL_ROUNDS = 10;
     public static final int POINTS_FOR_CORRECT_ANSWER = 10;
+
+    // 속도 제한 관련 상수 (연결별, 명령어 종류별 토큰 버킷)
+    public static final int CHAT_RATE_PER_SECOND = 3;      // 채팅 초당 허용 개수
+    public static final int CHAT_BURST = 5;                // 채팅 순간 허용량
+    public static final int DRAW_RATE_PER_SECOND = 200;    // 그리기 초당 허용 개수
+    public static final int DRAW_BURST = 400;              // 그리기 순간 허용량
+    public static final int THROTTLE_VIOLATIONS = 200;     // 이 횟수만큼 초과하면 읽기 지연
+    public static final int DISCONNECT_VIOLATIONS = 2000;  // 이 횟수만큼 초과하면 연결 종료
+    public static final long THROTTLE_MILLIS = 1000;       // 읽기 지연 시간
+    public static final long VIOLATION_RESET_MILLIS = 5000; // 이 시간 동안 초과가 없으면 위반 횟수 초기화
+    public static final int METRICS_LOG_INTERVAL_SECONDS = 60;
+
+    // 수신 프레임 관련 상수
+    public static final int MAX_FRAME_LENGTH = 1024;       // 한 줄(프레임) 최대 바이트 수
+    public static final int MAX_NICKNAME_LENGTH = 10;      // LoginPanel과 같은 닉네임 최대 길이
+    public static final int CLIENT_MAX_FRAME_LENGTH = 64 * 1024;  // 클라이언트가 받는 한 줄 최대 바이트 수
+    public static final long RTT_PROBE_MILLIS = 1000;    // 클라이언트가 왕복 시간을 재는 주기 (TIME_SYNC)
+    public static final int SEND_BATCH_MAX = 256;        // 전송 스레드가 한 번에 쓰는 최대 메시지 수
+
+    // 곡선 획(CURVE) 관련 상수
+    public static final int CURVE_MAX_POINTS = 64;       // 한 메시지의 최대 점 수 (MAX_FRAME_LENGTH 안에 들어가게)
+    public static final int CURVE_MAX_SPANS = 16;        // 클라이언트가 한 메시지에 담는 최대 구간 수
+    public static final int CURVE_MIN_DISTANCE = 4;      // 앞 점과 이보다 가까운(기준 캔버스 px) 마우스 점은 곡선 점으로 쓰지 않는다
+    public static final long CURVE_FLUSH_MILLIS = 30;    // 구간이 이만큼 모이지 않아도 이 시간이 지나면 보낸다
+    public static final int CURVE_FLATTEN_PIXELS = 4;    // 서버가 캔버스에 담을 때 곡선을 나누는 대략의 길이 (기준 캔버스 px)
+
+    // 스트림 압축 관련 상수
+    public static final String CLIENT_COMPRESSION = "deflate-dict2|deflate";  // 클라이언트가 요청하는 방식 (선호 순)
+    public static final int COMPRESSION_LEVEL = 6;
+    public static final long COMPRESSION_FLUSH_MILLIS = 5; // 서버가 이 시간 동안 모은 메시지를 한 번에 flush
+
+    // UDP 선분 채널 관련 상수 (채팅, 제어, CLEAR는 계속 TCP로 보낸다)
+    // 그리는 쪽은 곡선(CURVE)을 TCP로만 보내므로 UDP로 올려 보낼 것이 없다 - 예전 DRAW 선분을 받아 볼 때만 켠다
+    public static final boolean CLIENT_UDP_ENABLED = false;
+    public static final int UDP_REDUNDANCY = 3;            // 데이터그램마다 함께 보내는 최근 선분 수
+    public static final long UDP_HELLO_RETRY_MILLIS = 300;
+    public static final int UDP_HELLO_ATTEMPTS = 10;       // 이만큼 보내도 확인이 없으면 TCP만 쓴다
+    // 루프백 테스트용 손실/순서 뒤바뀜 비율 (예: -Dcatchping.udp.loss=0.2)
+    public static final double UDP_SIMULATED_LOSS = Double.parseDouble(System.getProperty("catchping.udp.loss", "0"));
+    public static final double UDP_SIMULATED_REORDER = Double.parseDouble(System.getProperty("catchping.udp.reorder", "0"));
+
+    // 게임 기록 관련 상수
+    public static final int RECORDING_QUEUE_CAPACITY = 65536;  // 기록 스레드가 밀렸을 때 쌓아둘 최대 이벤트 수
+    public static final int ROOM_CANVAS_MAX_SEGMENTS = 200000; // 방 캔버스에 담아둘 최대 선분 수
+    public static final int ROOM_KEYFRAME_SEGMENTS = 4000;     // 선분이 이만큼 쌓이면 키프레임 이미지로 굳힌다 (0이면 끈다)
+    public static final int EXPORT_THREADS = 2;                // 라운드 그림 저장에 쓸 최대 스레드 수
+
+    // 입장 제어 관련 상수
+    public static final int WAIT_QUEUE_CAPACITY = 20;      // 대기열 최대 길이
+    public static final int ACCEPT_RATE_PER_SECOND = 20;   // 초당 받아들일 새 연결 수
+    public static final int ACCEPT_BURST = 40;
+    public static final long SHED_LAG_MILLIS = 200;        // 스케줄러 지연이 이보다 크면 새 연결 거절
+    public static final double SHED_HEAP_RATIO = 0.9;      // 힙 사용률이 이보다 크면 새 연결 거절
+    public static final int LOGIN_TIMEOUT_MILLIS = 10000;  // 연결 후 이 시간 안에 로그인하지 않으면 끊는다
+    public static final int WAIT_POLL_MILLIS = 200;        // 대기 중인 연결이 자리를 받았는지 이 간격으로 확인한다
+
+    // 관전자 관련 상수 (플레이어 자리와 따로 센다)
+    public static final int SPECTATOR_MAX = 100;
+    public static final long SPECTATOR_BATCH_MILLIS = 250; // 관전자에게 선분을 묶어 보내는 주기
+    public static final int SPECTATOR_TOLERANCE = 2;       // 묶을 때 뺄 수 있는 점의 허용 오차 (px)
+    // 플레이어에게 중계하는 선분 단순화 - 펜 굵기(최소 10px)보다 훨씬 작은 오차라 눈으로 구분되지 않는다
+    public static final int SIMPLIFY_TOLERANCE = 1;        // 뺄 수 있는 점의 허용 오차 (px, 0이면 끈다)
+    public static final long SIMPLIFY_FLUSH_MILLIS = 40;   // 붙잡아 둔 선분을 내보내는 주기
+    public static final int SPECTATOR_MAX_PENDING = 20000; // 한 묶음에 쌓아둘 최대 선분 수
+
+    // 세션 이어받기 관련 상수 (LOGIN_OK의 session 토큰으로 다시 연결)
+    public static final long SESSION_GRACE_MILLIS = 30000; // 끊긴 플레이어의 자리를 지켜두는 시간
+    public static final int SESSION_REPLAY_CAPACITY = 4096;// 세션마다 다시 보낼 수 있는 최근 메시지 수
+    public static final long RESUME_RETRY_MILLIS = 1000;   // 클라이언트가 다시 연결을 시도하는 간격
+    public static final int RESUME_ATTEMPTS = 20;          // 이만큼 실패하면 로그인 화면으로 돌아간다
+
+    // 방과 클러스터 관련 상수 (로그인 옵션 room=방이름, 없으면 기본 방)
+    public static final String DEFAULT_ROOM = "main";
+    public static final int MAX_ROOM_NAME_LENGTH = 20;
+    public static final int MAX_ROOMS = 8;                 // 노드 하나가 동시에 여는 최대 방 수
+    public static final int CLUSTER_VIRTUAL_NODES = 128;   // 일관 해시 링에 노드마다 두는 가상 노드 수
+    public static final long CLUSTER_GOSSIP_MILLIS = 500;  // 다른 노드와 상태를 주고받는 주기
+    public static final long CLUSTER_FAIL_MILLIS = 3000;   // 이 시간 동안 소식이 없는 노드는 링에서 뺀다
+    public static final int REDIRECT_MAX_HOPS = 3;         // 클라이언트가 따라가는 최대 REDIRECT 횟수
+
+    // 자동 매칭 (로그인 옵션 match=1) - 묶인 플레이어는 '#match-번호' 방에서 바로 게임을 시작한다
+    public static final String MATCH_ROOM_PREFIX = "#match-";
+    public static final long MATCHMAKING_TICK_MILLIS = 200;
+    public static final int MATCHMAKING_BUDGET = 5000;           // 틱 한 번에 살펴보는 최대 대기 표 수
+    public static final long MATCHMAKING_FILL_WAIT_MILLIS = 10000; // 이만큼 기다리면 최소 인원만으로 시작
+    public static final long MATCHMAKING_WIDEN_MILLIS = 5000;    // 이만큼 기다릴 때마다 옆 실력 구간을 하나 더 본다
+    public static final int MATCHMAKING_BAND_WIDTH = 10;         // 실력 구간 하나의 점수 폭 (게임당 평균 점수)
+
+    // 누적 전적 - 파일 쓰기는 모아서 주기적으로 한다
+    public static final long STATS_FLUSH_MILLIS = 1000;
+    public static final int LEADERBOARD_SIZE = 10;
+
+    // 방 상태 저널 - 그룹 커밋과 스냅샷 주기
+    public static final long JOURNAL_COMMIT_MILLIS = 2;       // 첫 이벤트 뒤로 이만큼 더 모아서 fsync 한 번으로 쓴다
+    public static final long JOURNAL_SNAPSHOT_MILLIS = 30000;
+    public static final int JOURNAL_SNAPSHOT_RECORDS = 10000; // 복구 때 읽을 로그의 최대 레코드 수
+
+    // 하트비트 관련 상수
+    public static final long HEARTBEAT_INTERVAL_MILLIS = 5000;
+    public static final int HEARTBEAT_MAX_MISSED = 3;      // 연속으로 응답이 없으면 연결 정리
+
     // 드로잉 관련 상수
-    public static final int[] PEN_SIZES = {10, 20, 30};          // 펜 크기 배열         // 펜 크기 배열
-    public static final int[] ERASER_SIZES = {10, 20, 30};    // 지우개 크기 배열
-    public static final java.awt.Color[] DRAWING_COLORS = {    // 그리기 색상 배열
-    	    java.awt.Color.BLACK,
-    	    java.awt.Color.RED,
-    	    java.awt.Color.BLUE,
-    	    new java.awt.Color(0, 0, 128),  // 남색 추가 (RGB: 0, 0, 128)
-    	    java.awt.Color.GREEN,
-    	    java.awt.Color.YELLOW,
-    	    java.awt.Color.ORANGE,
-    	    java.awt.Color.PINK,
-    	    java.awt.Color.MAGENTA
-    	};
+    public static final int[] PEN_SIZES = Palette.PEN_SIZES;          // 펜 크기 배열
+    public static final int[] ERASER_SIZES = Palette.ERASER_SIZES;    // 지우개 크기 배열
+    public static final java.awt.Color[] DRAWING_COLORS = toColors(Palette.COLORS_RGB);  // 그리기 색상 배열
 
     // 폰트 관련 상수
     public static final String DEFAULT_FONT = "맑은 고딕";
@@ -71,4 +190,12 @@ public class Constants {
     public static final String MSG_WRONG_ANSWER = "틀렸습니다. 다시 시도해보세요.";
     public static final String MSG_ROUND_OVER = "라운드가 종료되었습니다.";
     public static final String MSG_GAME_OVER = "게임이 종료되었습니다.";
+
+    private static java.awt.Color[] toColors(int[] rgbs) {
+        java.awt.Color[] colors = new java.awt.Color[rgbs.length];
+        for (int i = 0; i < rgbs.length; i++) {
+            colors[i] = new java.awt.Color(rgbs[i]);
+        }
+        return colors;
+    }
 }
\ No newline at end of file
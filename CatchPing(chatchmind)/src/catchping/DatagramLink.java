@@ -0,0 +1,67 @@
+package catchping;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+// 선분 전송용 UDP 채널
+// 루프백에서도 손실과 순서 뒤바뀜을 재현할 수 있도록 보낼 때 일부러 버리거나 다음 패킷 뒤로 미룬다.
+public class DatagramLink {
+    private static final LongAdder SIM_DROPPED = ServerMetrics.counter("udp.sim.dropped");
+    private static final LongAdder SIM_REORDERED = ServerMetrics.counter("udp.sim.reordered");
+    public static final int MAX_DATAGRAM = 1500;
+
+    private final DatagramChannel channel;
+    private final double lossRate;
+    private final double reorderRate;
+    private ByteBuffer held;            // 순서를 바꾸려고 잡아둔 패킷
+    private SocketAddress heldTarget;
+
+    // port가 0이면 임의의 포트를 쓴다 (클라이언트)
+    public DatagramLink(int port, double lossRate, double reorderRate) throws IOException {
+        this.channel = DatagramChannel.open();
+        this.channel.bind(new InetSocketAddress(port));
+        this.lossRate = lossRate;
+        this.reorderRate = reorderRate;
+    }
+
+    public synchronized void send(ByteBuffer packet, SocketAddress target) throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (lossRate > 0 && random.nextDouble() < lossRate) {
+            SIM_DROPPED.increment();
+            return;
+        }
+        if (held == null && reorderRate > 0 && random.nextDouble() < reorderRate) {
+            SIM_REORDERED.increment();
+            held = packet;
+            heldTarget = target;
+            return;
+        }
+        channel.send(packet, target);
+        if (held != null) {
+            channel.send(held, heldTarget);
+            held = null;
+            heldTarget = null;
+        }
+    }
+
+    // 패킷 하나를 받아 buffer에 채우고 보낸 주소를 돌려준다 (읽을 수 있게 flip된 상태)
+    public SocketAddress receive(ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        SocketAddress from = channel.receive(buffer);
+        buffer.flip();
+        return from;
+    }
+
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.out.println("UDP 채널 종료 에러: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package catchping;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.LongAdder;
+
+// DRAW 메시지 한 개(선분)의 파싱/검증 결과
+// 연결마다 하나를 만들어 재사용한다. 형식: DRAW//점1//점2//r,g,b//size//isEraser
+// 채우기(FILL//점//r,g,b)도 같은 객체로 읽는다 - 시작점은 x1,y1에 담는다
+// 점은 CanvasCodec의 논리 좌표 6글자, 크기는 기준 캔버스 픽셀 단위의 팔레트 크기다.
+public class DrawSegment {
+    private static final LongAdder INVALID = ServerMetrics.counter("frame.draw.invalid");
+    public int x1, y1, x2, y2;
+    public int rgb;
+    public int size;
+    public boolean eraser;
+
+    // split된 메시지를 파싱하고 좌표, 크기, 색상을 검증한다
+    public boolean parse(String[] parts) {
+        if (parts.length != 6
+                || !parsePoint(parts[1], true)
+                || !parsePoint(parts[2], false)
+                || !parseColor(parts[3])) {
+            INVALID.increment();
+            return false;
+        }
+        size = parseInt(parts[4], 0, parts[4].length());
+        eraser = "true".equals(parts[5]);
+        if (!(eraser || "false".equals(parts[5])) || !Palette.isAllowedSize(size, eraser) || !Palette.isAllowedColor(rgb, eraser)) {
+            INVALID.increment();
+            return false;
+        }
+        return true;
+    }
+
+    // FILL 메시지를 파싱한다. 시작점은 캔버스 안, 색은 팔레트 색이어야 한다
+    public boolean parseFill(String[] parts) {
+        if (parts.length != 3 || !parsePoint(parts[1], true) || !parseColor(parts[2])
+                || x1 >= CanvasCodec.WIDTH || y1 >= CanvasCodec.HEIGHT
+                || !Palette.isAllowedColor(rgb, false)) {
+            INVALID.increment();
+            return false;
+        }
+        x2 = x1;
+        y2 = y1;
+        size = 0;
+        eraser = false;
+        return true;
+    }
+
+    public String encodeFill() {
+        return encodeFill(x1, y1, rgb);
+    }
+
+    public static String encodeFill(int x, int y, int rgb) {
+        return Constants.CMD_FILL + Constants.DELIMITER + CanvasCodec.encodePoint(x, y) + Constants.DELIMITER
+            + ((rgb >> 16) & 0xFF) + "," + ((rgb >> 8) & 0xFF) + "," + (rgb & 0xFF);
+    }
+
+    // UDP 데이터그램용 고정 길이 인코딩 - 논리 좌표 2바이트씩, 색상 3바이트, 크기 1바이트, 지우개 1바이트
+    public static final int BINARY_BYTES = 13;
+
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putShort((short) x1).putShort((short) y1)
+              .putShort((short) x2).putShort((short) y2);
+        buffer.put((byte) (rgb >> 16)).put((byte) (rgb >> 8)).put((byte) rgb);
+        buffer.put((byte) size).put((byte) (eraser ? 1 : 0));
+    }
+
+    // 읽은 값도 텍스트와 같은 기준으로 검증한다
+    public boolean readFrom(ByteBuffer buffer) {
+        x1 = buffer.getShort();
+        y1 = buffer.getShort();
+        x2 = buffer.getShort();
+        y2 = buffer.getShort();
+        rgb = ((buffer.get() & 0xFF) << 16) | ((buffer.get() & 0xFF) << 8) | (buffer.get() & 0xFF);
+        size = buffer.get() & 0xFF;
+        eraser = buffer.get() == 1;
+        if (!CanvasCodec.inBounds(x1, y1) || !CanvasCodec.inBounds(x2, y2)
+                || !Palette.isAllowedSize(size, eraser) || !Palette.isAllowedColor(rgb, eraser)) {
+            INVALID.increment();
+            return false;
+        }
+        return true;
+    }
+
+    public void copyFrom(DrawSegment other) {
+        x1 = other.x1;
+        y1 = other.y1;
+        x2 = other.x2;
+        y2 = other.y2;
+        rgb = other.rgb;
+        size = other.size;
+        eraser = other.eraser;
+    }
+
+    // 색상, 크기, 지우개 여부가 같은지
+    public boolean sameStyle(DrawSegment other) {
+        return rgb == other.rgb && size == other.size && eraser == other.eraser;
+    }
+
+    public String encode() {
+        StringBuilder message = new StringBuilder(encodedLength());
+        message.append(Constants.CMD_DRAW).append(Constants.DELIMITER);
+        CanvasCodec.appendPoint(message, x1, y1).append(Constants.DELIMITER);
+        CanvasCodec.appendPoint(message, x2, y2).append(Constants.DELIMITER);
+        return message.append((rgb >> 16) & 0xFF).append(',').append((rgb >> 8) & 0xFF).append(',').append(rgb & 0xFF)
+            .append(Constants.DELIMITER).append(size)
+            .append(Constants.DELIMITER).append(eraser)
+            .toString();
+    }
+
+    // encode()가 만들 문자열 길이 (문자열을 만들지 않고 센다)
+    public int encodedLength() {
+        return Constants.CMD_DRAW.length() + Constants.DELIMITER.length() * 5 + 2 + CanvasCodec.POINT_CHARS * 2
+            + digits((rgb >> 16) & 0xFF) + digits((rgb >> 8) & 0xFF) + digits(rgb & 0xFF)
+            + digits(size) + (eraser ? 4 : 5);
+    }
+
+    private static int digits(int value) {
+        int count = 1;
+        while (value >= 10) {
+            value /= 10;
+            count++;
+        }
+        return count;
+    }
+
+    private boolean parsePoint(String text, boolean isStart) {
+        if (text.length() != CanvasCodec.POINT_CHARS) {
+            return false;
+        }
+        int x = CanvasCodec.decodeValue(text, 0);
+        int y = CanvasCodec.decodeValue(text, 3);
+        if (!CanvasCodec.inBounds(x, y)) {
+            return false;
+        }
+        if (isStart) {
+            x1 = x;
+            y1 = y;
+        } else {
+            x2 = x;
+            y2 = y;
+        }
+        return true;
+    }
+
+    private boolean parseColor(String text) {
+        int parsed = parseRgb(text);
+        if (parsed < 0) {
+            return false;
+        }
+        rgb = parsed;
+        return true;
+    }
+
+    // "r,g,b"를 RGB 정수로 읽는다. 형식이 틀리면 -1
+    static int parseRgb(String text) {
+        int first = text.indexOf(',');
+        int second = first < 0 ? -1 : text.indexOf(',', first + 1);
+        if (second < 0) {
+            return -1;
+        }
+        int r = parseInt(text, 0, first);
+        int g = parseInt(text, first + 1, second);
+        int b = parseInt(text, second + 1, text.length());
+        if (r < 0 || r > 255 || g < 0 || g > 255 || b < 0 || b > 255) {
+            return -1;
+        }
+        return (r << 16) | (g << 8) | b;
+    }
+
+    // 예외 없이 음이 아닌 long 값을 읽는다. 형식이 틀리면 -1
+    static long parseLong(String text) {
+        if (text.isEmpty() || text.length() > 18) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    // 예외 없이 음이 아닌 정수를 읽는다. 형식이 틀리면 -1
+    static int parseInt(String text, int from, int to) {
+        if (from >= to || to - from > 9) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
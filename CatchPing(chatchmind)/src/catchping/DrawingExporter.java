@@ -0,0 +1,136 @@
+package catchping;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.LongAdder;
+import javax.imageio.ImageIO;
+
+// 라운드 그림을 화면 없이 PNG로 저장한다
+// 게임 스레드와 분리된 크기 제한 ForkJoinPool에서 그리고, 캔버스 크기의 BufferedImage는 돌려쓴다.
+// 선분은 GUIView와 같은 StrokeRenderer로 그린다 (둥근 끝, 지우개는 흰색). 채우기도 화면과 같은 CanvasFill로 칠한다.
+// 키프레임이 있는 스냅샷은 키프레임을 깔고 그 뒤의 선분을 그린다 (CanvasKeyframe.paint).
+public class DrawingExporter {
+    private static final LongAdder EXPORTED = ServerMetrics.counter("export.images");
+    private static final LongAdder FAILED = ServerMetrics.counter("export.failed");
+    private static final LongAdder RENDER_MICROS = ServerMetrics.counter("export.render.micros");
+    private static final int SUMMARY_COLUMNS = 5;
+    private static final int SUMMARY_SCALE = 4;   // 요약 이미지에서 한 라운드는 1/4 크기
+
+    private final ForkJoinPool pool;
+    private final BlockingQueue<BufferedImage> images;
+
+    public DrawingExporter(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("drawing-export-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, true);
+        this.images = new ArrayBlockingQueue<>(parallelism);
+        ImageIO.setUseCache(false);  // 임시 파일 없이 메모리에서 인코딩
+        ServerMetrics.gauge("export.queued", pool::getQueuedSubmissionCount);
+    }
+
+    // 라운드 하나의 선분 스냅샷을 PNG로 저장한다
+    public CompletableFuture<Path> exportRound(RoomCanvas.Snapshot strokes, Path file) {
+        return CompletableFuture.supplyAsync(() -> {
+            BufferedImage image = acquireImage();
+            try {
+                long start = System.nanoTime();
+                render(image, strokes);
+                RENDER_MICROS.add((System.nanoTime() - start) / 1000);
+                return write(image, file);
+            } finally {
+                images.offer(image);
+            }
+        }, pool).whenComplete((path, error) -> {
+            if (error != null) {
+                FAILED.increment();
+                System.out.println("그림 저장 실패 (" + file + "): " + error.getCause());
+            }
+        });
+    }
+
+    // 게임 전체 라운드를 축소해서 한 장에 모은 요약 이미지
+    public CompletableFuture<Path> exportSummary(List<RoomCanvas.Snapshot> rounds, List<String> captions, Path file) {
+        return CompletableFuture.supplyAsync(() -> {
+            int cellWidth = Constants.FRAME_WIDTH / SUMMARY_SCALE;
+            int cellHeight = Constants.FRAME_HEIGHT / SUMMARY_SCALE;
+            int columns = Math.min(SUMMARY_COLUMNS, rounds.size());
+            int rows = (rounds.size() + SUMMARY_COLUMNS - 1) / SUMMARY_COLUMNS;
+            BufferedImage sheet = new BufferedImage(columns * cellWidth, rows * cellHeight, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g2d = sheet.createGraphics();
+            clear(g2d, sheet.getWidth(), sheet.getHeight());
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            // 채우기는 픽셀 단위라 라운드마다 원래 크기로 그린 뒤 줄여서 붙인다
+            BufferedImage round = acquireImage();
+            try {
+                for (int i = 0; i < rounds.size(); i++) {
+                    render(round, rounds.get(i));
+                    g2d.drawImage(round, (i % SUMMARY_COLUMNS) * cellWidth, (i / SUMMARY_COLUMNS) * cellHeight,
+                        cellWidth, cellHeight, null);
+                }
+            } finally {
+                images.offer(round);
+            }
+            for (int i = 0; i < rounds.size(); i++) {
+                g2d.setColor(Color.LIGHT_GRAY);
+                g2d.drawRect((i % SUMMARY_COLUMNS) * cellWidth, (i / SUMMARY_COLUMNS) * cellHeight, cellWidth - 1, cellHeight - 1);
+                g2d.setColor(Color.DARK_GRAY);
+                g2d.setFont(new Font(Constants.DEFAULT_FONT, Font.PLAIN, 12));
+                g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+                g2d.drawString(captions.get(i), (i % SUMMARY_COLUMNS) * cellWidth + 4, (i / SUMMARY_COLUMNS) * cellHeight + 14);
+            }
+            g2d.dispose();
+            return write(sheet, file);
+        }, pool).whenComplete((path, error) -> {
+            if (error != null) {
+                FAILED.increment();
+                System.out.println("요약 그림 저장 실패 (" + file + "): " + error.getCause());
+            }
+        });
+    }
+
+    private BufferedImage acquireImage() {
+        BufferedImage image = images.poll();
+        return image != null ? image
+            : new BufferedImage(Constants.FRAME_WIDTH, Constants.FRAME_HEIGHT, BufferedImage.TYPE_INT_RGB);
+    }
+
+    private static void clear(Graphics2D g2d, int width, int height) {
+        g2d.setColor(Color.WHITE);
+        g2d.fillRect(0, 0, width, height);
+    }
+
+    private static void render(BufferedImage image, RoomCanvas.Snapshot strokes) {
+        try {
+            CanvasKeyframe.paint(image, strokes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Path write(BufferedImage image, Path file) {
+        try {
+            Files.createDirectories(file.getParent());
+            ImageIO.write(image, "png", file.toFile());
+            EXPORTED.increment();
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package catchping;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+
+// 줄 단위 프레임 리더
+// BufferedReader.readLine()과 달리 프레임 최대 길이를 넘는 줄은 버퍼에 쌓지 않고 줄바꿈까지 건너뛴다.
+// 읽기 버퍼와 프레임 버퍼는 연결마다 한 번만 할당해서 재사용한다.
+public class FrameReader {
+    private static final LongAdder OVERSIZED = ServerMetrics.counter("frame.oversized");
+
+    private final InputStream in;
+    private final byte[] readBuffer = new byte[4096];
+    private final byte[] frame;
+    private int readPos;
+    private int readLimit;
+    private int frameLength;
+    private boolean discarding;  // 최대 길이를 넘은 프레임을 버리는 중
+
+    public FrameReader(InputStream in, int maxFrameLength) {
+        this.in = in;
+        this.frame = new byte[maxFrameLength];
+    }
+
+    // 다음 프레임을 읽는다. 스트림이 끝나면 null
+    public String readFrame() throws IOException {
+        while (true) {
+            if (readPos >= readLimit) {
+                readLimit = in.read(readBuffer, 0, readBuffer.length);
+                readPos = 0;
+                if (readLimit <= 0) {
+                    readLimit = 0;
+                    return null;
+                }
+            }
+
+            while (readPos < readLimit) {
+                byte b = readBuffer[readPos++];
+                if (b == '\n') {
+                    if (discarding) {
+                        discarding = false;
+                        frameLength = 0;
+                        continue;
+                    }
+                    int length = frameLength;
+                    frameLength = 0;
+                    if (length > 0 && frame[length - 1] == '\r') {
+                        length--;
+                    }
+                    return new String(frame, 0, length, StandardCharsets.UTF_8);
+                }
+                if (discarding) {
+                    continue;
+                }
+                if (frameLength == frame.length) {
+                    OVERSIZED.increment();
+                    discarding = true;
+                    frameLength = 0;
+                    continue;
+                }
+                frame[frameLength++] = b;
+            }
+        }
+    }
+
+    // 아직 읽지 않은 버퍼 내용 뒤에 나머지 스트림을 이어서 돌려준다
+    // 프레임 경계에서 스트림을 바꿀 때(압축 시작 등) 이미 읽어둔 바이트를 잃지 않기 위해 쓴다
+    public InputStream remaining() {
+        InputStream buffered = new ByteArrayInputStream(readBuffer, readPos, readLimit - readPos);
+        readPos = readLimit;
+        return new SequenceInputStream(buffered, in);
+    }
+}
@@ -5,15 +5,27 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class GUIView extends JPanel {
+	private static final String GAME_BACKGROUND = "images/game1.jpg";
+	private static final String ERASER_ICON = "erases/eraser.png";
+	private static final String CLEAR_ICON = "erases/allDelete.png";
 	private JButton readyButton;
 	private boolean isReady = false;
-	private Image gameImage;
+	private BackgroundPainter background;
 	private int currentRound = 1;
+	private int totalRounds = Constants.TOTAL_ROUNDS;  // 서버 설정에 따라 ROUND 메시지로 받는다
     // GUI 컴포넌트들
     private DrawingPanel drawingPanel;
-    private JTextArea chatArea;
+    private JList<String> chatList;
+    private ChatHistoryModel chatModel;
+    private final Queue<String> pendingChat = new ConcurrentLinkedQueue<>();  // 다음 프레임에 반영할 채팅
+    private Timer chatFlushTimer;
     private JTextField messageField;
     private JButton sendButton;
     private JPanel toolPanel;
@@ -23,23 +35,32 @@ public class GUIView extends JPanel {
     // 플레이어 정보
     private JLabel[] playerNames;
     private JLabel[] playerScores;
+    private String[] playerIds;       // 칸별 실제 닉네임 (준비 표시 없이)
+    private int[] scoreValues;
+    private long[] latencies;         // 칸별 왕복 지연 시간 (ms, 모르면 -1)
     
     // 게임 정보
     private JLabel roundLabel;
     private JLabel wordLabel;
     private JLabel timerLabel;
     private JLabel roleLabel;
+    private JLabel samplingLabel;     // 그림 전송 단계 (연결이 나쁘면 덜 보낸다)
+    private static final String[] SAMPLING_NAMES = {"전송: 최고", "전송: 높음", "전송: 보통", "전송: 낮음"};
     
     // 현재 선택된 그리기 도구 상태
     private Color currentColor = Color.BLACK;
     private int currentPenSize = Constants.PEN_SIZES[0];
     private boolean isEraser = false;
+    private boolean isFill = false;           // 채우기(페인트 통) 도구
     private boolean isCurrentDrawer = false;  // 클래스 상단에 필드 추가
+    private boolean spectatorMode = false;    // 관전자는 그리기, 채팅, 준비를 할 수 없다
     // 이벤트 리스너
     private ChatListener chatListener;
     private DrawingListener drawingListener;
-    public void updateRound(int round) {
+    private StrokeSampler strokeSampler;      // 없으면 마우스 이벤트마다 보낸다
+    public void updateRound(int round, int totalRounds) {
         this.currentRound = round;
+        this.totalRounds = totalRounds;
         updateGameInfo();
     }
     // 인터페이스 정의
@@ -48,33 +69,42 @@ public class GUIView extends JPanel {
     }
 
     public interface DrawingListener {
-        void onDrawing(Point start, Point end, Color color, int size, boolean isEraser);
+        // curve는 재사용하므로 보관하려면 복사해야 한다
+        void onCurve(StrokeCurve curve);
+        void onFill(Point seed, Color color);
         void onClearCanvas();
     }
 
     public GUIView() {
         setLayout(new BorderLayout());
         initializeComponents();
-        gameImage = new ImageIcon("images/game1.jpg").getImage();
-        
-        
+        background = new BackgroundPainter(GAME_BACKGROUND, this);
+    }
+
+    // 로그인 화면이 떠 있는 동안 게임 화면 이미지를 미리 디코딩하고 줄여둔다
+    public static void preloadAssets() {
+        AssetCache assets = AssetCache.getInstance();
+        for (Color color : Constants.DRAWING_COLORS) {
+            assets.preload(colorIconPath(color), Constants.COLOR_ICON_SIZE, Constants.COLOR_ICON_SIZE);
+        }
+        assets.preload(ERASER_ICON, Constants.ERASER_ICON_WIDTH, Constants.ERASER_ICON_HEIGHT);
+        assets.preload(CLEAR_ICON, Constants.CLEAR_ICON_SIZE, Constants.CLEAR_ICON_SIZE);
+        assets.preload(GAME_BACKGROUND);   // 배경은 패널 크기를 알고 나서 BackgroundPainter가 줄인다
     }
     
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
         
-        // 배경 이미지 그리기
-        if (gameImage != null) {
-            g.drawImage(gameImage, 0, 0, getWidth(), getHeight(), this);
-        }
+        // 배경 이미지 그리기 (크기가 바뀔 때만 다시 줄인다)
+        background.paint(g);
     }
  // getCurrentRound 메소드 추가
     public int getCurrentRound() {
         return currentRound;
     }
     private void updateGameInfo() {
-        roundLabel.setText("라운드: " + currentRound + "/" + Constants.TOTAL_ROUNDS);
+        roundLabel.setText("라운드: " + currentRound + "/" + totalRounds);
     }
     private void initializeComponents() {
     	
@@ -124,6 +154,10 @@ public class GUIView extends JPanel {
         
         playerNames = new JLabel[Constants.MAX_PLAYERS];
         playerScores = new JLabel[Constants.MAX_PLAYERS];
+        playerIds = new String[Constants.MAX_PLAYERS];
+        scoreValues = new int[Constants.MAX_PLAYERS];
+        latencies = new long[Constants.MAX_PLAYERS];
+        Arrays.fill(latencies, -1);
         
         for (int i = 0; i < Constants.MAX_PLAYERS; i++) {
             playerNames[i] = new JLabel("player" + i);  // or you could assign the player's actual name
@@ -142,10 +176,26 @@ public class GUIView extends JPanel {
 
         chatPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10)); // 10px 패딩 추가
         // 채팅 영역
-        chatArea = new JTextArea();
-        chatArea.setEditable(false);
-        chatArea.setFont(new Font(Constants.DEFAULT_FONT, Font.PLAIN, Constants.NORMAL_FONT_SIZE));
-        JScrollPane scrollPane = new JScrollPane(chatArea);
+        // 채팅 영역 - 고정 높이 행의 JList라서 화면에 보이는 줄만 그린다
+        chatModel = new ChatHistoryModel(Constants.CHAT_HISTORY_CAPACITY);
+        chatList = new JList<>(chatModel);
+        chatList.setFont(new Font(Constants.DEFAULT_FONT, Font.PLAIN, Constants.NORMAL_FONT_SIZE));
+        chatList.setFixedCellHeight(chatList.getFontMetrics(chatList.getFont()).getHeight() + 2);
+        chatList.setFixedCellWidth(1);  // 전체 줄의 너비를 재지 않고 뷰포트 너비를 따른다
+        chatList.setFocusable(false);
+        chatList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                          boolean isSelected, boolean cellHasFocus) {
+                super.getListCellRendererComponent(list, value, index, false, false);
+                setToolTipText(String.valueOf(value));  // 잘린 긴 줄은 툴팁으로 보여준다
+                return this;
+            }
+        });
+        JScrollPane scrollPane = new JScrollPane(chatList,
+            ScrollPaneConstants.VERTICAL_SCROLLBAR_AS_NEEDED, ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
+        chatFlushTimer = new Timer(Constants.CHAT_FLUSH_MILLIS, e -> flushChat());
+        chatFlushTimer.setRepeats(false);
         
         // 메시지 입력 영역
         JPanel inputPanel = new JPanel(new BorderLayout());
@@ -185,9 +235,18 @@ public class GUIView extends JPanel {
             penButton.addActionListener(e -> {
                 currentPenSize = size;
                 isEraser = false;
+                isFill = false;
             });
             penSizePanel.add(penButton);
         }
+        // 채우기 - 누른 곳과 이어진 영역을 지금 색으로 칠한다 (색을 바꿔도 채우기 도구는 유지)
+        JButton fillButton = new JButton("채우기");
+        styleToolButton(fillButton);
+        fillButton.addActionListener(e -> {
+            isFill = true;
+            isEraser = false;
+        });
+        penSizePanel.add(fillButton);
         toolPanel.add(penSizePanel);
 
         // 구분선
@@ -198,14 +257,9 @@ public class GUIView extends JPanel {
         colorPanel.setOpaque(false);
         for (Color color : Constants.DRAWING_COLORS) {
             JButton colorButton = new JButton();
-            try {
-                String colorName = getColorName(color);
-                ImageIcon icon = new ImageIcon("colors/" + colorName + ".png");
-                Image img = icon.getImage().getScaledInstance(30, 30, Image.SCALE_SMOOTH);
-                colorButton.setIcon(new ImageIcon(img));
-            } catch (Exception e) {
-                colorButton.setBackground(color);
-            }
+            AssetCache.getInstance().load(colorIconPath(color), Constants.COLOR_ICON_SIZE, Constants.COLOR_ICON_SIZE,
+                image -> colorButton.setIcon(new ImageIcon(image)),
+                () -> colorButton.setBackground(color));
             colorButton.setPreferredSize(new Dimension(40, 40));
             colorButton.setBorder(BorderFactory.createLineBorder(Color.WHITE, 2));
             colorButton.addActionListener(e -> {
@@ -225,13 +279,9 @@ public class GUIView extends JPanel {
 
         // 지우개 아이콘 추가
         JLabel eraserIcon = new JLabel();
-        try {
-            ImageIcon icon = new ImageIcon("erases/eraser.png");  // 지우개 아이콘 이미지
-            Image img = icon.getImage().getScaledInstance(40,50, Image.SCALE_SMOOTH);
-            eraserIcon.setIcon(new ImageIcon(img));
-        } catch (Exception e) {
-            eraserIcon.setText("지우개");  // 이미지 로드 실패시 텍스트로 표시
-        }
+        AssetCache.getInstance().load(ERASER_ICON, Constants.ERASER_ICON_WIDTH, Constants.ERASER_ICON_HEIGHT,
+            image -> eraserIcon.setIcon(new ImageIcon(image)),
+            () -> eraserIcon.setText("지우개"));  // 이미지 로드 실패시 텍스트로 표시
         eraserPanel.add(eraserIcon);
 
         // 지우개 크기 버튼들
@@ -241,19 +291,16 @@ public class GUIView extends JPanel {
             eraserButton.addActionListener(e -> {
                 currentPenSize = size;
                 isEraser = true;
+                isFill = false;
             });
             eraserPanel.add(eraserButton);
         }
 
         // 전체 지우기 버튼 (기존 코드 유지)
         JButton clearButton = new JButton();
-        try {
-            ImageIcon icon = new ImageIcon("erases/allDelete.png"); 
-            Image img = icon.getImage().getScaledInstance(30, 30, Image.SCALE_SMOOTH);
-            clearButton.setIcon(new ImageIcon(img));
-        } catch (Exception e) {
-            clearButton.setText("전체 지우기");
-        }
+        AssetCache.getInstance().load(CLEAR_ICON, Constants.CLEAR_ICON_SIZE, Constants.CLEAR_ICON_SIZE,
+            image -> clearButton.setIcon(new ImageIcon(image)),
+            () -> clearButton.setText("전체 지우기"));
         clearButton.setPreferredSize(new Dimension(40, 40));
         clearButton.setBorder(BorderFactory.createLineBorder(Color.WHITE, 2));
         clearButton.setToolTipText("전체 지우기");
@@ -266,8 +313,12 @@ public class GUIView extends JPanel {
 
         toolPanel.add(eraserPanel);
     }
+    private static String colorIconPath(Color color) {
+        return "colors/" + getColorName(color) + ".png";
+    }
+
     // 색상 이름 반환 메소드
-    private String getColorName(Color color) {
+    private static String getColorName(Color color) {
         if (color.equals(Color.BLACK)) return "black";
         if (color.equals(Color.RED)) return "red";
         if (color.equals(Color.BLUE)) return "blue";
@@ -280,7 +331,7 @@ public class GUIView extends JPanel {
         return "default";
     }
     private void initGameInfoPanel() {
-    	 gameInfoPanel = new JPanel(new GridLayout(1, 5, 10, 0));  // 5칸으로 변경
+    	 gameInfoPanel = new JPanel(new GridLayout(1, 6, 10, 0));  // 6칸으로 변경
         gameInfoPanel.setPreferredSize(new Dimension(Constants.FRAME_WIDTH, Constants.INFO_PANEL_HEIGHT));
         gameInfoPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
         
@@ -288,6 +339,7 @@ public class GUIView extends JPanel {
         wordLabel = new JLabel("제시어: ?????");
         timerLabel = new JLabel("남은 시간: " + Constants.GAME_TIME_SECONDS + "초");
         roleLabel = new JLabel("대기 중");  // 새로운 라벨 추가
+        samplingLabel = new JLabel(SAMPLING_NAMES[0]);
         styleInfoLabel(roundLabel);
         styleInfoLabel(wordLabel);
         styleInfoLabel(timerLabel);
@@ -305,11 +357,13 @@ public class GUIView extends JPanel {
         
         
         styleInfoLabel(roleLabel);
+        styleInfoLabel(samplingLabel);
         
         gameInfoPanel.add(roundLabel);
         gameInfoPanel.add(wordLabel);
         gameInfoPanel.add(timerLabel);
         gameInfoPanel.add(roleLabel);    // 역할 표시 라벨
+        gameInfoPanel.add(samplingLabel);
         gameInfoPanel.add(readyButton);
     }
     private void styleReadyButton(JButton button) {
@@ -329,33 +383,36 @@ public class GUIView extends JPanel {
     public void setReadyListener(ReadyListener listener) {
         this.readyListener = listener;
     }
-    public void updateTimer(int timeLeft) {
-        timerLabel.setText("남은 시간: " + timeLeft + "초");
+    public void setStrokeSampler(StrokeSampler sampler) {
+        this.strokeSampler = sampler;
     }
-    public void updatePlayerReadyStatus(String playerName, boolean ready) {
-        // 플레이어 이름 옆에 준비 상태 표시
-        for (int i = 0; i < Constants.MAX_PLAYERS; i++) {
-            if (playerNames[i].getText().equals(playerName)) {
-                playerNames[i].setText(playerName + (ready ? " (준비)" : ""));
-                break;
-            }
+
+    // EDT에서 호출
+    public void updateSamplingLevel(int level) {
+        samplingLabel.setText(SAMPLING_NAMES[level]);
+        samplingLabel.setForeground(level == 0 ? Color.BLACK : Color.RED);
+    }
+
+    public void updateTimer(int timeLeft) {
+        String text = "남은 시간: " + timeLeft + "초";
+        if (!text.equals(timerLabel.getText())) {
+            timerLabel.setText(text);
         }
     }
-    
     public void updateGameInfo(String word, int timeLeft, boolean isDrawer) {
         this.isCurrentDrawer = isDrawer;  // 출제자 여부 저장
-        String role = isDrawer ? "[출제자]" : "[정답자]";
+        String role = spectatorMode ? "[관전자]" : isDrawer ? "[출제자]" : "[정답자]";
         String wordDisplay = isDrawer ? "제시어: " + word : "제시어: ?????";
         
-        roundLabel.setText("라운드: " + currentRound + "/" + Constants.TOTAL_ROUNDS);
+        roundLabel.setText("라운드: " + currentRound + "/" + totalRounds);
         wordLabel.setText(wordDisplay);
         timerLabel.setText("남은 시간: " + timeLeft + "초");
         roleLabel.setText(role);
         
         // 그리기 도구와 채팅 활성화/비활성화
         setDrawingToolsEnabled(isDrawer);
-        messageField.setEnabled(!isDrawer);
-        sendButton.setEnabled(!isDrawer);
+        messageField.setEnabled(!isDrawer && !spectatorMode);
+        sendButton.setEnabled(!isDrawer && !spectatorMode);
         
         // 디버그 출력 추가
         System.out.println("현재 출제자 여부: " + isDrawer);
@@ -363,6 +420,16 @@ public class GUIView extends JPanel {
     }
 
 
+    // 관전 화면 - 서버가 보내는 그림과 채팅만 보여준다
+    public void setSpectatorMode(boolean spectator) {
+        this.spectatorMode = spectator;
+        readyButton.setVisible(!spectator);
+        roleLabel.setText(spectator ? "[관전자]" : "대기 중");
+        setDrawingToolsEnabled(false);
+        messageField.setEnabled(!spectator);
+        sendButton.setEnabled(!spectator);
+    }
+
     private void setDrawingToolsEnabled(boolean enabled) {
         // 모든 그리기 도구 버튼들의 활성화 상태 설정
         for (Component c : toolPanel.getComponents()) {
@@ -373,22 +440,21 @@ public class GUIView extends JPanel {
         drawingPanel.setEnabled(enabled);
     }
     public void drawOnCanvas(Point start, Point end, Color color, int penSize, boolean isEraser) {
-        Graphics2D g2d = (Graphics2D) drawingPanel.getGraphics();
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        
-        // 그리기 모드 또는 지우기 모드
-        if (isEraser) {
-            g2d.setColor(Color.WHITE);
-        } else {
-            g2d.setColor(color);
-        }
-        
-        // 전달받은 penSize 사용
-        g2d.setStroke(new BasicStroke(penSize, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-        
-        // 선 그리기
-        g2d.drawLine(start.x, start.y, end.x, end.y);
-        g2d.dispose();
+        drawingPanel.drawLine(start, end, color, penSize, isEraser);
+    }
+
+    public void drawCurve(StrokeCurve curve) {
+        drawingPanel.drawCurve(curve);
+    }
+
+    // 서버가 굳힌 캔버스 이미지 - 지금 캔버스를 덮어쓴다
+    public void drawKeyframe(BufferedImage image) {
+        drawingPanel.drawImage(image);
+    }
+
+    // 채우기는 화면이 아니라 남겨둔 캔버스 이미지에 하므로 모든 클라이언트에서 결과가 같다
+    public void fillOnCanvas(Point seed, Color color) {
+        drawingPanel.fill(seed, color);
     }
 
     public void resetGame() {
@@ -400,10 +466,10 @@ public class GUIView extends JPanel {
         clearCanvas();
         
         // 라벨 초기화
-        roundLabel.setText("라운드: 1/" + Constants.TOTAL_ROUNDS);
+        roundLabel.setText("라운드: 1/" + totalRounds);
         wordLabel.setText("제시어: ?????");
         timerLabel.setText("남은 시간: " + Constants.GAME_TIME_SECONDS + "초");
-        roleLabel.setText("대기 중");
+        roleLabel.setText(spectatorMode ? "[관전자]" : "대기 중");
         
         // 준비 상태 초기화
         isReady = false;
@@ -412,36 +478,112 @@ public class GUIView extends JPanel {
         
         // 플레이어 정보 초기화
         for (int i = 0; i < Constants.MAX_PLAYERS; i++) {
-            playerNames[i].setText("player" + i);
-            playerScores[i].setText("0점");
+            clearPlayerInfo(i);
         }
         
         // 채팅창 초기화
-        chatArea.setText("");
+        pendingChat.clear();
+        chatModel.clear();
         
         // 그리기 도구 초기화
         currentColor = Color.BLACK;
         currentPenSize = Constants.PEN_SIZES[0];
         isEraser = false;
+        isFill = false;
         
-        // 입력 필드 활성화
-        messageField.setEnabled(true);
-        sendButton.setEnabled(true);
+        // 입력 필드 활성화 (관전자는 계속 읽기 전용)
+        messageField.setEnabled(!spectatorMode);
+        sendButton.setEnabled(!spectatorMode);
     }
     // 캔버스 초기화 메소드
     public void clearCanvas() {
-        Graphics g = drawingPanel.getGraphics();
-        g.setColor(Color.WHITE);
-        g.fillRect(0, 0, drawingPanel.getWidth(), drawingPanel.getHeight());
-        g.dispose();
+        drawingPanel.clear();
     }
-    // 그리기 패널 내부 클래스
+    // 그리기 패널 내부 클래스 - 받은 선분과 채우기를 기준 캔버스 크기의 이미지에 남겨두고 화면에는 패널 크기에 맞춰 줄여 그린다
+    // 주고받는 좌표는 CanvasCodec의 논리 좌표다. 마우스 점은 패널 배율로 나눠 논리 좌표로 바꾸므로 창 크기와 상관없이 같은 자리에 그려진다.
+    // 이미지는 모든 클라이언트에서 같은 크기라 채우기 결과도 같다 (펜 굵기도 화면 배율대로 함께 줄어든다).
+    // 그리는 쪽은 마우스 점을 CURVE_MIN_DISTANCE 간격으로 골라 Catmull-Rom 곡선의 점으로 보낸다 (StrokeCurve 참고).
+    // 구간 하나의 모양은 다음 점까지 와야 정해지므로, 모양이 정해진 구간을 모아 CURVE 메시지 하나로 보낸다.
     class DrawingPanel extends JPanel {
-        private Point startPoint;
+        private final List<Point> strokePoints = new ArrayList<>();   // 이번 획의 곡선 점 (보낸 구간의 점은 앞에서 지운다)
+        private int sentSpans;        // strokePoints에서 이미 보낸 구간 수 (구간 i = 점 i에서 점 i+1까지)
+        private long lastCurveSentAt;
+        private final StrokeCurve outgoingCurve = new StrokeCurve();
+        private final BufferedImage canvas =
+            new BufferedImage(Constants.FRAME_WIDTH, Constants.FRAME_HEIGHT, BufferedImage.TYPE_INT_RGB);
         public DrawingPanel() {  // 생성자 추가
             setBackground(Color.WHITE);
+            clear();
             setupDrawingEvents();
         }
+
+        // 기준 캔버스 한 픽셀이 화면에서 몇 픽셀인지 (가로세로 비율은 유지)
+        private double scale() {
+            double scale = Math.min((double) getWidth() / Constants.FRAME_WIDTH, (double) getHeight() / Constants.FRAME_HEIGHT);
+            return scale > 0 ? scale : 1;
+        }
+
+        private Point toLogical(Point screen) {
+            double scale = scale();
+            return new Point(CanvasCodec.toLogical(screen.x, scale, CanvasCodec.WIDTH - 1),
+                CanvasCodec.toLogical(screen.y, scale, CanvasCodec.HEIGHT - 1));
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            double scale = scale();
+            Graphics2D g2d = (Graphics2D) g;
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2d.drawImage(canvas, 0, 0, (int) Math.round(Constants.FRAME_WIDTH * scale),
+                (int) Math.round(Constants.FRAME_HEIGHT * scale), null);
+        }
+
+        // 캔버스 이미지에서 바뀐 영역(기준 캔버스 픽셀)만 화면에 다시 그린다
+        private void repaintCanvas(Rectangle bounds) {
+            double scale = scale();
+            repaint((int) Math.floor(bounds.x * scale) - 1, (int) Math.floor(bounds.y * scale) - 1,
+                (int) Math.ceil(bounds.width * scale) + 3, (int) Math.ceil(bounds.height * scale) + 3);
+        }
+
+        void drawLine(Point start, Point end, Color color, int penSize, boolean isEraser) {
+            Graphics2D g2d = canvas.createGraphics();
+            StrokeRenderer.draw(g2d, start.x, start.y, end.x, end.y, color, penSize, isEraser);
+            g2d.dispose();
+            Rectangle bounds = new Rectangle((int) CanvasCodec.toPixel(start.x), (int) CanvasCodec.toPixel(start.y), 1, 1);
+            bounds.add((int) CanvasCodec.toPixel(end.x) + 1, (int) CanvasCodec.toPixel(end.y) + 1);
+            bounds.grow(penSize, penSize);
+            repaintCanvas(bounds);
+        }
+
+        void drawCurve(StrokeCurve curve) {
+            Graphics2D g2d = canvas.createGraphics();
+            Rectangle bounds = StrokeRenderer.drawCurve(g2d, curve);
+            g2d.dispose();
+            repaintCanvas(bounds);
+        }
+
+        void drawImage(BufferedImage image) {
+            Graphics g = canvas.createGraphics();
+            g.drawImage(image, 0, 0, null);
+            g.dispose();
+            repaint();
+        }
+
+        void fill(Point seed, Color color) {
+            if (CanvasFill.fill(canvas, (int) CanvasCodec.toPixel(seed.x), (int) CanvasCodec.toPixel(seed.y),
+                    color.getRGB() & 0xFFFFFF) > 0) {
+                repaint();
+            }
+        }
+
+        void clear() {
+            Graphics g = canvas.createGraphics();
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+            g.dispose();
+            repaint();
+        }
         private void setupDrawingEvents() {
             MouseAdapter mouseAdapter = new MouseAdapter() {
                 @Override
@@ -449,7 +591,17 @@ public class GUIView extends JPanel {
                     if (!isCurrentDrawer) {  // 출제자가 아니면 리턴
                         return;
                     }
-                    startPoint = e.getPoint();
+                    if (isFill) {
+                        // 서버가 돌려준 FILL로 칠한다 (선분과 같은 순서로 모든 화면에 적용되도록)
+                        if (drawingListener != null) {
+                            drawingListener.onFill(toLogical(e.getPoint()), currentColor);
+                        }
+                        return;
+                    }
+                    strokePoints.clear();
+                    strokePoints.add(toLogical(e.getPoint()));
+                    sentSpans = 0;
+                    lastCurveSentAt = System.currentTimeMillis();
                 }
 
                 @Override
@@ -457,13 +609,41 @@ public class GUIView extends JPanel {
                     if (!isCurrentDrawer) {  // 출제자가 아니면 리턴
                         return;
                     }
-                    if (startPoint != null && drawingListener != null) {
-                        Point endPoint = e.getPoint();
-                        drawingListener.onDrawing(startPoint, endPoint, 
-                            isEraser ? Color.WHITE : currentColor, 
-                            currentPenSize,  // currentPenSize 전달
-                            isEraser);
-                        startPoint = endPoint;
+                    if (strokePoints.isEmpty() || drawingListener == null) {
+                        return;
+                    }
+                    Point last = strokePoints.get(strokePoints.size() - 1);
+                    Point point = toLogical(e.getPoint());
+                    long now = System.currentTimeMillis();
+                    int minDistance = Constants.CURVE_MIN_DISTANCE * CanvasCodec.SUBPIXELS;
+                    if (last.distanceSq(point) < minDistance * minDistance) {
+                        return;  // 곡선이 사이를 메우므로 가까운 점은 건너뛴다
+                    }
+                    StrokeSampler sampler = strokeSampler;
+                    if (sampler != null && !sampler.accept(last, point, now)) {
+                        return;  // 연결이 느리면 점을 더 듬성듬성 고른다
+                    }
+                    strokePoints.add(point);
+                    int ready = strokePoints.size() - 2 - sentSpans;
+                    if (ready >= Constants.CURVE_MAX_SPANS
+                            || (ready > 0 && now - lastCurveSentAt >= Constants.CURVE_FLUSH_MILLIS)) {
+                        sendCurve(strokePoints.size() - 2, now);
+                    }
+                }
+
+                // 획 끝 - 마지막 점을 넣고 남은 구간을 모두 보낸다
+                @Override
+                public void mouseReleased(MouseEvent e) {
+                    if (!strokePoints.isEmpty() && drawingListener != null) {
+                        Point point = toLogical(e.getPoint());
+                        if (!point.equals(strokePoints.get(strokePoints.size() - 1))) {
+                            strokePoints.add(point);
+                        }
+                        sendCurve(strokePoints.size() - 1, System.currentTimeMillis());
+                    }
+                    strokePoints.clear();
+                    if (strokeSampler != null) {
+                        strokeSampler.onStrokeEnd();
                     }
                 }
             };
@@ -471,6 +651,37 @@ public class GUIView extends JPanel {
             addMouseListener(mouseAdapter);
             addMouseMotionListener(mouseAdapter);
         }
+
+        // 구간 sentSpans부터 endSpan 앞까지를 CURVE_MAX_SPANS개씩 보낸다
+        // 앞뒤에 방향 점을 하나씩 붙이고, 획의 처음과 끝에서는 끝점을 한 번 더 쓴다
+        private void sendCurve(int endSpan, long now) {
+            while (sentSpans < endSpan) {
+                int to = Math.min(endSpan, sentSpans + Constants.CURVE_MAX_SPANS);
+                outgoingCurve.count = 0;
+                addCurvePoint(strokePoints.get(Math.max(0, sentSpans - 1)));
+                for (int i = sentSpans; i <= to; i++) {
+                    addCurvePoint(strokePoints.get(i));
+                }
+                addCurvePoint(strokePoints.get(Math.min(strokePoints.size() - 1, to + 1)));
+                outgoingCurve.rgb = (isEraser ? Color.WHITE : currentColor).getRGB() & 0xFFFFFF;
+                outgoingCurve.size = currentPenSize;
+                outgoingCurve.eraser = isEraser;
+                drawingListener.onCurve(outgoingCurve);
+                sentSpans = to;
+            }
+            lastCurveSentAt = now;
+            // 다음 메시지의 앞 방향 점 하나만 남기고 지운다
+            if (sentSpans > 1) {
+                strokePoints.subList(0, sentSpans - 1).clear();
+                sentSpans = 1;
+            }
+        }
+
+        private void addCurvePoint(Point point) {
+            outgoingCurve.points[outgoingCurve.count * 2] = point.x;
+            outgoingCurve.points[outgoingCurve.count * 2 + 1] = point.y;
+            outgoingCurve.count++;
+        }
     }
 
     // 스타일링 메소드들
@@ -509,16 +720,73 @@ public class GUIView extends JPanel {
     }
 
     // 외부에서 호출할 수 있는 메소드들
+    // 채팅은 바로 그리지 않고 모아두었다가 한 프레임에 한 번 모델에 반영한다 (어느 스레드에서나 호출 가능)
     public void addChatMessage(String message) {
-        chatArea.append(message + "\n");
-        chatArea.setCaretPosition(chatArea.getDocument().getLength());
+        pendingChat.add(message);
+        if (SwingUtilities.isEventDispatchThread()) {
+            scheduleChatFlush();
+        } else {
+            SwingUtilities.invokeLater(this::scheduleChatFlush);
+        }
+    }
+
+    private void scheduleChatFlush() {
+        if (!chatFlushTimer.isRunning()) {
+            chatFlushTimer.start();
+        }
+    }
+
+    private void flushChat() {
+        List<String> batch = new ArrayList<>();
+        String line;
+        while ((line = pendingChat.poll()) != null) {
+            batch.add(line);
+        }
+        if (!batch.isEmpty()) {
+            chatModel.appendAll(batch);
+            chatList.ensureIndexIsVisible(chatModel.getSize() - 1);
+        }
+    }
+
+    public void updatePlayerInfo(int index, String name, int score, boolean ready) {
+        if (index >= 0 && index < Constants.MAX_PLAYERS) {
+            if (!name.equals(playerIds[index])) {
+                latencies[index] = -1;
+            }
+            playerIds[index] = name;
+            scoreValues[index] = score;
+            playerNames[index].setText(name + (ready ? " (준비)" : ""));  // 이름 옆에 준비 상태 표시
+            refreshScoreLabel(index);
+        }
     }
 
-    public void updatePlayerInfo(int index, String name, int score) {
+    // 비어 있는 플레이어 칸으로 되돌린다
+    public void clearPlayerInfo(int index) {
         if (index >= 0 && index < Constants.MAX_PLAYERS) {
-            playerNames[index].setText(name);
-            playerScores[index].setText(score + "점");
+            playerIds[index] = null;
+            scoreValues[index] = 0;
+            latencies[index] = -1;
+            playerNames[index].setText("player" + index);
+            playerScores[index].setText("0점");
+        }
+    }
+
+    public void updatePlayerLatency(String name, long rttMillis) {
+        for (int i = 0; i < Constants.MAX_PLAYERS; i++) {
+            if (name.equals(playerIds[i])) {
+                latencies[i] = rttMillis;
+                refreshScoreLabel(i);
+                break;
+            }
+        }
+    }
+
+    private void refreshScoreLabel(int index) {
+        String text = scoreValues[index] + "점";
+        if (latencies[index] >= 0) {
+            text += " (" + latencies[index] + "ms)";
         }
+        playerScores[index].setText(text);
     }
 
 
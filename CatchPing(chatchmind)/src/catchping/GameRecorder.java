@@ -0,0 +1,229 @@
+package catchping;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// 게임 한 판의 이벤트를 덧붙이기 전용 바이너리 로그로 기록한다
+// 게임 스레드는 이벤트를 바이트 배열로 만들어 큐에 넣기만 하고, 파일 쓰기는 기록 스레드가 버퍼를 모아서 한다.
+// 파일 형식: [매직 4B][시작 시각 8B] + 레코드 반복 [종류 1B][시작부터 지난 ms 4B][길이 2B][내용]
+// 게임이 끝나면 라운드 시작 위치를 담은 색인 파일(.idx)을 함께 남긴다.
+public class GameRecorder {
+    public static final int MAGIC = 0x43505232;  // "CPR2" - 좌표는 CanvasCodec 논리 좌표
+    public static final int MAGIC_V1 = 0x43505231;  // "CPR1" - 좌표가 기준 캔버스 픽셀이던 예전 기록 (읽기만 한다)
+    public static final int HEADER_BYTES = 12;
+    public static final int RECORD_HEADER_BYTES = 7;
+    public static final String EXTENSION = ".cpr";
+    public static final String INDEX_EXTENSION = ".idx";
+
+    // 이벤트 종류
+    public static final byte JOIN = 1;
+    public static final byte LEAVE = 2;
+    public static final byte ROUND_START = 3;     // 라운드, 출제자, 제시어
+    public static final byte STROKE = 4;          // DrawSegment 바이너리 인코딩
+    public static final byte CHAT = 5;            // 닉네임, 내용 (정답 시도 포함)
+    public static final byte SCORE = 6;           // 닉네임, 현재 점수
+    public static final byte CLEAR = 7;
+    public static final byte GAME_END = 8;
+    public static final byte FILL = 9;            // x 2B, y 2B, rgb 3B
+
+    private static final LongAdder RECORDED = ServerMetrics.counter("recorder.events");
+    private static final LongAdder DROPPED = ServerMetrics.counter("recorder.dropped");
+    private static final byte[] END_OF_QUEUE = new byte[0];
+
+    private final Path file;
+    private final long startMillis = System.currentTimeMillis();
+    private final BlockingQueue<byte[]> queue;
+    private volatile boolean finished;
+
+    private GameRecorder(Path file, int queueCapacity) {
+        this.file = file;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+    }
+
+    // 기록 스레드를 띄운다. 파일은 기록 스레드에서 만든다
+    public static GameRecorder start(Path directory, int queueCapacity) {
+        String name = "game-" + System.currentTimeMillis() + EXTENSION;
+        GameRecorder recorder = new GameRecorder(directory.resolve(name), queueCapacity);
+        Thread writer = new Thread(recorder::writeLoop, "game-recorder");
+        writer.setDaemon(true);
+        writer.start();
+        return recorder;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public void join(String nickname) {
+        record(JOIN, nickname);
+    }
+
+    public void leave(String nickname) {
+        record(LEAVE, nickname);
+    }
+
+    public void roundStart(int round, String drawer, String word) {
+        byte[] drawerBytes = drawer.getBytes(StandardCharsets.UTF_8);
+        byte[] wordBytes = word.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = begin(ROUND_START, 2 + 2 + drawerBytes.length + 2 + wordBytes.length);
+        payload.putShort((short) round);
+        putString(payload, drawerBytes);
+        putString(payload, wordBytes);
+        offer(payload);
+    }
+
+    public void stroke(DrawSegment segment) {
+        ByteBuffer payload = begin(STROKE, DrawSegment.BINARY_BYTES);
+        segment.writeTo(payload);
+        offer(payload);
+    }
+
+    public void fill(DrawSegment seed) {
+        ByteBuffer payload = begin(FILL, 7);
+        payload.putShort((short) seed.x1).putShort((short) seed.y1);
+        payload.put((byte) (seed.rgb >> 16)).put((byte) (seed.rgb >> 8)).put((byte) seed.rgb);
+        offer(payload);
+    }
+
+    public void chat(String nickname, String text) {
+        record(CHAT, nickname, text);
+    }
+
+    public void score(String nickname, int score) {
+        byte[] nameBytes = nickname.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = begin(SCORE, 2 + nameBytes.length + 4);
+        putString(payload, nameBytes);
+        payload.putInt(score);
+        offer(payload);
+    }
+
+    public void clear() {
+        offer(begin(CLEAR, 0));
+    }
+
+    // 게임 종료 - 남은 이벤트를 모두 쓰고 색인을 남긴 뒤 파일을 닫는다
+    public void finish() {
+        offer(begin(GAME_END, 0));
+        finished = true;
+        while (!queue.offer(END_OF_QUEUE)) {
+            queue.poll();  // 가득 찼으면 오래된 이벤트를 버려서라도 종료 표시는 넣는다
+            DROPPED.increment();
+        }
+    }
+
+    private void record(byte type, String... texts) {
+        byte[][] encoded = new byte[texts.length][];
+        int length = 0;
+        for (int i = 0; i < texts.length; i++) {
+            encoded[i] = texts[i].getBytes(StandardCharsets.UTF_8);
+            length += 2 + encoded[i].length;
+        }
+        ByteBuffer payload = begin(type, length);
+        for (byte[] text : encoded) {
+            putString(payload, text);
+        }
+        offer(payload);
+    }
+
+    private ByteBuffer begin(byte type, int payloadLength) {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + payloadLength);
+        record.put(type).putInt((int) (System.currentTimeMillis() - startMillis)).putShort((short) payloadLength);
+        return record;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] text) {
+        buffer.putShort((short) text.length).put(text);
+    }
+
+    // 게임 스레드를 막지 않는다 - 큐가 가득 차면 버리고 센다
+    private void offer(ByteBuffer record) {
+        if (finished) {
+            return;
+        }
+        if (queue.offer(record.array())) {
+            RECORDED.increment();
+        } else {
+            DROPPED.increment();
+        }
+    }
+
+    private void writeLoop() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+        List<long[]> roundIndex = new ArrayList<>();  // {라운드, 파일 위치, 시각}
+        try {
+            Files.createDirectories(file.getParent());
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                buffer.putInt(MAGIC).putLong(startMillis);
+                long position = HEADER_BYTES;
+                while (true) {
+                    byte[] record = queue.poll(200, TimeUnit.MILLISECONDS);
+                    if (record == null) {
+                        drain(channel, buffer);  // 한동안 조용하면 쌓인 만큼 파일에 쓴다
+                        continue;
+                    }
+                    if (record == END_OF_QUEUE) {
+                        break;
+                    }
+                    if (record[0] == ROUND_START) {
+                        int round = ByteBuffer.wrap(record).getShort(RECORD_HEADER_BYTES);
+                        roundIndex.add(new long[] {round, position, ByteBuffer.wrap(record).getInt(1)});
+                    }
+                    if (buffer.remaining() < record.length) {
+                        drain(channel, buffer);
+                    }
+                    buffer.put(record);
+                    position += record.length;
+                }
+                drain(channel, buffer);
+                channel.force(false);
+            }
+            writeIndex(roundIndex);
+            System.out.println("게임 기록 저장: " + file.toAbsolutePath());
+        } catch (IOException e) {
+            System.out.println("게임 기록 에러: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            finished = true;
+            queue.clear();
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // 색인: [개수 4B] + [라운드 4B][파일 위치 8B][시각 4B] 반복
+    private void writeIndex(List<long[]> roundIndex) throws IOException {
+        ByteBuffer index = ByteBuffer.allocate(4 + roundIndex.size() * 16);
+        index.putInt(roundIndex.size());
+        for (long[] entry : roundIndex) {
+            index.putInt((int) entry[0]).putLong(entry[1]).putInt((int) entry[2]);
+        }
+        index.flip();
+        Files.write(indexFile(file), index.array());
+    }
+
+    public static Path indexFile(Path recording) {
+        String name = recording.getFileName().toString();
+        if (name.endsWith(EXTENSION)) {
+            name = name.substring(0, name.length() - EXTENSION.length());
+        }
+        return recording.resolveSibling(name + INDEX_EXTENSION);
+    }
+}
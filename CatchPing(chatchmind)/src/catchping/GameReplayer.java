@@ -0,0 +1,169 @@
+package catchping;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// GameRecorder가 남긴 기록을 ReplaySink로 다시 흘려보낸다
+// 기록 파일은 메모리 매핑으로 읽고, 라운드 색인으로 원하는 라운드부터 바로 재생할 수 있다.
+// 속도: 1이면 실제 속도, 2면 두 배속, 0 이하이면 기다리지 않고 최대한 빨리 재생한다.
+public class GameReplayer {
+    private final Path file;
+    private final MappedByteBuffer data;
+    private final long startMillis;
+    private final List<long[]> rounds;   // {라운드, 파일 위치, 시각}
+    private volatile double speed = 1.0;
+    private volatile boolean stopped;
+    private int position = GameRecorder.HEADER_BYTES;
+    private final DrawSegment segment = new DrawSegment();
+    private final int coordinateScale;   // 예전(CPR1) 기록의 픽셀 좌표를 논리 좌표로 바꾸는 배수
+
+    public GameReplayer(Path file) throws IOException {
+        this.file = file;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int magic = data.limit() < GameRecorder.HEADER_BYTES ? 0 : data.getInt(0);
+        if (magic != GameRecorder.MAGIC && magic != GameRecorder.MAGIC_V1) {
+            throw new IOException("게임 기록 파일이 아닙니다: " + file);
+        }
+        coordinateScale = magic == GameRecorder.MAGIC_V1 ? CanvasCodec.SUBPIXELS : 1;
+        startMillis = data.getLong(4);
+        rounds = loadIndex();
+    }
+
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    public int getRoundCount() {
+        return rounds.size();
+    }
+
+    public void setSpeed(double speed) {
+        this.speed = speed;
+    }
+
+    public void stop() {
+        stopped = true;
+    }
+
+    // 해당 라운드 시작 위치로 옮긴다. 없는 라운드면 false
+    public boolean seekToRound(int round) {
+        for (long[] entry : rounds) {
+            if (entry[0] == round) {
+                position = (int) entry[1];
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 현재 위치부터 끝까지 (또는 stop()까지) 재생한다. 호출한 스레드에서 기다리며 재생한다
+    public void play(ReplaySink sink) throws InterruptedException {
+        stopped = false;
+        long previousTime = -1;
+        while (!stopped && position + GameRecorder.RECORD_HEADER_BYTES <= data.limit()) {
+            byte type = data.get(position);
+            int time = data.getInt(position + 1);
+            int length = data.getShort(position + 5) & 0xFFFF;
+            int payloadStart = position + GameRecorder.RECORD_HEADER_BYTES;
+            if (payloadStart + length > data.limit()) {
+                break;  // 기록 도중 끊긴 마지막 레코드
+            }
+
+            double currentSpeed = speed;
+            if (previousTime >= 0 && currentSpeed > 0 && time > previousTime) {
+                Thread.sleep((long) ((time - previousTime) / currentSpeed));
+            }
+            previousTime = time;
+
+            ByteBuffer payload = data.duplicate();
+            payload.position(payloadStart);
+            payload.limit(payloadStart + length);
+            dispatch(type, payload, sink);
+            position = payloadStart + length;
+        }
+    }
+
+    private void dispatch(byte type, ByteBuffer payload, ReplaySink sink) {
+        switch (type) {
+            case GameRecorder.JOIN:
+                sink.onJoin(readString(payload));
+                break;
+            case GameRecorder.LEAVE:
+                sink.onLeave(readString(payload));
+                break;
+            case GameRecorder.ROUND_START:
+                int round = payload.getShort();
+                sink.onRoundStart(round, readString(payload), readString(payload));
+                break;
+            case GameRecorder.STROKE:
+                if (segment.readFrom(payload)) {
+                    segment.x1 *= coordinateScale;
+                    segment.y1 *= coordinateScale;
+                    segment.x2 *= coordinateScale;
+                    segment.y2 *= coordinateScale;
+                    sink.onStroke(segment);
+                }
+                break;
+            case GameRecorder.CHAT:
+                sink.onChat(readString(payload), readString(payload));
+                break;
+            case GameRecorder.SCORE:
+                String name = readString(payload);
+                sink.onScore(name, payload.getInt());
+                break;
+            case GameRecorder.CLEAR:
+                sink.onClear();
+                break;
+            case GameRecorder.GAME_END:
+                sink.onGameEnd();
+                break;
+            case GameRecorder.FILL:
+                int x = payload.getShort() * coordinateScale;
+                int y = payload.getShort() * coordinateScale;
+                sink.onFill(x, y, ((payload.get() & 0xFF) << 16) | ((payload.get() & 0xFF) << 8) | (payload.get() & 0xFF));
+                break;
+            default:
+                break;  // 모르는 종류는 건너뛴다 (나중에 추가된 이벤트)
+        }
+    }
+
+    private static String readString(ByteBuffer payload) {
+        int length = payload.getShort() & 0xFFFF;
+        byte[] bytes = new byte[length];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // 색인 파일이 없으면 (서버가 게임 도중 종료된 경우) 기록을 훑어서 다시 만든다
+    private List<long[]> loadIndex() throws IOException {
+        List<long[]> entries = new ArrayList<>();
+        Path indexFile = GameRecorder.indexFile(file);
+        if (Files.exists(indexFile)) {
+            ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+            int count = index.getInt();
+            for (int i = 0; i < count; i++) {
+                entries.add(new long[] {index.getInt(), index.getLong(), index.getInt()});
+            }
+            return entries;
+        }
+        int scan = GameRecorder.HEADER_BYTES;
+        while (scan + GameRecorder.RECORD_HEADER_BYTES <= data.limit()) {
+            int length = data.getShort(scan + 5) & 0xFFFF;
+            if (data.get(scan) == GameRecorder.ROUND_START && scan + GameRecorder.RECORD_HEADER_BYTES + 2 <= data.limit()) {
+                entries.add(new long[] {data.getShort(scan + GameRecorder.RECORD_HEADER_BYTES), scan, data.getInt(scan + 1)});
+            }
+            scan += GameRecorder.RECORD_HEADER_BYTES + length;
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,98 @@
+package catchping;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.imageio.ImageIO;
+
+// 화면 없이 기록을 재생한다 - 이벤트는 텍스트로 출력하고, 라운드가 끝날 때마다 캔버스를 PNG로 저장한다
+public class HeadlessReplaySink implements ReplaySink {
+    private final Path outputDirectory;
+    private final BufferedImage canvas;
+    private final Graphics2D graphics;
+    private int round;
+    private boolean dirty;
+
+    public HeadlessReplaySink(Path outputDirectory) throws IOException {
+        this.outputDirectory = outputDirectory;
+        Files.createDirectories(outputDirectory);
+        canvas = new BufferedImage(Constants.FRAME_WIDTH, Constants.FRAME_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        graphics = canvas.createGraphics();
+        clearCanvas();
+    }
+
+    @Override
+    public void onJoin(String nickname) {
+        System.out.println("[입장] " + nickname);
+    }
+
+    @Override
+    public void onLeave(String nickname) {
+        System.out.println("[퇴장] " + nickname);
+    }
+
+    @Override
+    public void onRoundStart(int round, String drawer, String word) {
+        saveRound();
+        this.round = round;
+        clearCanvas();
+        System.out.println("[라운드 " + round + "] 출제자: " + drawer + ", 제시어: " + word);
+    }
+
+    @Override
+    public void onStroke(DrawSegment segment) {
+        StrokeRenderer.draw(graphics, segment);
+        dirty = true;
+    }
+
+    @Override
+    public void onFill(int x, int y, int rgb) {
+        CanvasFill.fill(canvas, (int) CanvasCodec.toPixel(x), (int) CanvasCodec.toPixel(y), rgb);
+        dirty = true;
+    }
+
+    @Override
+    public void onChat(String nickname, String text) {
+        System.out.println("[채팅] " + nickname + ": " + text);
+    }
+
+    @Override
+    public void onScore(String nickname, int score) {
+        System.out.println("[점수] " + nickname + " = " + score);
+    }
+
+    @Override
+    public void onClear() {
+        System.out.println("[지우기]");
+        clearCanvas();
+    }
+
+    @Override
+    public void onGameEnd() {
+        saveRound();
+        System.out.println("[게임 종료]");
+    }
+
+    private void clearCanvas() {
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        dirty = false;
+    }
+
+    private void saveRound() {
+        if (!dirty) {
+            return;
+        }
+        Path png = outputDirectory.resolve("round-" + round + ".png");
+        try {
+            ImageIO.write(canvas, "png", png.toFile());
+            System.out.println("그림 저장: " + png);
+        } catch (IOException e) {
+            System.out.println("그림 저장 실패: " + e.getMessage());
+        }
+        dirty = false;
+    }
+}
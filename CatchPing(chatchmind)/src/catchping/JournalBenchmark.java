@@ -0,0 +1,173 @@
+package catchping;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.atomic.LongAdder;
+
+// 방 상태 저널 벤치마크 - 그룹 커밋 처리량과 다시 시작할 때의 복구 시간을 잰다
+// 사용법: java catchping.JournalBenchmark [폴더] [방 수] [초] [방마다 초당 이벤트] [commitMillis]
+// 초당 이벤트를 0으로 주면 쉬지 않고 넘긴다 (기록 스레드가 따라가지 못하면 닫기가 길어진다).
+// 폴더 아래 journal-bench 폴더의 저널 파일을 지우고 쓴다. 실제 디스크의 fsync 시간을 재려면 서버와 같은 디스크를 준다.
+public class JournalBenchmark {
+    private static final LongAdder RECORDS = ServerMetrics.counter("journal.records");
+    private static final LongAdder BATCHES = ServerMetrics.counter("journal.batches");
+    private static final LongAdder FSYNC_MICROS = ServerMetrics.counter("journal.fsync.micros");
+    private static final LongAdder SNAPSHOTS = ServerMetrics.counter("journal.snapshots");
+    private static final LongAdder SNAPSHOT_MICROS = ServerMetrics.counter("journal.snapshot.micros");
+    private static final int PLAYERS = 4;
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Paths.get(args.length > 0 ? args[0] : ".").resolve("journal-bench");
+        int rooms = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int rate = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+        long commitMillis = args.length > 4 ? Long.parseLong(args[4]) : Constants.JOURNAL_COMMIT_MILLIS;
+
+        throughput(directory, rooms, seconds, rate, commitMillis);
+        for (int records : new int[] {1000, 10000, 100000}) {
+            recovery(directory, records, commitMillis);
+        }
+    }
+
+    // 방마다 스레드 하나가 게임 스레드처럼 초당 rate개씩 이벤트를 넘긴다 (스냅샷은 기본 설정대로)
+    private static void throughput(Path directory, int rooms, int seconds, int rate, long commitMillis)
+            throws Exception {
+        clean(directory);
+        RoomJournal journal = RoomJournal.open(directory, commitMillis, Constants.JOURNAL_SNAPSHOT_MILLIS,
+            Constants.JOURNAL_SNAPSHOT_RECORDS);
+        long records = RECORDS.sum();
+        long batches = BATCHES.sum();
+        long fsync = FSYNC_MICROS.sum();
+        long snapshots = SNAPSHOTS.sum();
+        long snapshotMicros = SNAPSHOT_MICROS.sum();
+        long interval = rate > 0 ? TimeUnit.SECONDS.toNanos(1) / rate : 0;
+        long until = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(seconds);
+        long[] offered = new long[rooms];
+        List<Thread> threads = new ArrayList<>();
+        for (int r = 0; r < rooms; r++) {
+            final int room = r;
+            Thread thread = new Thread(() -> offered[room] = play(journal, "bench-" + room, interval, until), "bench-" + r);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long start = System.nanoTime();
+        journal.close();
+        long closeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        records = RECORDS.sum() - records;
+        batches = BATCHES.sum() - batches;
+        fsync = FSYNC_MICROS.sum() - fsync;
+        snapshots = SNAPSHOTS.sum() - snapshots;
+        snapshotMicros = SNAPSHOT_MICROS.sum() - snapshotMicros;
+        System.out.println("처리량: 방 " + rooms + "개, " + seconds + "초, 방마다 초당 " + rate + "개, commitMillis "
+            + commitMillis);
+        System.out.println("  넘긴 이벤트 " + Arrays.stream(offered).sum() + "개, 기록 " + records + "개 ("
+            + records / seconds + "개/초)");
+        System.out.println("  fsync " + batches + "번, 한 번에 평균 " + (batches > 0 ? records / batches : 0) + "개, 평균 "
+            + (batches > 0 ? fsync / batches : 0) + "us");
+        System.out.println("  스냅샷 " + snapshots + "번, 평균 " + (snapshots > 0 ? snapshotMicros / snapshots : 0)
+            + "us, 닫기 " + closeMillis + "ms");
+    }
+
+    // 게임을 되풀이한다 - 입장, 준비, 게임 시작, 라운드마다 출제와 점수, 게임 끝
+    private static long play(RoomJournal journal, String room, long interval, long until) {
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < Constants.TOTAL_ROUNDS; i++) {
+            words.add("제시어" + i);
+        }
+        long count = 0;
+        long token = room.hashCode();
+        for (int p = 0; p < PLAYERS; p++) {
+            journal.join(room, room + "-" + p, ++token);
+            count++;
+        }
+        int[] scores = new int[PLAYERS];
+        long next = System.nanoTime();
+        while (System.currentTimeMillis() < until) {
+            for (int p = 0; p < PLAYERS; p++) {
+                journal.ready(room, room + "-" + p, true);
+                next = pace(next, interval);
+            }
+            journal.gameStart(room, words);
+            next = pace(next, interval);
+            count += PLAYERS + 1;
+            for (int round = 1; round <= words.size(); round++) {
+                int drawer = round % PLAYERS;
+                journal.roundStart(room, round, room + "-" + drawer, words.get(round - 1), until);
+                next = pace(next, interval);
+                int guesser = (drawer + 1) % PLAYERS;
+                scores[guesser] += 10;
+                scores[drawer] += 5;
+                journal.score(room, room + "-" + guesser, scores[guesser]);
+                next = pace(next, interval);
+                journal.score(room, room + "-" + drawer, scores[drawer]);
+                next = pace(next, interval);
+                count += 3;
+            }
+            journal.gameEnd(room);
+            next = pace(next, interval);
+            Arrays.fill(scores, 0);
+            count++;
+        }
+        return count;
+    }
+
+    // 다음 이벤트 시각까지 기다린다 (늦었으면 바로 넘긴다)
+    private static long pace(long next, long interval) {
+        next += interval;
+        long wait = next - System.nanoTime();
+        if (wait > 0) {
+            LockSupport.parkNanos(wait);
+        }
+        return next;
+    }
+
+    // 스냅샷 없이 로그 records개를 남기고 다시 열기, 스냅샷을 쓴 뒤 다시 열기를 잰다
+    private static void recovery(Path directory, int records, long commitMillis) throws Exception {
+        clean(directory);
+        RoomJournal journal = RoomJournal.open(directory, commitMillis, Long.MAX_VALUE / 2, Integer.MAX_VALUE);
+        String room = "recover";
+        for (int p = 0; p < PLAYERS; p++) {
+            journal.join(room, room + "-" + p, p + 1);
+        }
+        for (int i = PLAYERS; i < records; i++) {
+            journal.score(room, room + "-" + (i % PLAYERS), i);
+        }
+        // 닫으면 스냅샷을 쓰므로 로그만 남기려면 그 전에 복사해둔다
+        Thread.sleep(200 + commitMillis);
+        Path copy = directory.resolveSibling("journal-bench-log");
+        clean(copy);
+        Files.copy(directory.resolve(RoomJournal.LOG_FILE), copy.resolve(RoomJournal.LOG_FILE));
+        journal.close();
+        long logBytes = Files.size(copy.resolve(RoomJournal.LOG_FILE));
+        System.out.println("복구: 이벤트 " + records + "개 (로그 " + logBytes / 1024 + "KB)");
+        System.out.println("  로그만: " + reopen(copy) + "ms");
+        System.out.println("  스냅샷: " + reopen(directory) + "ms");
+        clean(copy);
+        Files.delete(copy);
+    }
+
+    private static long reopen(Path directory) throws IOException {
+        long start = System.nanoTime();
+        RoomJournal journal = RoomJournal.open(directory, 0, Long.MAX_VALUE / 2, Integer.MAX_VALUE);
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        journal.close();
+        return millis;
+    }
+
+    private static void clean(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        for (String name : new String[] {RoomJournal.LOG_FILE, RoomJournal.SNAPSHOT_FILE}) {
+            Files.deleteIfExists(directory.resolve(name));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package catchping;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// 서버 과부하 감지기
+// 공용 스케줄러에 주기 작업을 걸어 실제 실행이 얼마나 늦어지는지(이벤트 루프 지연)와 힙 사용률을 측정한다.
+public class LoadMonitor {
+    private static final long PROBE_INTERVAL_MILLIS = 100;
+
+    private final long shedLagMillis;
+    private final double shedHeapRatio;
+    private volatile long lagMillis;
+    private long expectedNanos;
+
+    public LoadMonitor(long shedLagMillis, double shedHeapRatio) {
+        this.shedLagMillis = shedLagMillis;
+        this.shedHeapRatio = shedHeapRatio;
+    }
+
+    public void start(ScheduledExecutorService scheduler) {
+        expectedNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(PROBE_INTERVAL_MILLIS);
+        scheduler.scheduleWithFixedDelay(this::probe, PROBE_INTERVAL_MILLIS, PROBE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        ServerMetrics.gauge("load.lag.ms", () -> lagMillis);
+        ServerMetrics.gauge("load.heap.percent", () -> Math.round(heapUsage() * 100));
+    }
+
+    private void probe() {
+        long now = System.nanoTime();
+        long lag = Math.max(0, TimeUnit.NANOSECONDS.toMillis(now - expectedNanos));
+        // 순간 튐에 흔들리지 않도록 지수 평균을 쓴다
+        lagMillis = (lagMillis * 3 + lag) / 4;
+        expectedNanos = now + TimeUnit.MILLISECONDS.toNanos(PROBE_INTERVAL_MILLIS);
+    }
+
+    public double heapUsage() {
+        Runtime runtime = Runtime.getRuntime();
+        return (double) (runtime.totalMemory() - runtime.freeMemory()) / runtime.maxMemory();
+    }
+
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    // 새 연결을 받지 말아야 할 정도로 부하가 큰지
+    public boolean isOverloaded() {
+        return lagMillis > shedLagMillis || heapUsage() > shedHeapRatio;
+    }
+}
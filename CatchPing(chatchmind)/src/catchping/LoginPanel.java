@@ -11,12 +11,16 @@ import java.net.URL;
 
 public class LoginPanel extends JPanel {
     private JTextField nickNameField;
+    private JTextField roomField;
     private LoginListener loginListener;
     private JButton loginButton;
-    private Image backgroundImage;
+    private JCheckBox spectatorCheckBox;
+    private JCheckBox matchCheckBox;
+    private static final String LOGIN_BACKGROUND = "images/login.jpg";
 
     public interface LoginListener {
-        void onLoginRequest(String nickname);
+        // 자동 매칭이면 room은 null
+        void onLoginRequest(String nickname, String room, boolean spectator);
     }
 
     public LoginPanel() {
@@ -26,23 +30,24 @@ public class LoginPanel extends JPanel {
         initializeUI();
     }
 
-    private void initializeUI() {
-        // 이미지 로드 시, 경로가 정확한지 확인하세요.
-        backgroundImage = new ImageIcon("images/login.jpg").getImage();  // 올바른 경로 확인
+    // 클라이언트 시작 직후 배경 이미지를 백그라운드에서 미리 디코딩해둔다
+    public static void preloadAssets() {
+        AssetCache.getInstance().preload(LOGIN_BACKGROUND);   // 크기 조정은 패널 크기를 알고 나서 한다
+    }
 
+    private void initializeUI() {
         // 그라데이션 배경을 위한 패널
         JPanel contentPanel = new JPanel() {
+            // 배경은 패널 크기에 맞춰 미리 줄여둔 이미지를 쓴다
+            private final BackgroundPainter background = new BackgroundPainter(LOGIN_BACKGROUND, this);
+
             @Override
             protected void paintComponent(Graphics g) {
                 super.paintComponent(g);  // 항상 첫 번째 줄에 호출해야 합니다.
-                Graphics2D g2d = (Graphics2D) g;
-                g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
 
                 // 배경 이미지 그리기
-                if (backgroundImage != null) {
-                    int width = getWidth();
-                    int height = getHeight();
-                    g2d.drawImage(backgroundImage, 0, 0, width, height, this);
+                if (background.paint(g)) {
+                    Client.markFirstFrame();
                 }
             }
         };
@@ -66,10 +71,35 @@ public class LoginPanel extends JPanel {
         gbc.insets = new Insets(0, 10, 20, 10);
         contentPanel.add(nickNameField, gbc);
         
+        // 방 이름 - 같은 이름을 입력한 사람끼리 같은 방에서 게임한다 (비워두면 기본 방)
+        JLabel roomLabel = createLabel("방 이름", Constants.DEFAULT_FONT, Font.BOLD, Constants.NORMAL_FONT_SIZE);
+        gbc.gridy = 4;
+        gbc.insets = new Insets(0, 10, 5, 10);
+        contentPanel.add(roomLabel, gbc);
+
+        roomField = new JTextField(Constants.DEFAULT_ROOM, 15);
+        roomField.setPreferredSize(new Dimension(200, 35));
+        styleTextField(roomField);
+        gbc.gridy = 5;
+        gbc.insets = new Insets(0, 10, 20, 10);
+        contentPanel.add(roomField, gbc);
+
+        // 자동 매칭 - 방을 고르지 않고 기다리는 사람끼리 서버가 방을 만들어준다
+        matchCheckBox = createCheckBox("자동 매칭");
+        gbc.gridy = 6;
+        gbc.insets = new Insets(0, 10, 5, 10);
+        contentPanel.add(matchCheckBox, gbc);
+
+        // 관전 입장 - 플레이어 자리를 차지하지 않고 그림과 채팅만 본다
+        spectatorCheckBox = createCheckBox("관전자로 입장");
+        gbc.gridy = 7;
+        gbc.insets = new Insets(0, 10, 10, 10);
+        contentPanel.add(spectatorCheckBox, gbc);
+
         // 로그인 버튼
         loginButton = new JButton("게임 입장");
         styleButton(loginButton);
-        gbc.gridy = 4;
+        gbc.gridy = 8;
         contentPanel.add(loginButton, gbc);
 
         // 이벤트 리스너 설정
@@ -81,15 +111,19 @@ public class LoginPanel extends JPanel {
 
     private void setupEventListeners() {
         loginButton.addActionListener(e -> processLogin());
+        // 자동 매칭은 방 이름과 관전을 쓰지 않는다
+        matchCheckBox.addItemListener(e -> updateMatchControls());
 
-        nickNameField.addKeyListener(new KeyAdapter() {
+        KeyAdapter enterToLogin = new KeyAdapter() {
             @Override
             public void keyPressed(KeyEvent e) {
                 if (e.getKeyCode() == KeyEvent.VK_ENTER) {
                     processLogin();
                 }
             }
-        });
+        };
+        nickNameField.addKeyListener(enterToLogin);
+        roomField.addKeyListener(enterToLogin);
     }
 
     private void processLogin() {
@@ -104,8 +138,27 @@ public class LoginPanel extends JPanel {
             return;
         }
 
+        if (nickname.startsWith("-")) {
+            showError("닉네임은 '-'로 시작할 수 없습니다.");
+            return;
+        }
+
+        if (matchCheckBox.isSelected()) {
+            if (loginListener != null) {
+                loginListener.onLoginRequest(nickname, null, false);
+            }
+            return;
+        }
+
+        String room = roomField.getText().trim();
+        if (room.length() > Constants.MAX_ROOM_NAME_LENGTH) {
+            showError("방 이름은 " + Constants.MAX_ROOM_NAME_LENGTH + "자 이내로 입력해주세요.");
+            return;
+        }
+
         if (loginListener != null) {
-            loginListener.onLoginRequest(nickname);
+            loginListener.onLoginRequest(nickname, room.isEmpty() ? Constants.DEFAULT_ROOM : room,
+                spectatorCheckBox.isSelected());
         }
     }
 
@@ -118,6 +171,20 @@ public class LoginPanel extends JPanel {
         );
     }
 
+    private JCheckBox createCheckBox(String text) {
+        JCheckBox checkBox = new JCheckBox(text);
+        checkBox.setFont(new Font(Constants.DEFAULT_FONT, Font.BOLD, Constants.NORMAL_FONT_SIZE));
+        checkBox.setForeground(Constants.TEXT_COLOR);
+        checkBox.setOpaque(false);
+        return checkBox;
+    }
+
+    private void updateMatchControls() {
+        boolean manual = loginButton.isEnabled() && !matchCheckBox.isSelected();
+        roomField.setEnabled(manual);
+        spectatorCheckBox.setEnabled(manual);
+    }
+
     private JLabel createLabel(String text, String fontName, int fontStyle, int fontSize) {
         JLabel label = new JLabel(text);
         label.setFont(new Font(fontName, fontStyle, fontSize));
@@ -166,5 +233,7 @@ public class LoginPanel extends JPanel {
     public void setLoginEnabled(boolean enabled) {
         loginButton.setEnabled(enabled);
         nickNameField.setEnabled(enabled);
+        matchCheckBox.setEnabled(enabled);
+        updateMatchControls();
     }
 }
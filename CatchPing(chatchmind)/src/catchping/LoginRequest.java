@@ -0,0 +1,57 @@
+package catchping;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// 로그인 프레임 - LOGIN//닉네임//key=value,key=value
+// 옵션으로 압축 방식 같은 연결 설정을 협상한다. 예전 클라이언트는 닉네임 한 줄만 보낸다.
+public class LoginRequest {
+    public final String nickname;
+    public final boolean legacy;   // 닉네임만 보낸 예전 클라이언트 - LOGIN_OK를 보내지 않는다
+    private final Map<String, String> options;
+
+    private LoginRequest(String nickname, boolean legacy, Map<String, String> options) {
+        this.nickname = nickname;
+        this.legacy = legacy;
+        this.options = options;
+    }
+
+    public static LoginRequest parse(String frame) {
+        if (!frame.startsWith(Constants.CMD_LOGIN + Constants.DELIMITER)) {
+            return new LoginRequest(frame, true, new LinkedHashMap<>());
+        }
+        String[] parts = frame.split(Constants.DELIMITER);
+        return new LoginRequest(parts.length > 1 ? parts[1] : "", false,
+            parseOptions(parts.length > 2 ? parts[2] : ""));
+    }
+
+    // key=value,key=value 형식 (LOGIN_OK의 응답 옵션도 같은 형식)
+    public static Map<String, String> parseOptions(String text) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String option : text.split(",")) {
+            int eq = option.indexOf('=');
+            if (eq > 0) {
+                options.put(option.substring(0, eq).trim(), option.substring(eq + 1).trim());
+            }
+        }
+        return options;
+    }
+
+    public static String encode(String nickname, Map<String, String> options) {
+        return Constants.CMD_LOGIN + Constants.DELIMITER + nickname + Constants.DELIMITER + encodeOptions(options);
+    }
+
+    public static String encodeOptions(Map<String, String> options) {
+        StringBuilder sb = new StringBuilder();
+        String separator = "";
+        for (Map.Entry<String, String> option : options.entrySet()) {
+            sb.append(separator).append(option.getKey()).append('=').append(option.getValue());
+            separator = ",";
+        }
+        return sb.toString();
+    }
+
+    public String option(String key) {
+        return options.get(key);
+    }
+}
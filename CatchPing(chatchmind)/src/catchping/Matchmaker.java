@@ -0,0 +1,248 @@
+package catchping;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+// 자동 매칭 대기열 - 기다리는 플레이어를 실력 구간별 줄에 세워두고 틱마다 방 단위로 묶는다
+// 한 구간에 방을 가득 채울 인원이 모이면 바로 묶고, 맨 앞 사람이 fillWaitMillis 넘게 기다렸으면 최소 인원만으로도 묶는다.
+// 오래 기다릴수록 widenMillis마다 옆 구간을 하나씩 더 넣어서 찾는다 (실력 차이보다 대기 시간을 우선).
+// 틱 한 번에 살펴보는 표는 budget개까지만 - 대기자가 아주 많아도 틱 시간이 늘지 않고, 다음 틱은 멈춘 구간 다음부터 본다.
+// 취소는 표에 표시만 해두고 줄 앞에 왔을 때 버린다.
+public class Matchmaker<T> {
+    private static final LongAdder GROUPS = ServerMetrics.counter("matchmaking.groups");
+    private static final LongAdder MATCHED = ServerMetrics.counter("matchmaking.matched");
+    private static final LongAdder ABANDONED = ServerMetrics.counter("matchmaking.abandoned");
+    private static final LongAdder TICK_MICROS = ServerMetrics.counter("matchmaking.tick.micros");
+    private static final int MAX_REACH = 16;   // 넓혀서 찾는 최대 구간 수 (한쪽)
+    // 대기 시간 분포의 구간 상한 (ms) - 마지막 구간은 그보다 긴 대기 전부
+    private static final long[] WAIT_BOUNDS_MILLIS =
+        {250, 500, 1000, 2000, 5000, 10000, 20000, 30000, 60000, 120000, 300000, 600000};
+
+    public interface SkillProvider<T> {
+        int skillOf(T player);
+    }
+
+    private static final class Ticket<T> {
+        final T player;
+        final int band;
+        final long enqueuedAt;
+        boolean cancelled;
+
+        Ticket(T player, int band, long enqueuedAt) {
+            this.player = player;
+            this.band = band;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    private static final class Band<T> {
+        final ArrayDeque<Ticket<T>> queue = new ArrayDeque<>();
+        int live;   // 취소되지 않은 표 수
+    }
+
+    private final SkillProvider<T> skills;
+    private final Predicate<T> abandoned;      // 기다리다 끊긴 연결
+    private final int minPlayers;
+    private final int maxPlayers;
+    private final int bandWidth;
+    private final long fillWaitMillis;
+    private final long widenMillis;
+    private final int budget;
+    private final TreeMap<Integer, Band<T>> bands = new TreeMap<>();
+    private final Map<T, Ticket<T>> tickets = new HashMap<>();
+    private final long[] waitCounts = new long[WAIT_BOUNDS_MILLIS.length];
+    private long matchedCount;
+    private int cursor = Integer.MIN_VALUE;    // 지난 틱에서 마지막으로 본 구간
+
+    public Matchmaker(SkillProvider<T> skills, Predicate<T> abandoned, int minPlayers, int maxPlayers,
+                      int bandWidth, long fillWaitMillis, long widenMillis, int budget) {
+        this.skills = skills;
+        this.abandoned = abandoned;
+        this.minPlayers = minPlayers;
+        this.maxPlayers = Math.max(minPlayers, maxPlayers);
+        this.bandWidth = Math.max(1, bandWidth);
+        this.fillWaitMillis = fillWaitMillis;
+        this.widenMillis = Math.max(1, widenMillis);
+        this.budget = Math.max(this.maxPlayers, budget);
+    }
+
+    // 줄에 세우고 지금 기다리는 인원을 돌려준다
+    public synchronized int enqueue(T player, long now) {
+        if (!tickets.containsKey(player)) {
+            Ticket<T> ticket = new Ticket<>(player, Math.floorDiv(skills.skillOf(player), bandWidth), now);
+            Band<T> band = bands.get(ticket.band);
+            if (band == null) {
+                band = new Band<>();
+                bands.put(ticket.band, band);
+            }
+            band.queue.addLast(ticket);
+            band.live++;
+            tickets.put(player, ticket);
+        }
+        return tickets.size();
+    }
+
+    public synchronized void cancel(T player) {
+        Ticket<T> ticket = tickets.remove(player);
+        if (ticket != null) {
+            ticket.cancelled = true;
+            bands.get(ticket.band).live--;
+        }
+    }
+
+    // 기다리는 플레이어 (복사본 - 하트비트가 돌면서 닫아도 된다)
+    public synchronized List<T> players() {
+        return new ArrayList<>(tickets.keySet());
+    }
+
+    public synchronized int size() {
+        return tickets.size();
+    }
+
+    // 한 번의 매칭 - 방 하나가 될 플레이어 묶음을 최대 maxGroups개 돌려준다 (먼저 기다린 사람이 앞)
+    public synchronized List<List<T>> tick(long now, int maxGroups) {
+        long start = System.nanoTime();
+        List<List<T>> groups = new ArrayList<>();
+        int examined = 0;
+        int remaining = bands.size();
+        while (remaining-- > 0 && examined < budget && groups.size() < maxGroups) {
+            Map.Entry<Integer, Band<T>> entry = bands.higherEntry(cursor);
+            if (entry == null) {
+                entry = bands.firstEntry();
+                if (entry == null) {
+                    break;
+                }
+            }
+            cursor = entry.getKey();
+            Band<T> band = entry.getValue();
+            examined += purgeHead(band);
+            if (band.live == 0) {
+                bands.remove(cursor);   // 남은 표는 모두 취소된 것
+                continue;
+            }
+            while (band.live >= maxPlayers && groups.size() < maxGroups && examined < budget) {
+                examined += maxPlayers;
+                addGroup(groups, collect(cursor, 0, maxPlayers), now);
+            }
+            if (band.live == 0 || groups.size() >= maxGroups) {
+                continue;
+            }
+            long waited = now - band.queue.peekFirst().enqueuedAt;
+            int reach = (int) Math.min(MAX_REACH, waited / widenMillis);
+            int available = 0;
+            for (Band<T> near : bands.subMap(cursor - reach, true, cursor + reach, true).values()) {
+                available += near.live;
+                examined++;
+            }
+            if (available >= maxPlayers || (waited >= fillWaitMillis && available >= minPlayers)) {
+                examined += Math.min(available, maxPlayers);
+                addGroup(groups, collect(cursor, reach, Math.min(available, maxPlayers)), now);
+            }
+        }
+        TICK_MICROS.add(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        return groups;
+    }
+
+    // 끊긴 연결이 섞여 최소 인원이 안 되면 남은 사람을 원래 자리(줄 맨 앞)로 돌려놓는다
+    private void addGroup(List<List<T>> groups, List<Ticket<T>> group, long now) {
+        if (group.size() < minPlayers) {
+            for (int i = group.size() - 1; i >= 0; i--) {
+                Ticket<T> ticket = group.get(i);
+                Band<T> band = bands.get(ticket.band);
+                if (band == null) {
+                    band = new Band<>();
+                    bands.put(ticket.band, band);
+                }
+                band.queue.addFirst(ticket);
+                band.live++;
+                tickets.put(ticket.player, ticket);
+            }
+            return;
+        }
+        List<T> players = new ArrayList<>(group.size());
+        for (Ticket<T> ticket : group) {
+            players.add(ticket.player);
+            recordWait(now - ticket.enqueuedAt);
+        }
+        groups.add(players);
+        GROUPS.increment();
+        MATCHED.add(players.size());
+    }
+
+    // 가운데 구간부터, 그다음 가까운 구간 순서로 앞에서부터 꺼낸다
+    private List<Ticket<T>> collect(int center, int reach, int count) {
+        List<Ticket<T>> group = new ArrayList<>(count);
+        takeFrom(center, group, count);
+        for (int distance = 1; distance <= reach && group.size() < count; distance++) {
+            takeFrom(center - distance, group, count);
+            takeFrom(center + distance, group, count);
+        }
+        return group;
+    }
+
+    private void takeFrom(int key, List<Ticket<T>> group, int count) {
+        Band<T> band = bands.get(key);
+        while (band != null && group.size() < count && band.live > 0) {
+            Ticket<T> ticket = band.queue.pollFirst();
+            if (ticket.cancelled) {
+                continue;
+            }
+            band.live--;
+            tickets.remove(ticket.player);
+            if (abandoned.test(ticket.player)) {
+                ABANDONED.increment();
+                continue;
+            }
+            group.add(ticket);
+        }
+    }
+
+    // 줄 앞의 취소된 표와 끊긴 연결을 버린다. 살펴본 표 수를 돌려준다
+    private int purgeHead(Band<T> band) {
+        int purged = 0;
+        Ticket<T> head;
+        while ((head = band.queue.peekFirst()) != null) {
+            if (head.cancelled) {
+                band.queue.pollFirst();
+            } else if (abandoned.test(head.player)) {
+                band.queue.pollFirst();
+                band.live--;
+                tickets.remove(head.player);
+                ABANDONED.increment();
+            } else {
+                break;
+            }
+            purged++;
+        }
+        return purged;
+    }
+
+    private void recordWait(long millis) {
+        int i = 0;
+        while (i < WAIT_BOUNDS_MILLIS.length - 1 && millis > WAIT_BOUNDS_MILLIS[i]) {
+            i++;
+        }
+        waitCounts[i]++;
+        matchedCount++;
+    }
+
+    // 매칭된 플레이어의 대기 시간 백분위 (ms, 해당 구간의 상한). 아직 없으면 0
+    public synchronized long waitPercentile(double percentile) {
+        long target = (long) Math.ceil(matchedCount * percentile);
+        long seen = 0;
+        for (int i = 0; i < waitCounts.length; i++) {
+            seen += waitCounts[i];
+            if (seen >= target && seen > 0) {
+                return WAIT_BOUNDS_MILLIS[i];
+            }
+        }
+        return 0;
+    }
+}
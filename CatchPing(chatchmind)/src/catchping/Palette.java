@@ -0,0 +1,44 @@
+package catchping;
+
+// 그리기 팔레트 (펜 크기, 색상)
+// 서버도 DRAW 검증에 사용하므로 java.awt 클래스를 참조하지 않고 RGB 정수로 보관한다.
+public class Palette {
+    public static final int[] PEN_SIZES = {10, 20, 30};        // 펜 크기 배열
+    public static final int[] ERASER_SIZES = {10, 20, 30};     // 지우개 크기 배열
+    public static final int ERASER_RGB = 0xFFFFFF;             // 지우개는 흰색으로 그린다
+    public static final int[] COLORS_RGB = {
+        0x000000,  // 검정
+        0xFF0000,  // 빨강
+        0x0000FF,  // 파랑
+        0x000080,  // 남색 (RGB: 0, 0, 128)
+        0x00FF00,  // 초록
+        0xFFFF00,  // 노랑
+        0xFFC800,  // 주황 (Color.ORANGE)
+        0xFFAFAF,  // 분홍 (Color.PINK)
+        0xFF00FF   // 자홍 (Color.MAGENTA)
+    };
+
+    private Palette() {
+    }
+
+    public static boolean isAllowedSize(int size, boolean eraser) {
+        for (int allowed : eraser ? ERASER_SIZES : PEN_SIZES) {
+            if (size == allowed) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static boolean isAllowedColor(int rgb, boolean eraser) {
+        if (eraser) {
+            return rgb == ERASER_RGB;
+        }
+        for (int allowed : COLORS_RGB) {
+            if (rgb == allowed) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
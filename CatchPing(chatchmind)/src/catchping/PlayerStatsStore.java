@@ -0,0 +1,299 @@
+package catchping;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// 닉네임별 누적 전적을 파일에 남기는 저장소
+// 게임 스레드는 메모리의 전적만 바꾸고 바뀐 닉네임을 표시해둔다. 기록 스레드가 flushMillis마다 모아서 한 번에 쓰고 fsync한다.
+// 파일은 덧붙이기 전용 - 닉네임의 최신 전적 전체를 레코드 하나로 쓰고, 읽을 때는 뒤의 것이 이긴다.
+// 레코드: [이름 길이 2B][이름][게임 4B][우승 4B][점수 8B][정답 4B][정답까지 걸린 시간 합 8B]
+// 레코드가 닉네임 수의 몇 배로 늘어나면 최신 것만 새 파일에 다시 쓰고 바꿔치기한다.
+public class PlayerStatsStore {
+    private static final LongAdder WRITES = ServerMetrics.counter("stats.records.written");
+    private static final LongAdder BATCHES = ServerMetrics.counter("stats.batches");
+    private static final LongAdder FSYNC_MICROS = ServerMetrics.counter("stats.fsync.micros");
+    private static final LongAdder COMPACTIONS = ServerMetrics.counter("stats.compactions");
+    private static final int COMPACT_FACTOR = 4;        // 레코드가 닉네임 수의 이만큼 배가 되면 다시 쓴다
+    private static final int COMPACT_MIN_RECORDS = 1024;
+
+    // 한 닉네임의 전적 (바뀌지 않는다 - 갱신하면 새 객체)
+    public static final class PlayerStats {
+        public final String nickname;
+        public final int gamesPlayed;
+        public final int wins;
+        public final long points;
+        public final int correctGuesses;
+        public final long guessMillis;
+
+        PlayerStats(String nickname, int gamesPlayed, int wins, long points, int correctGuesses, long guessMillis) {
+            this.nickname = nickname;
+            this.gamesPlayed = gamesPlayed;
+            this.wins = wins;
+            this.points = points;
+            this.correctGuesses = correctGuesses;
+            this.guessMillis = guessMillis;
+        }
+
+        // 게임당 평균 점수 (매칭 실력 구간에 쓴다)
+        public int averagePoints() {
+            return gamesPlayed == 0 ? 0 : (int) (points / gamesPlayed);
+        }
+
+        // 정답까지 걸린 평균 시간 (ms), 맞춘 적이 없으면 0
+        public long averageGuessMillis() {
+            return correctGuesses == 0 ? 0 : guessMillis / correctGuesses;
+        }
+
+        void writeTo(ByteBuffer buffer) {
+            byte[] name = nickname.getBytes(StandardCharsets.UTF_8);
+            buffer.putShort((short) name.length).put(name);
+            buffer.putInt(gamesPlayed).putInt(wins).putLong(points).putInt(correctGuesses).putLong(guessMillis);
+        }
+
+        int encodedLength() {
+            return 2 + nickname.getBytes(StandardCharsets.UTF_8).length + 28;
+        }
+
+        // 끝까지 쓰이지 않은 레코드면 null
+        static PlayerStats readFrom(ByteBuffer buffer) {
+            if (buffer.remaining() < 2) {
+                return null;
+            }
+            int length = buffer.getShort() & 0xFFFF;
+            if (buffer.remaining() < length + 28) {
+                return null;
+            }
+            byte[] name = new byte[length];
+            buffer.get(name);
+            return new PlayerStats(new String(name, StandardCharsets.UTF_8),
+                buffer.getInt(), buffer.getInt(), buffer.getLong(), buffer.getInt(), buffer.getLong());
+        }
+    }
+
+    // 누적 점수 순위 (같으면 우승 수, 그다음 닉네임)
+    private static final Comparator<PlayerStats> RANKING =
+        Comparator.<PlayerStats>comparingLong(stats -> -stats.points)
+            .thenComparingInt(stats -> -stats.wins)
+            .thenComparing(stats -> stats.nickname);
+
+    private final Path file;
+    private final long flushMillis;
+    private final int leaderboardSize;
+    private final Map<String, PlayerStats> players = new HashMap<>();
+    private final TreeSet<PlayerStats> ranking = new TreeSet<>(RANKING);
+    private final Set<String> pending = new LinkedHashSet<>();   // 아직 파일에 쓰지 않은 닉네임
+    private FileChannel channel;       // 기록 스레드에서만 쓴다 (열기와 닫기 제외)
+    private long recordsInFile;
+    private boolean closed;
+    private final Thread writer;
+
+    private PlayerStatsStore(Path file, long flushMillis, int leaderboardSize) {
+        this.file = file;
+        this.flushMillis = flushMillis;
+        this.leaderboardSize = leaderboardSize;
+        this.writer = new Thread(this::writeLoop, "stats-writer");
+        writer.setDaemon(true);
+    }
+
+    // 파일을 읽어 전적을 복원하고 기록 스레드를 띄운다
+    public static PlayerStatsStore open(Path file, long flushMillis, int leaderboardSize) throws IOException {
+        PlayerStatsStore store = new PlayerStatsStore(file, flushMillis, leaderboardSize);
+        store.load();
+        store.writer.start();
+        ServerMetrics.gauge("stats.players", store::playerCount);
+        ServerMetrics.gauge("stats.pending", store::pendingCount);
+        return store;
+    }
+
+    private void load() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        if (Files.exists(file)) {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            PlayerStats stats;
+            while ((stats = PlayerStats.readFrom(buffer)) != null) {
+                players.put(stats.nickname, stats);
+                recordsInFile++;
+            }
+            if (buffer.hasRemaining()) {
+                // 쓰다가 멈춘 마지막 레코드 - 버리고 다시 쓴다
+                System.out.println("전적 파일 끝의 불완전한 레코드를 버립니다: " + file);
+                recordsInFile = Long.MAX_VALUE;
+            }
+        }
+        ranking.addAll(players.values());
+        if (needsCompaction()) {
+            compact(new ArrayList<>(players.values()));
+        } else {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        }
+        System.out.println("전적 " + players.size() + "명을 읽었습니다: " + file.toAbsolutePath());
+    }
+
+    // 한 게임의 결과 - 게임 스레드에서 부르고 디스크를 기다리지 않는다
+    public synchronized void recordGame(String nickname, int points, boolean won, int correctGuesses, long guessMillis) {
+        PlayerStats old = players.get(nickname);
+        PlayerStats updated = old == null
+            ? new PlayerStats(nickname, 1, won ? 1 : 0, points, correctGuesses, guessMillis)
+            : new PlayerStats(nickname, old.gamesPlayed + 1, old.wins + (won ? 1 : 0), old.points + points,
+                old.correctGuesses + correctGuesses, old.guessMillis + guessMillis);
+        if (old != null) {
+            ranking.remove(old);
+        }
+        ranking.add(updated);
+        players.put(nickname, updated);
+        pending.add(nickname);
+    }
+
+    public synchronized PlayerStats get(String nickname) {
+        return players.get(nickname);
+    }
+
+    // 누적 점수 상위 leaderboardSize명 - 순위 색인의 앞에서부터 읽기만 한다
+    public synchronized List<PlayerStats> leaderboard() {
+        List<PlayerStats> top = new ArrayList<>(Math.min(leaderboardSize, ranking.size()));
+        Iterator<PlayerStats> it = ranking.iterator();
+        while (top.size() < leaderboardSize && it.hasNext()) {
+            top.add(it.next());
+        }
+        return top;
+    }
+
+    private synchronized long playerCount() {
+        return players.size();
+    }
+
+    private synchronized long pendingCount() {
+        return pending.size();
+    }
+
+    // 남은 변경을 모두 쓰고 닫는다 (서버 종료 훅)
+    // 기록 스레드를 인터럽트하면 쓰던 채널이 닫히므로 깨우기만 한다
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        try {
+            boolean last = false;
+            while (!last) {
+                synchronized (this) {
+                    if (!closed) {
+                        wait(flushMillis);
+                    }
+                    last = closed;  // 닫혔으면 남은 것을 쓰고 끝낸다
+                }
+                flush();
+            }
+            channel.close();
+        } catch (IOException e) {
+            System.out.println("전적 저장 에러: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // 바뀐 닉네임의 최신 전적을 모아서 한 번에 쓰고 fsync한다
+    private void flush() throws IOException {
+        List<PlayerStats> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(pending.size());
+            for (String nickname : pending) {
+                batch.add(players.get(nickname));
+            }
+            pending.clear();
+        }
+        int length = 0;
+        for (PlayerStats stats : batch) {
+            length += stats.encodedLength();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        for (PlayerStats stats : batch) {
+            stats.writeTo(buffer);
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        long start = System.nanoTime();
+        channel.force(false);
+        FSYNC_MICROS.add(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        WRITES.add(batch.size());
+        BATCHES.increment();
+        recordsInFile += batch.size();
+        List<PlayerStats> all = null;
+        synchronized (this) {
+            if (needsCompaction()) {
+                all = new ArrayList<>(players.values());
+            }
+        }
+        if (all != null) {
+            channel.close();
+            compact(all);
+        }
+    }
+
+    private synchronized boolean needsCompaction() {
+        return recordsInFile > Math.max(COMPACT_MIN_RECORDS, (long) players.size() * COMPACT_FACTOR);
+    }
+
+    // 최신 전적만 임시 파일에 쓰고 fsync한 뒤 원래 파일과 바꾼다 - 중간에 멈춰도 원래 파일은 그대로다
+    private void compact(Collection<PlayerStats> all) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            for (PlayerStats stats : all) {
+                if (buffer.remaining() < stats.encodedLength()) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                    buffer.clear();
+                }
+                stats.writeTo(buffer);
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(false);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        recordsInFile = all.size();
+        COMPACTIONS.increment();
+    }
+}
@@ -0,0 +1,25 @@
+package catchping;
+
+// 게임 기록을 재생받는 쪽 (GUIView 화면 또는 헤드리스 렌더러)
+// 재생 스레드에서 호출된다. 화면에 그리는 구현은 직접 EDT로 넘겨야 한다.
+public interface ReplaySink {
+    void onJoin(String nickname);
+
+    void onLeave(String nickname);
+
+    void onRoundStart(int round, String drawer, String word);
+
+    // segment는 재생기가 재사용하므로 보관하려면 복사해야 한다
+    void onStroke(DrawSegment segment);
+
+    // 채우기 시작점과 색 - 캔버스 밖 시작점은 무시한다
+    void onFill(int x, int y, int rgb);
+
+    void onChat(String nickname, String text);
+
+    void onScore(String nickname, int score);
+
+    void onClear();
+
+    void onGameEnd();
+}
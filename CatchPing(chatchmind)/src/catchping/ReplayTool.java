@@ -0,0 +1,160 @@
+package catchping;
+
+import javax.swing.*;
+
+import java.awt.Color;
+import java.awt.Point;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+// 게임 기록 재생 도구 (신고 검토, 버그 재현용)
+// 사용법: java catchping.ReplayTool <기록 파일> [--speed 배속] [--round 라운드] [--headless 출력 폴더]
+// --speed 0은 기다리지 않고 끝까지 재생한다. --headless를 주면 창 없이 텍스트와 라운드별 PNG로 출력한다.
+public class ReplayTool {
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.out.println("사용법: java catchping.ReplayTool <기록 파일> [--speed 배속] [--round 라운드] [--headless 출력 폴더]");
+            return;
+        }
+        Path file = Paths.get(args[0]);
+        double speed = 1.0;
+        int round = 0;
+        Path headlessOutput = null;
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--speed":
+                    speed = Double.parseDouble(args[i + 1]);
+                    break;
+                case "--round":
+                    round = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--headless":
+                    headlessOutput = Paths.get(args[i + 1]);
+                    break;
+                default:
+                    System.out.println("알 수 없는 옵션: " + args[i]);
+                    return;
+            }
+        }
+
+        GameReplayer replayer = new GameReplayer(file);
+        replayer.setSpeed(speed);
+        System.out.println("기록 " + file + " - 라운드 " + replayer.getRoundCount() + "개");
+        if (round > 0 && !replayer.seekToRound(round)) {
+            System.out.println(round + "라운드 기록이 없습니다.");
+            return;
+        }
+
+        ReplaySink sink;
+        if (headlessOutput != null) {
+            System.setProperty("java.awt.headless", "true");
+            sink = new HeadlessReplaySink(headlessOutput);
+        } else {
+            sink = openWindow(replayer.getRoundCount());
+        }
+        long started = System.nanoTime();
+        replayer.play(sink);
+        System.out.println("재생 완료: " + (System.nanoTime() - started) / 1_000_000 + "ms");
+    }
+
+    private static ReplaySink openWindow(int totalRounds) throws Exception {
+        GUIView[] view = new GUIView[1];
+        SwingUtilities.invokeAndWait(() -> {
+            JFrame frame = new JFrame("캐치마인드 - 기록 재생");
+            frame.setSize(Constants.FRAME_WIDTH, Constants.FRAME_HEIGHT);
+            frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+            frame.setLocationRelativeTo(null);
+            view[0] = new GUIView();
+            frame.add(view[0]);
+            frame.setVisible(true);
+        });
+        return new ViewSink(view[0], totalRounds);
+    }
+
+    // 재생 이벤트를 게임 화면에 그대로 보여준다 (모든 화면 작업은 EDT에서)
+    private static class ViewSink implements ReplaySink {
+        private final GUIView view;
+        private final int totalRounds;
+        private final Map<String, Integer> slots = new HashMap<>();
+        private final Map<String, Integer> scores = new HashMap<>();
+
+        ViewSink(GUIView view, int totalRounds) {
+            this.view = view;
+            this.totalRounds = totalRounds;
+        }
+
+        @Override
+        public void onJoin(String nickname) {
+            SwingUtilities.invokeLater(() -> {
+                updateSlot(nickname);
+                view.addChatMessage(nickname + "님이 입장하셨습니다.");
+            });
+        }
+
+        @Override
+        public void onLeave(String nickname) {
+            view.addChatMessage(nickname + "님이 퇴장하셨습니다.");
+        }
+
+        @Override
+        public void onRoundStart(int round, String drawer, String word) {
+            SwingUtilities.invokeLater(() -> {
+                view.clearCanvas();
+                view.updateRound(round, totalRounds);
+                view.updateGameInfo(word, 0, false);
+                view.addChatMessage("[재생] " + round + "라운드 - 출제자: " + drawer + ", 제시어: " + word);
+            });
+        }
+
+        @Override
+        public void onStroke(DrawSegment segment) {
+            int x1 = segment.x1, y1 = segment.y1, x2 = segment.x2, y2 = segment.y2;
+            Color color = new Color(segment.rgb);
+            int size = segment.size;
+            boolean eraser = segment.eraser;
+            SwingUtilities.invokeLater(() ->
+                view.drawOnCanvas(new Point(x1, y1), new Point(x2, y2), color, size, eraser));
+        }
+
+        @Override
+        public void onFill(int x, int y, int rgb) {
+            SwingUtilities.invokeLater(() -> view.fillOnCanvas(new Point(x, y), new Color(rgb)));
+        }
+
+        @Override
+        public void onChat(String nickname, String text) {
+            view.addChatMessage(nickname + ": " + text);
+        }
+
+        @Override
+        public void onScore(String nickname, int score) {
+            SwingUtilities.invokeLater(() -> {
+                scores.put(nickname, score);
+                updateSlot(nickname);
+            });
+        }
+
+        @Override
+        public void onClear() {
+            SwingUtilities.invokeLater(view::clearCanvas);
+        }
+
+        @Override
+        public void onGameEnd() {
+            view.addChatMessage("[재생] 게임 종료");
+        }
+
+        // 중간 라운드부터 재생하면 입장 기록이 없으므로 처음 보는 이름에 칸을 준다
+        private void updateSlot(String nickname) {
+            if (!slots.containsKey(nickname) && slots.size() < Constants.MAX_PLAYERS) {
+                slots.put(nickname, slots.size());
+            }
+            Integer slot = slots.get(nickname);
+            if (slot != null) {
+                view.updatePlayerInfo(slot, nickname, scores.getOrDefault(nickname, 0), false);
+            }
+        }
+    }
+}
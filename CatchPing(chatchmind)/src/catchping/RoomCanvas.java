@@ -0,0 +1,206 @@
+package catchping;
+
+import java.util.Arrays;
+
+// 방의 현재 캔버스 - 마지막 CLEAR 이후의 선분을 int 배열에 차례로 담아둔다
+// 선분 하나 = [x1, y1, x2, y2, rgb, (크기 << 1) | 지우개] 6칸. java.awt를 쓰지 않는다.
+// 채우기는 같은 6칸에 [x, y, x, y, rgb, FILL_STYLE]로 담는다 - 그리는 순서가 결과를 바꾸므로 선분과 한 줄에 둔다.
+// 곡선(CURVE)은 나누지 않고 [점 수, 크기, 지우개, 0, rgb, CURVE_STYLE] 한 칸 뒤에 점 좌표를 6칸씩 이어 담는다 (entries()칸을 차지한다).
+// 키프레임과 다시 맞추는 캔버스도 플레이어가 받은 곡선 그대로 그려야 픽셀이 같고 그 위의 채우기 결과도 같다.
+// 선분이 많이 쌓이면 앞부분을 키프레임(압축한 이미지 바이트)으로 굳히고 그 뒤의 선분만 남긴다 (굳히는 일은 CanvasKeyframe).
+public class RoomCanvas {
+    public static final int INTS_PER_SEGMENT = 6;
+    public static final int FILL_STYLE = -1;
+    public static final int CURVE_STYLE = -2;
+
+    private final int maxSegments;
+    private int[] segments = new int[INTS_PER_SEGMENT * 256];
+    private int count;
+    private int roundStart;   // 이번 라운드가 시작될 때의 선분 수
+    private byte[] keyframe;  // 앞의 선분을 굳힌 이미지 (없으면 null)
+    private int generation;   // CLEAR마다 올린다 - 지우기 전에 시작한 키프레임은 버린다
+    private boolean compacting;
+    private boolean roundInKeyframe;   // 이번 라운드의 앞부분이 키프레임에 들어갔다
+
+    // 키프레임과 그 뒤의 선분 (바뀌지 않는 복사본)
+    public static final class Snapshot {
+        public final byte[] keyframe;
+        public final int[] segments;
+        final int generation;
+
+        Snapshot(byte[] keyframe, int[] segments, int generation) {
+            this.keyframe = keyframe;
+            this.segments = segments;
+            this.generation = generation;
+        }
+    }
+
+    public RoomCanvas(int maxSegments) {
+        this.maxSegments = maxSegments;
+    }
+
+    // 너무 많이 쌓이면 더 담지 않고 false를 돌려준다 (그림 저장용이므로 뒤쪽이 빠져도 게임에는 영향이 없다)
+    public synchronized boolean append(DrawSegment segment) {
+        return append(segment, (segment.size << 1) | (segment.eraser ? 1 : 0));
+    }
+
+    // 채우기 시작점과 색 (segment.x1, y1, rgb)
+    public synchronized boolean appendFill(DrawSegment seed) {
+        return append(seed, FILL_STYLE);
+    }
+
+    // 곡선의 점과 스타일 (단순화한 뒤 플레이어에게 보낸 그대로)
+    public synchronized boolean appendCurve(StrokeCurve curve) {
+        int points = curve.count * 2;
+        if (!reserve(1 + (points + INTS_PER_SEGMENT - 1) / INTS_PER_SEGMENT)) {
+            return false;
+        }
+        int offset = count * INTS_PER_SEGMENT;
+        segments[offset] = curve.count;
+        segments[offset + 1] = curve.size;
+        segments[offset + 2] = curve.eraser ? 1 : 0;
+        segments[offset + 3] = 0;
+        segments[offset + 4] = curve.rgb;
+        segments[offset + 5] = CURVE_STYLE;
+        System.arraycopy(curve.points, 0, segments, offset + INTS_PER_SEGMENT, points);
+        count += entries(segments, count);
+        return true;
+    }
+
+    // 칸이 entries개 남았는지 보고 배열을 늘린다
+    private boolean reserve(int entries) {
+        if (count + entries > maxSegments) {
+            return false;
+        }
+        int needed = (count + entries) * INTS_PER_SEGMENT;
+        if (needed > segments.length) {
+            segments = Arrays.copyOf(segments, Math.min(Math.max(segments.length * 2, needed), maxSegments * INTS_PER_SEGMENT));
+        }
+        return true;
+    }
+
+    private boolean append(DrawSegment segment, int style) {
+        if (!reserve(1)) {
+            return false;
+        }
+        int offset = count * INTS_PER_SEGMENT;
+        segments[offset] = segment.x1;
+        segments[offset + 1] = segment.y1;
+        segments[offset + 2] = segment.x2;
+        segments[offset + 3] = segment.y2;
+        segments[offset + 4] = segment.rgb;
+        segments[offset + 5] = style;
+        count++;
+        return true;
+    }
+
+    public synchronized void clear() {
+        count = 0;
+        roundStart = 0;
+        keyframe = null;
+        generation++;
+        roundInKeyframe = false;
+    }
+
+    public synchronized void startRound() {
+        roundStart = count;
+        roundInKeyframe = false;
+    }
+
+    // 이번 라운드에 그린 선분만 복사해서 돌려준다
+    // 라운드 앞부분이 키프레임에 들어갔으면 나눌 수 없으므로 캔버스 전체가 된다 (앞 라운드 그림을 지우지 않았을 때만 다르다)
+    public synchronized Snapshot snapshotRound() {
+        if (roundInKeyframe) {
+            return snapshot();
+        }
+        return new Snapshot(null, Arrays.copyOfRange(segments, roundStart * INTS_PER_SEGMENT, count * INTS_PER_SEGMENT),
+            generation);
+    }
+
+    // 새 관전자나 다시 맞추는 세션에 보내는 캔버스 - 키프레임과 그 뒤의 선분
+    public synchronized Snapshot snapshot() {
+        return new Snapshot(keyframe, snapshotAll(), generation);
+    }
+
+    // 키프레임 뒤에 선분이 minSegments개 이상 쌓였으면 굳힐 부분을 복사해서 돌려준다 (이미 굳히는 중이면 null)
+    // 돌려받은 쪽은 다른 스레드에서 이미지를 만들고 반드시 finishKeyframe을 부른다
+    public synchronized Snapshot beginKeyframe(int minSegments) {
+        if (compacting || count < minSegments) {
+            return null;
+        }
+        compacting = true;
+        return snapshot();
+    }
+
+    // 굳힌 이미지로 앞의 선분을 바꾼다. 그 사이 CLEAR가 있었거나 만들지 못했으면(null) 그대로 둔다
+    public synchronized boolean finishKeyframe(Snapshot folded, byte[] image) {
+        compacting = false;
+        if (image == null || folded.generation != generation) {
+            return false;
+        }
+        int foldedCount = folded.segments.length / INTS_PER_SEGMENT;
+        System.arraycopy(segments, foldedCount * INTS_PER_SEGMENT, segments, 0, (count - foldedCount) * INTS_PER_SEGMENT);
+        count -= foldedCount;
+        if (roundStart < foldedCount) {
+            roundInKeyframe = true;
+        }
+        roundStart = Math.max(0, roundStart - foldedCount);
+        keyframe = image;
+        if (segments.length > INTS_PER_SEGMENT * Math.max(1024, count * 4)) {
+            segments = Arrays.copyOf(segments, INTS_PER_SEGMENT * Math.max(256, count * 2));  // 늘어났던 배열을 돌려준다
+        }
+        return true;
+    }
+
+    // CLEAR 이후 담긴 선분 전체 (새 관전자에게 보내는 캔버스)
+    public synchronized int[] snapshotAll() {
+        return Arrays.copyOf(segments, count * INTS_PER_SEGMENT);
+    }
+
+    // 복사한 뒤 비운다 (관전자 묶음 버퍼로 쓸 때)
+    public synchronized int[] drain() {
+        int[] drained = snapshotAll();
+        clear();
+        return drained;
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    public static boolean isFill(int[] snapshot, int index) {
+        return snapshot[index * INTS_PER_SEGMENT + 5] == FILL_STYLE;
+    }
+
+    public static boolean isCurve(int[] snapshot, int index) {
+        return snapshot[index * INTS_PER_SEGMENT + 5] == CURVE_STYLE;
+    }
+
+    // index에서 시작하는 항목이 차지하는 칸 수 (선분과 채우기는 1, 곡선은 점 좌표 칸까지)
+    public static int entries(int[] snapshot, int index) {
+        if (!isCurve(snapshot, index)) {
+            return 1;
+        }
+        return 1 + (snapshot[index * INTS_PER_SEGMENT] * 2 + INTS_PER_SEGMENT - 1) / INTS_PER_SEGMENT;
+    }
+
+    public static void readCurve(int[] snapshot, int index, StrokeCurve out) {
+        int offset = index * INTS_PER_SEGMENT;
+        out.count = snapshot[offset];
+        out.size = snapshot[offset + 1];
+        out.eraser = snapshot[offset + 2] != 0;
+        out.rgb = snapshot[offset + 4];
+        System.arraycopy(snapshot, offset + INTS_PER_SEGMENT, out.points, 0, out.count * 2);
+    }
+
+    public static void read(int[] snapshot, int index, DrawSegment out) {
+        int offset = index * INTS_PER_SEGMENT;
+        out.x1 = snapshot[offset];
+        out.y1 = snapshot[offset + 1];
+        out.x2 = snapshot[offset + 2];
+        out.y2 = snapshot[offset + 3];
+        out.rgb = snapshot[offset + 4];
+        out.size = snapshot[offset + 5] >> 1;
+        out.eraser = (snapshot[offset + 5] & 1) != 0;
+    }
+}
@@ -0,0 +1,482 @@
+package catchping;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+// 방 상태 저널 (WAL) - 서버 프로세스가 죽어도 진행 중인 게임을 다시 세울 수 있게 상태를 바꾸는 이벤트를 파일에 덧붙인다
+// 게임 스레드는 이벤트를 바이트 배열로 만들어 넘기기만 하고, 기록 스레드가 commitMillis 동안 모인 이벤트를 한 번에 쓰고 fsync한다 (그룹 커밋).
+// 기록 스레드는 쓴 이벤트를 방 상태 사본에도 적용해두고, snapshotMillis마다 또는 snapshotRecords개마다 사본 전체를 스냅샷으로 쓴 뒤 로그를 비운다.
+// 다시 시작하면 스냅샷과 그 뒤의 로그만 읽으므로 복구 시간은 로그 snapshotRecords개를 넘지 않는다.
+// 로그 레코드: [길이 4B][CRC32 4B][순번 8B][종류 1B][방 이름][내용] - 끝까지 쓰이지 않았거나 CRC가 틀린 레코드부터 버린다.
+// 스냅샷: [매직 4B][마지막 순번 8B][방 수 4B] + 방마다 상태. 순번이 그 이하인 로그 레코드는 이미 스냅샷에 들어 있다.
+public class RoomJournal {
+    public static final int SNAPSHOT_MAGIC = 0x43504A31;  // "CPJ1"
+    public static final String LOG_FILE = "rooms.wal";
+    public static final String SNAPSHOT_FILE = "rooms.snapshot";
+    private static final int RECORD_HEADER_BYTES = 8;     // 길이, CRC (순번부터가 길이에 들어간다)
+
+    // 이벤트 종류 (문자열은 [길이 2B][UTF-8])
+    public static final byte JOIN = 1;          // 닉네임, 세션 토큰 8B
+    public static final byte LEAVE = 2;         // 닉네임
+    public static final byte READY = 3;         // 닉네임, 준비 1B
+    public static final byte GAME_START = 4;    // 제시어 수 2B, 제시어 (섞은 순서)
+    public static final byte ROUND_START = 5;   // 라운드 2B, 출제자, 제시어, 종료 시각 8B
+    public static final byte SCORE = 6;         // 닉네임, 점수 4B
+    public static final byte GAME_END = 7;
+
+    private static final LongAdder RECORDS = ServerMetrics.counter("journal.records");
+    private static final LongAdder BATCHES = ServerMetrics.counter("journal.batches");
+    private static final LongAdder BYTES = ServerMetrics.counter("journal.bytes");
+    private static final LongAdder FSYNC_MICROS = ServerMetrics.counter("journal.fsync.micros");
+    private static final LongAdder SNAPSHOTS = ServerMetrics.counter("journal.snapshots");
+    private static final LongAdder SNAPSHOT_MICROS = ServerMetrics.counter("journal.snapshot.micros");
+
+    // 플레이어 하나의 저널 상태
+    public static final class PlayerState {
+        public final String nickname;
+        public final long token;
+        public int score;
+        public boolean ready;
+
+        PlayerState(String nickname, long token) {
+            this.nickname = nickname;
+            this.token = token;
+        }
+    }
+
+    // 방 하나의 저널 상태 (플레이어는 들어온 순서)
+    public static final class RoomState {
+        public final String name;
+        public final Map<String, PlayerState> players = new LinkedHashMap<>();
+        public final List<String> words = new ArrayList<>();
+        public boolean running;
+        public int round;
+        public String drawer;
+        public String word;
+        public long deadline;
+
+        RoomState(String name) {
+            this.name = name;
+        }
+    }
+
+    private final Path logFile;
+    private final Path snapshotFile;
+    private final long commitMillis;
+    private final long snapshotMillis;
+    private final int snapshotRecords;
+    private final Map<String, RoomState> rooms = new LinkedHashMap<>();   // 기록 스레드에서만 쓴다 (열 때 제외)
+    private List<RoomState> recovered;
+    private List<byte[]> pending = new ArrayList<>();
+    private FileChannel channel;
+    private long nextSeq = 1;
+    private long recordsSinceSnapshot;
+    private long lastSnapshotAt;
+    private boolean closed;
+    private final Thread writer;
+
+    private RoomJournal(Path directory, long commitMillis, long snapshotMillis, int snapshotRecords) {
+        this.logFile = directory.resolve(LOG_FILE);
+        this.snapshotFile = directory.resolve(SNAPSHOT_FILE);
+        this.commitMillis = commitMillis;
+        this.snapshotMillis = snapshotMillis;
+        this.snapshotRecords = snapshotRecords;
+        this.writer = new Thread(this::writeLoop, "room-journal");
+        writer.setDaemon(true);
+    }
+
+    // 스냅샷과 로그로 방 상태를 복구하고 기록 스레드를 띄운다
+    public static RoomJournal open(Path directory, long commitMillis, long snapshotMillis, int snapshotRecords)
+            throws IOException {
+        RoomJournal journal = new RoomJournal(directory, commitMillis, snapshotMillis, snapshotRecords);
+        journal.load(directory);
+        journal.writer.start();
+        ServerMetrics.gauge("journal.pending", journal::pendingCount);
+        return journal;
+    }
+
+    private void load(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        long start = System.nanoTime();
+        long snapshotSeq = 0;
+        if (Files.exists(snapshotFile)) {
+            snapshotSeq = readSnapshot(ByteBuffer.wrap(Files.readAllBytes(snapshotFile)), rooms);
+            nextSeq = snapshotSeq + 1;
+        }
+        long good = 0;
+        long replayed = 0;
+        if (Files.exists(logFile)) {
+            ByteBuffer log = ByteBuffer.wrap(Files.readAllBytes(logFile));
+            CRC32 crc = new CRC32();
+            while (log.remaining() >= RECORD_HEADER_BYTES) {
+                int length = log.getInt();
+                int checksum = log.getInt();
+                if (length < 9 || length > log.remaining()) {
+                    break;
+                }
+                crc.reset();
+                crc.update(log.array(), log.position(), length);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                long seq = log.getLong();
+                ByteBuffer record = ByteBuffer.wrap(log.array(), log.position(), length - 8).slice();
+                log.position(log.position() + length - 8);
+                if (seq > snapshotSeq) {
+                    apply(rooms, record);
+                    replayed++;
+                }
+                nextSeq = Math.max(nextSeq, seq + 1);
+                good = log.position();
+            }
+            if (good < log.capacity()) {
+                // 쓰다가 멈춘 마지막 레코드 - 그 앞까지만 쓴다
+                System.out.println("저널 끝의 불완전한 레코드를 버립니다: " + (log.capacity() - good) + "B");
+            }
+        }
+        channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(good);
+        channel.position(good);
+        recordsSinceSnapshot = replayed;
+        lastSnapshotAt = System.currentTimeMillis();
+        recovered = copy(rooms.values());
+        System.out.println("방 상태 복구: 방 " + rooms.size() + "개, 로그 " + replayed + "개, "
+            + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms (" + directory.toAbsolutePath() + ")");
+    }
+
+    // 열 때 복구한 방 상태 (서버가 방을 다시 세울 때 한 번 쓴다)
+    public List<RoomState> recovered() {
+        return recovered;
+    }
+
+    public void join(String room, String nickname, long token) {
+        byte[] name = nickname.getBytes(StandardCharsets.UTF_8);
+        offer(begin(JOIN, room, 2 + name.length + 8).putShort((short) name.length).put(name).putLong(token));
+    }
+
+    public void leave(String room, String nickname) {
+        offer(putString(begin(LEAVE, room, length(nickname)), nickname));
+    }
+
+    public void ready(String room, String nickname, boolean ready) {
+        offer(putString(begin(READY, room, length(nickname) + 1), nickname).put((byte) (ready ? 1 : 0)));
+    }
+
+    public void gameStart(String room, List<String> words) {
+        int length = 2;
+        for (String word : words) {
+            length += length(word);
+        }
+        ByteBuffer record = begin(GAME_START, room, length).putShort((short) words.size());
+        for (String word : words) {
+            putString(record, word);
+        }
+        offer(record);
+    }
+
+    public void roundStart(String room, int round, String drawer, String word, long deadline) {
+        ByteBuffer record = begin(ROUND_START, room, 2 + length(drawer) + length(word) + 8).putShort((short) round);
+        offer(putString(putString(record, drawer), word).putLong(deadline));
+    }
+
+    public void score(String room, String nickname, int score) {
+        offer(putString(begin(SCORE, room, length(nickname) + 4), nickname).putInt(score));
+    }
+
+    public void gameEnd(String room) {
+        offer(begin(GAME_END, room, 0));
+    }
+
+    private static ByteBuffer begin(byte type, String room, int contentLength) {
+        ByteBuffer record = ByteBuffer.allocate(1 + length(room) + contentLength);
+        return putString(record.put(type), room);
+    }
+
+    private static int length(String text) {
+        return 2 + text.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static ByteBuffer putString(ByteBuffer buffer, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        return buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // 게임 스레드를 막지 않는다 - 기록 스레드가 자고 있으면 첫 이벤트에서만 깨운다
+    private synchronized void offer(ByteBuffer record) {
+        if (closed) {
+            return;
+        }
+        pending.add(record.array());
+        if (pending.size() == 1) {
+            notifyAll();
+        }
+    }
+
+    private synchronized long pendingCount() {
+        return pending.size();
+    }
+
+    // 남은 이벤트를 모두 쓰고 스냅샷을 남긴 뒤 닫는다 (서버 종료 훅)
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        try {
+            boolean last = false;
+            while (!last) {
+                List<byte[]> batch;
+                synchronized (this) {
+                    if (pending.isEmpty() && !closed) {
+                        wait(snapshotMillis);
+                    }
+                    // 첫 이벤트가 오면 commitMillis 동안 더 모아서 fsync 한 번으로 쓴다
+                    long until = System.currentTimeMillis() + commitMillis;
+                    long left;
+                    while (!pending.isEmpty() && !closed && (left = until - System.currentTimeMillis()) > 0) {
+                        wait(left);
+                    }
+                    last = closed;
+                    batch = pending;
+                    pending = new ArrayList<>();
+                }
+                if (!batch.isEmpty()) {
+                    commit(batch);
+                }
+                if (recordsSinceSnapshot >= snapshotRecords || (recordsSinceSnapshot > 0
+                        && (last || System.currentTimeMillis() - lastSnapshotAt >= snapshotMillis))) {
+                    snapshot();
+                }
+            }
+            channel.close();
+        } catch (IOException e) {
+            System.out.println("방 상태 저널 에러 - 더 기록하지 않습니다: " + e.getMessage());
+            synchronized (this) {
+                closed = true;
+                pending.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // 모인 이벤트에 순번과 CRC를 붙여 한 번에 쓰고 fsync한 뒤 방 상태 사본에 적용한다
+    private void commit(List<byte[]> batch) throws IOException {
+        int length = 0;
+        for (byte[] record : batch) {
+            length += RECORD_HEADER_BYTES + 8 + record.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        CRC32 crc = new CRC32();
+        for (byte[] record : batch) {
+            int start = buffer.position();
+            buffer.putInt(8 + record.length).putInt(0).putLong(nextSeq++).put(record);
+            crc.reset();
+            crc.update(buffer.array(), start + RECORD_HEADER_BYTES, 8 + record.length);
+            buffer.putInt(start + 4, (int) crc.getValue());
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        long start = System.nanoTime();
+        channel.force(false);
+        FSYNC_MICROS.add(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        RECORDS.add(batch.size());
+        BATCHES.increment();
+        BYTES.add(length);
+        for (byte[] record : batch) {
+            apply(rooms, ByteBuffer.wrap(record));
+        }
+        recordsSinceSnapshot += batch.size();
+    }
+
+    // 사본 전체를 임시 파일에 쓰고 fsync한 뒤 바꿔치기하고 로그를 비운다
+    // 바꾼 뒤 로그를 비우기 전에 멈춰도 순번으로 이미 들어간 레코드를 건너뛰므로 두 번 적용되지 않는다
+    private void snapshot() throws IOException {
+        long start = System.nanoTime();
+        Path temp = snapshotFile.resolveSibling(SNAPSHOT_FILE + ".tmp");
+        Files.write(temp, writeSnapshot(rooms.values(), nextSeq - 1), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.SYNC);
+        Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel.truncate(0);
+        channel.position(0);
+        channel.force(false);
+        recordsSinceSnapshot = 0;
+        lastSnapshotAt = System.currentTimeMillis();
+        SNAPSHOTS.increment();
+        SNAPSHOT_MICROS.add(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+    }
+
+    // 이벤트 하나를 방 상태에 적용한다 (복구와 기록 스레드가 같은 코드를 쓴다). 플레이어가 모두 나간 방은 지운다
+    static void apply(Map<String, RoomState> rooms, ByteBuffer record) {
+        try {
+            byte type = record.get();
+            String name = getString(record);
+            RoomState room = rooms.computeIfAbsent(name, RoomState::new);
+            PlayerState player;
+            switch (type) {
+                case JOIN:
+                    String nickname = getString(record);
+                    room.players.put(nickname, new PlayerState(nickname, record.getLong()));
+                    break;
+                case LEAVE:
+                    room.players.remove(getString(record));
+                    break;
+                case READY:
+                    player = room.players.get(getString(record));
+                    boolean ready = record.get() != 0;
+                    if (player != null) {
+                        player.ready = ready;
+                    }
+                    break;
+                case GAME_START:
+                    room.running = true;
+                    room.round = 0;
+                    room.words.clear();
+                    for (int i = record.getShort(); i > 0; i--) {
+                        room.words.add(getString(record));
+                    }
+                    for (PlayerState each : room.players.values()) {
+                        each.ready = false;
+                    }
+                    break;
+                case ROUND_START:
+                    room.round = record.getShort();
+                    room.drawer = getString(record);
+                    room.word = getString(record);
+                    room.deadline = record.getLong();
+                    break;
+                case SCORE:
+                    player = room.players.get(getString(record));
+                    int score = record.getInt();
+                    if (player != null) {
+                        player.score = score;
+                    }
+                    break;
+                case GAME_END:
+                    room.running = false;
+                    room.round = 0;
+                    room.drawer = null;
+                    room.word = null;
+                    room.words.clear();
+                    for (PlayerState each : room.players.values()) {
+                        each.score = 0;
+                        each.ready = false;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            if (room.players.isEmpty()) {
+                rooms.remove(name);
+            }
+        } catch (BufferUnderflowException e) {
+            System.out.println("저널 레코드 형식 오류 - 건너뜁니다");
+        }
+    }
+
+    static byte[] writeSnapshot(Collection<RoomState> states, long seq) {
+        int length = 16;
+        for (RoomState room : states) {
+            length += length(room.name) + 1 + 2 + length(nullToEmpty(room.drawer)) + length(nullToEmpty(room.word)) + 8 + 2 + 2;
+            for (String word : room.words) {
+                length += length(word);
+            }
+            for (PlayerState player : room.players.values()) {
+                length += length(player.nickname) + 8 + 4 + 1;
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.putInt(SNAPSHOT_MAGIC).putLong(seq).putInt(states.size());
+        for (RoomState room : states) {
+            putString(buffer, room.name).put((byte) (room.running ? 1 : 0)).putShort((short) room.round);
+            putString(putString(buffer, nullToEmpty(room.drawer)), nullToEmpty(room.word)).putLong(room.deadline);
+            buffer.putShort((short) room.words.size());
+            for (String word : room.words) {
+                putString(buffer, word);
+            }
+            buffer.putShort((short) room.players.size());
+            for (PlayerState player : room.players.values()) {
+                putString(buffer, player.nickname).putLong(player.token).putInt(player.score)
+                    .put((byte) (player.ready ? 1 : 0));
+            }
+        }
+        return buffer.array();
+    }
+
+    // 스냅샷을 읽어 rooms에 넣고 마지막 순번을 돌려준다
+    static long readSnapshot(ByteBuffer buffer, Map<String, RoomState> rooms) throws IOException {
+        try {
+            if (buffer.getInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("스냅샷 형식이 아닙니다");
+            }
+            long seq = buffer.getLong();
+            for (int i = buffer.getInt(); i > 0; i--) {
+                RoomState room = new RoomState(getString(buffer));
+                room.running = buffer.get() != 0;
+                room.round = buffer.getShort();
+                room.drawer = emptyToNull(getString(buffer));
+                room.word = emptyToNull(getString(buffer));
+                room.deadline = buffer.getLong();
+                for (int j = buffer.getShort(); j > 0; j--) {
+                    room.words.add(getString(buffer));
+                }
+                for (int j = buffer.getShort(); j > 0; j--) {
+                    PlayerState player = new PlayerState(getString(buffer), buffer.getLong());
+                    player.score = buffer.getInt();
+                    player.ready = buffer.get() != 0;
+                    room.players.put(player.nickname, player);
+                }
+                rooms.put(room.name, room);
+            }
+            return seq;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("스냅샷이 잘렸습니다", e);
+        }
+    }
+
+    // 스냅샷 형식을 거쳐 복사한다 - 기록 스레드가 바꾸는 사본과 나눠 쓰지 않게
+    private static List<RoomState> copy(Collection<RoomState> states) throws IOException {
+        Map<String, RoomState> copied = new LinkedHashMap<>();
+        readSnapshot(ByteBuffer.wrap(writeSnapshot(states, 0)), copied);
+        return new ArrayList<>(copied.values());
+    }
+
+    private static String nullToEmpty(String text) {
+        return text == null ? "" : text;
+    }
+
+    private static String emptyToNull(String text) {
+        return text.isEmpty() ? null : text;
+    }
+}
@@ -1,84 +1,981 @@
 package catchping;
 
 import java.io.*;
+import java.lang.management.ManagementFactory;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.SecureRandom;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 public class Server {
+    // 속도 제한 카운터
+    private static final LongAdder CHAT_DROPPED = ServerMetrics.counter("ratelimit.chat.dropped");
+    private static final LongAdder DRAW_COALESCED = ServerMetrics.counter("ratelimit.draw.coalesced");
+    private static final LongAdder DRAW_HELD = ServerMetrics.counter("ratelimit.draw.held");
+    private static final LongAdder SAMPLING_CHANGES = ServerMetrics.counter("sampling.changes");
+    private static final LongAdder CURVE_MESSAGES = ServerMetrics.counter("curve.messages");
+    private static final LongAdder CURVE_SPANS = ServerMetrics.counter("curve.spans");
+    private static final LongAdder CURVE_POINTS_SIMPLIFIED = ServerMetrics.counter("simplify.curve.points");
+    private static final LongAdder SIMPLIFY_BYTES_SAVED = ServerMetrics.counter("simplify.bytes.saved");
+    private static final LongAdder THROTTLED = ServerMetrics.counter("ratelimit.throttled");
+    private static final LongAdder RATE_DISCONNECTED = ServerMetrics.counter("ratelimit.disconnected");
+    // 입장 제어 카운터
+    private static final LongAdder ADMITTED = ServerMetrics.counter("admission.admitted");
+    private static final LongAdder QUEUED = ServerMetrics.counter("admission.queued");
+    private static final LongAdder REJECTED_FULL = ServerMetrics.counter("admission.rejected.full");
+    private static final LongAdder REJECTED_RATE = ServerMetrics.counter("admission.rejected.rate");
+    private static final LongAdder SHED = ServerMetrics.counter("admission.shed");
+    private static final LongAdder REAPED = ServerMetrics.counter("heartbeat.reaped");
+    // 스트림 압축 카운터 (종료된 연결 누적)
+    private static final LongAdder COMPRESSED_CONNECTIONS = ServerMetrics.counter("compression.connections");
+    private static final LongAdder COMPRESSED_RAW_BYTES = ServerMetrics.counter("compression.bytes.raw");
+    private static final LongAdder COMPRESSED_WIRE_BYTES = ServerMetrics.counter("compression.bytes.wire");
+    private static final LongAdder COMPRESSION_CPU_MICROS = ServerMetrics.counter("compression.cpu.micros");
+    // UDP 선분 채널 카운터
+    private static final LongAdder UDP_RECEIVED = ServerMetrics.counter("udp.segments.received");
+    private static final LongAdder UDP_SENT = ServerMetrics.counter("udp.datagrams.sent");
+    private static final LongAdder UDP_STALE = ServerMetrics.counter("udp.segments.stale");
+    private static final LongAdder UDP_DROPPED = ServerMetrics.counter("udp.segments.dropped");
+    private static final LongAdder UDP_INVALID = ServerMetrics.counter("udp.packets.invalid");
+    // 계층별 전송량 (압축 전 문자 수) - 플레이어와 관전자
+    private static final LongAdder PLAYER_OUT = ServerMetrics.counter("tier.players.chars");
+    private static final LongAdder SPECTATOR_OUT = ServerMetrics.counter("tier.spectators.chars");
+    private static final LongAdder SPECTATOR_JOINED = ServerMetrics.counter("spectator.joined");
+    private static final LongAdder SPECTATOR_REJECTED = ServerMetrics.counter("spectator.rejected");
+    // 세션 이어받기 카운터
+    private static final LongAdder SESSION_SUSPENDED = ServerMetrics.counter("session.suspended");
+    private static final LongAdder SESSION_RESUMED = ServerMetrics.counter("session.resumed");
+    private static final LongAdder SESSION_REPLAYED = ServerMetrics.counter("session.replayed.messages");
+    private static final LongAdder SESSION_RESYNCED = ServerMetrics.counter("session.resynced");
+    private static final LongAdder SESSION_EXPIRED = ServerMetrics.counter("session.expired");
+    // 방과 클러스터
+    private static final LongAdder ROOMS_OPENED = ServerMetrics.counter("room.opened");
+    private static final LongAdder ROOMS_REJECTED = ServerMetrics.counter("room.rejected");
+    private static final LongAdder ROOMS_RESTORED = ServerMetrics.counter("room.restored");
+    private static final LongAdder REDIRECTED = ServerMetrics.counter("cluster.redirected");
+
+    private final ServerConfig config;
     private ServerSocket serverSocket;
-    private List<ClientHandler> clients;
     private ExecutorService executorService;
-    private GameRoom gameRoom;
+    private ScheduledExecutorService scheduler;
+    // 방 - 로그인 때 고른 이름으로 찾는다. 처음 들어온 연결이 만들고 마지막 연결이 나가면 닫는다 (admissionLock)
+    private final Map<String, GameRoom> rooms = new ConcurrentHashMap<>();
     private boolean isRunning;
+    // PING 시각의 기준 - nanoTime은 음수일 수도 있어서 이 시점부터 지난 시간(0 이상)으로 보낸다
+    private final long startNanos = System.nanoTime();
+
+    // 입장 제어 - 방마다 자리가 없으면 대기열에서 기다리고, 과부하일 때는 새 연결을 받지 않는다
+    private final Object admissionLock = new Object();
+    private final TokenBucket acceptLimiter;
+    private final LoadMonitor loadMonitor;
 
-    public Server() {
-        clients = new CopyOnWriteArrayList<>();
-        executorService = Executors.newCachedThreadPool();
-        gameRoom = new GameRoom();
+    // UDP 선분 채널 - 로그인 때 발급한 토큰으로 TCP 연결과 묶는다
+    private DatagramLink udpLink;
+    // 받은 선분의 중계는 연결마다 이 풀에서 차례로 한다 - 느린 TCP 연결에 쓰다 막혀도 받는 스레드는 막히지 않는다
+    private ExecutorService udpRelayExecutor;
+    private final Map<Long, ClientHandler> udpSessions = new ConcurrentHashMap<>();
+    private final SecureRandom tokenRandom = new SecureRandom();
+    // 플레이어 세션 - 연결이 잠깐 끊겨도 유예 시간 동안 자리와 점수를 지키고, 같은 토큰으로 다시 붙는다
+    private final Map<Long, ClientHandler> sessions = new ConcurrentHashMap<>();
+    // 라운드 그림 저장 (export.enabled일 때만 만든다 - 서버가 평소에는 java.awt를 로드하지 않도록)
+    private DrawingExporter exporter;
+    // 관전자 자리는 노드 전체에서 센다. 방마다의 묶음 전송은 피드 스레드 하나가 나눠 맡는다
+    private final Semaphore spectatorSlots;
+    private final ScheduledExecutorService spectatorExecutor;
+    // 방 캔버스 키프레임 - 쌓인 선분을 이미지로 굳히는 일은 게임 스레드 밖의 스레드 하나가 차례로 한다
+    private final ExecutorService keyframeExecutor;
+    // 클러스터 (cluster.enabled일 때만) - 방을 맡은 노드가 다른 노드면 그쪽으로 보낸다
+    private ClusterNode cluster;
+    // 자동 매칭 - 기다리는 동안에는 읽기 스레드를 잡지 않고, 묶이면 새 방에 앉힌다
+    private Matchmaker<ClientHandler> matchmaker;
+    private final AtomicInteger matchRooms = new AtomicInteger();
+    // 닉네임별 누적 전적과 순위 (stats.enabled일 때만) - 매칭 실력 구간에도 쓴다
+    private PlayerStatsStore stats;
+    // 방 상태 저널 (journal.enabled일 때만) - 다시 시작하면 진행 중이던 방과 세션을 되살린다
+    private RoomJournal journal;
+
+    public Server(ServerConfig config) {
+        this.config = config;
+        // 연결마다 읽기 스레드 하나 - 플레이어, 관전자, 로그인 중인 연결 수만큼만 만든다
+        executorService = new ThreadPoolExecutor(0, config.handlerThreads,
+            60L, TimeUnit.SECONDS, new SynchronousQueue<>());
+        scheduler = Executors.newScheduledThreadPool(config.schedulerThreads, r -> {
+            Thread thread = new Thread(r, "server-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        acceptLimiter = new TokenBucket(config.acceptRatePerSecond, config.acceptBurst);
+        loadMonitor = new LoadMonitor(config.shedLagMillis, config.shedHeapRatio);
+        if (config.exportEnabled) {
+            exporter = new DrawingExporter(config.exportThreads);
+        }
+        spectatorSlots = new Semaphore(config.spectatorMax);
+        spectatorExecutor = SpectatorFeed.newExecutor();
+        keyframeExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "canvas-keyframe");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        if (config.matchmakingEnabled) {
+            matchmaker = new Matchmaker<>(client -> skillOf(client.requestedName),
+                ClientHandler::isClosed, config.minPlayers, config.maxConnections, config.matchmakingBandWidth,
+                config.matchmakingFillWaitMillis, config.matchmakingWidenMillis, config.matchmakingBudget);
+        }
     }
 
     public void start() {
         try {
-            serverSocket = new ServerSocket(Constants.SERVER_PORT);
+            serverSocket = new ServerSocket(config.port);
             isRunning = true;
-            System.out.println("서버가 시작되었습니다. 포트: " + Constants.SERVER_PORT);
+            System.out.println("서버가 시작되었습니다. 포트: " + config.port);
+            logStartup();
+            scheduler.scheduleAtFixedRate(this::logMetrics,
+                config.metricsLogIntervalSeconds, config.metricsLogIntervalSeconds, TimeUnit.SECONDS);
+            loadMonitor.start(scheduler);
+            if (config.udpEnabled) {
+                startUdp();
+            }
+            if (config.clusterEnabled) {
+                startCluster();
+            }
+            if (config.statsEnabled) {
+                openStats();
+            }
+            if (config.journalEnabled) {
+                openJournal();
+            }
+            if (matchmaker != null) {
+                scheduler.scheduleWithFixedDelay(this::matchPlayers,
+                    config.matchmakingTickMillis, config.matchmakingTickMillis, TimeUnit.MILLISECONDS);
+                ServerMetrics.gauge("matchmaking.queued", matchmaker::size);
+                ServerMetrics.gauge("matchmaking.wait.p50", () -> matchmaker.waitPercentile(0.5));
+                ServerMetrics.gauge("matchmaking.wait.p90", () -> matchmaker.waitPercentile(0.9));
+                ServerMetrics.gauge("matchmaking.wait.p99", () -> matchmaker.waitPercentile(0.99));
+            }
+            ServerMetrics.gauge("room.count", rooms::size);
+            ServerMetrics.gauge("spectator.count", () -> {
+                long count = 0;
+                for (GameRoom room : rooms.values()) {
+                    count += room.spectators.size();
+                }
+                return count;
+            });
+            ServerMetrics.gauge("session.count", sessions::size);
+            // 연결이 나빠 그림을 덜 보내고 있는 플레이어 수 (클라이언트가 SAMPLING으로 알린다)
+            ServerMetrics.gauge("sampling.degraded", () -> {
+                long count = 0;
+                for (GameRoom room : rooms.values()) {
+                    for (ClientHandler client : room.clients) {
+                        if (client.samplingLevel > 0) {
+                            count++;
+                        }
+                    }
+                }
+                return count;
+            });
+            scheduler.scheduleAtFixedRate(this::flushStrokes,
+                config.simplifyFlushMillis, config.simplifyFlushMillis, TimeUnit.MILLISECONDS);
+            ServerMetrics.gauge("simplify.cpu.nanos.per.segment", StrokeSimplifier::nanosPerSegment);
+            scheduler.scheduleAtFixedRate(this::publishPlayerStates,
+                config.statePublishIntervalMillis, config.statePublishIntervalMillis, TimeUnit.MILLISECONDS);
+            scheduler.scheduleAtFixedRate(this::heartbeat,
+                config.heartbeatIntervalMillis, config.heartbeatIntervalMillis, TimeUnit.MILLISECONDS);
+            ServerMetrics.gauge("admission.waiting", () -> {
+                synchronized (admissionLock) {
+                    long waiting = 0;
+                    for (GameRoom room : rooms.values()) {
+                        waiting += room.waitingQueue.size();
+                    }
+                    return waiting;
+                }
+            });
 
             while (isRunning) {
                 Socket clientSocket = serverSocket.accept();
-                ClientHandler clientHandler = new ClientHandler(clientSocket);
-                clients.add(clientHandler);
-                executorService.execute(clientHandler);
+                try {
+                    admit(clientSocket);
+                } catch (IOException e) {
+                    System.out.println("클라이언트 입장 처리 에러: " + e.getMessage());
+                    clientSocket.close();
+                }
             }
         } catch (IOException e) {
             System.out.println("서버 에러: " + e.getMessage());
         }
     }
 
+    // 콜드 스타트 측정 - JVM 시작부터 포트를 열 때까지의 시간과 메모리/클래스 사용량
+    private void logStartup() {
+        Runtime runtime = Runtime.getRuntime();
+        System.out.println("서버 기동 완료: " + ManagementFactory.getRuntimeMXBean().getUptime() + "ms, "
+            + "로드된 클래스 " + ManagementFactory.getClassLoadingMXBean().getLoadedClassCount() + "개, "
+            + "힙 사용 " + (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024) + "MB");
+    }
+
+    // UDP 선분 채널을 열고 받는 스레드를 띄운다. 열지 못하면 TCP만 쓴다
+    private void startUdp() {
+        try {
+            udpLink = new DatagramLink(config.udpPort, config.udpSimulatedLoss, config.udpSimulatedReorder);
+        } catch (IOException e) {
+            System.out.println("UDP 채널을 열지 못해 TCP만 사용합니다: " + e.getMessage());
+            return;
+        }
+        ServerMetrics.gauge("udp.sessions", udpSessions::size);
+        udpRelayExecutor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "udp-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Thread receiver = new Thread(this::receiveDatagrams, "udp-receiver");
+        receiver.setDaemon(true);
+        receiver.start();
+        System.out.println("UDP 선분 채널이 시작되었습니다. 포트: " + config.udpPort);
+    }
+
+    // 클러스터 포트를 열지 못하면 혼자 모든 방을 맡는다
+    private void startCluster() {
+        ClusterNode node = new ClusterNode(config, this::roomDirectory);
+        try {
+            node.start();
+            cluster = node;
+        } catch (IOException e) {
+            System.out.println("클러스터 포트를 열지 못해 단독으로 실행합니다: " + e.getMessage());
+        }
+    }
+
+    // 전적 파일을 못 열면 전적 없이 실행한다. 종료할 때 남은 변경을 마저 쓴다
+    private void openStats() {
+        try {
+            PlayerStatsStore store = PlayerStatsStore.open(Paths.get(config.statsFile),
+                config.statsFlushMillis, config.statsLeaderboardSize);
+            Runtime.getRuntime().addShutdownHook(new Thread(store::close, "stats-flush"));
+            stats = store;
+        } catch (IOException e) {
+            System.out.println("전적 파일을 열지 못해 전적 없이 실행합니다: " + e.getMessage());
+        }
+    }
+
+    // 저널을 열고 서버가 죽기 전에 열려 있던 방을 다시 세운다 (연결을 받기 전에 한다)
+    private void openJournal() {
+        try {
+            RoomJournal opened = RoomJournal.open(Paths.get(config.journalDirectory), config.journalCommitMillis,
+                config.journalSnapshotMillis, config.journalSnapshotRecords);
+            Runtime.getRuntime().addShutdownHook(new Thread(opened::close, "journal-flush"));
+            journal = opened;
+            restoreRooms(opened.recovered());
+        } catch (IOException e) {
+            System.out.println("방 상태 저널을 열지 못해 저널 없이 실행합니다: " + e.getMessage());
+        }
+    }
+
+    // 복구한 플레이어는 연결 없이 보류한 세션으로 방에 넣는다 - 클라이언트가 같은 세션 토큰으로 다시 붙으면 전체 상태를 받고 이어서 한다
+    // session.graceMillis 안에 돌아오지 않으면 평소처럼 퇴장 처리된다. 세션이 없는 플레이어는 이어받을 수 없으므로 퇴장시킨다
+    private void restoreRooms(List<RoomJournal.RoomState> recovered) {
+        for (RoomJournal.RoomState state : recovered) {
+            GameRoom room = null;
+            int restored = 0;
+            for (RoomJournal.PlayerState player : state.players.values()) {
+                ClientHandler handler = null;
+                if (player.token != 0 && config.sessionGraceMillis > 0) {
+                    handler = new ClientHandler(player);
+                    room = enterRoom(handler, state.name);
+                }
+                if (handler == null || room == null) {
+                    journal.leave(state.name, player.nickname);
+                    continue;
+                }
+                room.clients.add(handler);
+                sessions.put(player.token, handler);
+                handler.suspendRecovered();
+                restored++;
+            }
+            if (restored == 0) {
+                continue;
+            }
+            if (state.name.startsWith(Constants.MATCH_ROOM_PREFIX)) {
+                try {
+                    int number = Integer.parseInt(state.name.substring(Constants.MATCH_ROOM_PREFIX.length()));
+                    matchRooms.accumulateAndGet(number, Math::max);   // 새 매칭 방이 복구한 방 이름과 겹치지 않게
+                } catch (NumberFormatException e) {
+                    // 매칭 번호가 아닌 이름
+                }
+            }
+            room.restore(state);
+            ROOMS_RESTORED.increment();
+            System.out.println("방을 복구했습니다: " + state.name + " (플레이어 " + restored + "명"
+                + (state.running ? ", " + state.round + "라운드" : "") + ")");
+        }
+    }
+
+    // 매칭 실력 - 게임당 평균 점수 (전적이 없으면 0)
+    private int skillOf(String nickname) {
+        PlayerStatsStore.PlayerStats played = stats != null ? stats.get(nickname) : null;
+        return played != null ? played.averagePoints() : 0;
+    }
+
+    // 다른 노드에 알릴 이 노드의 방 목록 - 방 이름과 인원 (플레이어와 관전자)
+    private Map<String, Integer> roomDirectory() {
+        Map<String, Integer> directory = new TreeMap<>();
+        for (GameRoom room : rooms.values()) {
+            directory.put(room.name, room.clients.size() + room.spectators.size());
+        }
+        return directory;
+    }
+
+    // HELLO는 주소를 등록하고 확인을 돌려준다. 선분은 등록된 주소에서 온 것만 받는다
+    private void receiveDatagrams() {
+        ByteBuffer buffer = ByteBuffer.allocate(DatagramLink.MAX_DATAGRAM);
+        DrawSegment[] received = new DrawSegment[255];
+        for (int i = 0; i < received.length; i++) {
+            received[i] = new DrawSegment();
+        }
+        while (isRunning) {
+            try {
+                SocketAddress from = udpLink.receive(buffer);
+                ClientHandler client = udpSessions.get(StrokeStream.tokenOf(buffer));
+                if (client == null) {
+                    UDP_INVALID.increment();
+                    continue;
+                }
+                StrokeStream stream = client.udpStream;
+                byte type = StrokeStream.typeOf(buffer);
+                if (stream == null) {
+                    UDP_INVALID.increment();   // 방금 세션이 넘어가거나 보류된 연결
+                } else if (type == StrokeStream.TYPE_HELLO) {
+                    client.udpAddress = from;
+                    udpLink.send(StrokeStream.hello(StrokeStream.TYPE_HELLO_ACK, stream.getToken()), from);
+                } else if (type == StrokeStream.TYPE_STROKES && from.equals(client.udpAddress)) {
+                    client.receiveStrokes(stream, buffer, received);
+                } else {
+                    UDP_INVALID.increment();
+                }
+            } catch (IOException e) {
+                System.out.println("UDP 수신 에러: " + e.getMessage());
+            } catch (RuntimeException e) {
+                // 데이터그램 하나 때문에 받는 스레드가 죽지 않게 한다
+                UDP_INVALID.increment();
+                System.out.println("UDP 처리 에러: " + e);
+            }
+        }
+    }
+
+    // 전체 메트릭과 압축을 쓰는 연결별 압축률/CPU 사용량
+    private void logMetrics() {
+        System.out.println(ServerMetrics.dump());
+        if (cluster != null) {
+            System.out.println(cluster.describe());
+        }
+        for (GameRoom room : rooms.values()) {
+            for (ClientHandler client : room.clients) {
+                String report = client.compressionReport();
+                if (report != null) {
+                    System.out.println("[compression] " + client.getNickname() + " " + report);
+                }
+            }
+        }
+    }
+
+    // 새 연결은 먼저 읽기 스레드에서 로그인을 받는다 - 플레이어인지 관전자인지 알아야 자리를 정할 수 있다
+    private void admit(Socket clientSocket) throws IOException {
+        if (!acceptLimiter.tryAcquire()) {
+            REJECTED_RATE.increment();
+            reject(clientSocket);
+            return;
+        }
+        try {
+            executorService.execute(new ClientHandler(clientSocket));
+        } catch (RejectedExecutionException e) {
+            REJECTED_FULL.increment();
+            reject(clientSocket);
+        }
+    }
+
+    // 공용 스케줄러에서 방마다 하트비트를 돌린다
+    private void heartbeat() {
+        long now = System.nanoTime() - startNanos;
+        for (GameRoom room : rooms.values()) {
+            room.heartbeat(now);
+        }
+        if (matchmaker != null) {
+            for (ClientHandler waiter : matchmaker.players()) {
+                pingWaiter(waiter, now);
+            }
+        }
+    }
+
+    // 자리를 기다리는 연결 (방 대기열과 자동 매칭) - 기다리다 끊긴 연결이 자리를 받지 않도록 정리한다
+    // 대기 루프가 PONG을 받고, 닫으면 그 루프가 깨어나 disconnect()로 대기열에서 뺀다
+    private void pingWaiter(ClientHandler waiter, long now) {
+        if (waiter.missedBeats >= config.heartbeatMaxMissed) {
+            REAPED.increment();
+            System.out.println("응답이 없는 대기 연결을 정리합니다: " + waiter.requestedName);
+            waiter.close();
+            return;
+        }
+        waiter.missedBeats++;
+        waiter.sendMessage(Constants.CMD_PING + Constants.DELIMITER + now);
+    }
+
+    // 단순화하느라 붙잡아 둔 선분과 제한 중 합쳐둔 선분을 내보낸다 - 펜을 멈춰도 마지막 선분이 이 주기 안에 도착한다
+    private void flushStrokes() {
+        for (GameRoom room : rooms.values()) {
+            room.flushStrokes();
+        }
+    }
+
+    private void publishPlayerStates() {
+        for (GameRoom room : rooms.values()) {
+            room.publishPlayerState();
+        }
+    }
+
+    // 0이 아니고 겹치지 않는 토큰 (UDP 토큰과 세션 토큰)
+    private long newToken(Map<Long, ClientHandler> taken) {
+        long token;
+        do {
+            token = tokenRandom.nextLong();
+        } while (token == 0 || taken.containsKey(token));
+        return token;
+    }
+
+    // 거절된 연결에는 대기 순번 0을 보내고 바로 닫는다
+    private void reject(Socket clientSocket) throws IOException {
+        PrintWriter rejectWriter = new PrintWriter(clientSocket.getOutputStream(), true);
+        rejectWriter.println(Constants.CMD_BUSY + Constants.DELIMITER + 0);
+        clientSocket.close();
+    }
+
+    // 자동 매칭 틱 - 묶인 플레이어마다 새 방에 자리를 주고, 모두 들어오면 준비 없이 게임을 시작한다
+    private void matchPlayers() {
+        int roomsLeft;
+        synchronized (admissionLock) {
+            roomsLeft = config.maxRooms - rooms.size();
+        }
+        if (roomsLeft <= 0) {
+            return;  // 방이 비면 다음 틱에 묶는다
+        }
+        for (List<ClientHandler> group : matchmaker.tick(System.currentTimeMillis(), roomsLeft)) {
+            String name = Constants.MATCH_ROOM_PREFIX + matchRooms.incrementAndGet();
+            try {
+                seatGroup(group, name);
+                System.out.println("자동 매칭: " + name + " (" + group.size() + "명)");
+            } catch (RuntimeException e) {
+                // 한 묶음 때문에 매칭 틱이 멈추지 않게 한다 - 자리를 못 받은 플레이어는 닫는다 (대기 루프가 정리한다)
+                System.out.println("자동 매칭 에러 (" + name + "): " + e);
+                for (ClientHandler client : group) {
+                    if (!client.seated) {
+                        client.close();
+                    }
+                }
+            }
+        }
+    }
+
+    // 묶인 플레이어마다 방에 자리를 준다 - 기다리던 그 연결의 스레드가 대기 루프에서 깨어나 입장한다
+    // 닫힌 연결은 같은 잠금 안에서 걸러낸다 (disconnect()도 이 잠금 안에서 방을 확인하므로 유령 플레이어가 남지 않는다)
+    private void seatGroup(List<ClientHandler> group, String name) {
+        for (ClientHandler client : group) {
+            synchronized (admissionLock) {
+                if (client.isClosed()) {
+                    continue;
+                }
+                GameRoom room = enterRoom(client, name);
+                if (room == null) {
+                    client.sendMessage(Constants.CMD_BUSY + Constants.DELIMITER + 0);
+                    client.flushBatch();
+                    client.close();
+                    continue;
+                }
+                room.expectPlayers(group.size());
+                room.seat(client);
+            }
+        }
+    }
+
+    // 방을 찾거나 만들고 연결을 방 인원에 넣는다. 방이 이미 너무 많으면 null
+    private GameRoom enterRoom(ClientHandler client, String name) {
+        synchronized (admissionLock) {
+            GameRoom room = rooms.get(name);
+            if (room == null) {
+                if (rooms.size() >= config.maxRooms) {
+                    ROOMS_REJECTED.increment();
+                    return null;
+                }
+                room = new GameRoom(name);
+                rooms.put(name, room);
+                ROOMS_OPENED.increment();
+                System.out.println("방을 엽니다: " + name);
+            }
+            room.members++;
+            client.room = room;
+            client.inRoom = true;
+            return room;
+        }
+    }
+
+    // 방 인원에서 뺀다 (연결마다 한 번) - 마지막 연결이면 방을 닫는다
+    private void leaveRoom(ClientHandler client) {
+        GameRoom closed = null;
+        synchronized (admissionLock) {
+            GameRoom room = client.room;
+            if (room == null || !client.inRoom) {
+                return;
+            }
+            client.inRoom = false;
+            room.waitingQueue.remove(client);
+            if (--room.members == 0 && rooms.remove(room.name, room)) {
+                closed = room;
+            }
+        }
+        if (closed != null) {
+            closed.close();
+        }
+    }
+
     // 게임룸 클래스 - 게임 로직 처리
+    // 방마다 플레이어, 대기열, 관전자, 캔버스를 따로 가진다
     private class GameRoom {
+        private final String name;
+        private final List<ClientHandler> clients = new CopyOnWriteArrayList<>();
+        private final Deque<ClientHandler> waitingQueue = new ArrayDeque<>();   // admissionLock
+        private int members;   // 이 방을 고른 연결 수 - 대기자, 관전자, 보류 중인 세션 포함 (admissionLock)
+        // CLEAR마다 올라가는 캔버스 세대 - 늦게 도착한 이전 세대의 UDP 선분을 버리는 데 쓴다
+        private final AtomicInteger drawEpoch = new AtomicInteger();
+        // 관전자 - 플레이어 자리와 준비 인원에 세지 않고, 선분은 SpectatorFeed가 묶어서 보낸다
+        private final List<ClientHandler> spectators = new CopyOnWriteArrayList<>();
+        private final AtomicInteger watchers = new AtomicInteger();   // 입장 중인 관전자 포함
+        private final SpectatorFeed spectatorFeed;
+        private int expectedPlayers;   // 자동 매칭 방에 들어올 인원 (시작하면 0)
+        private final int strokeTolerance;   // 플레이어에게 중계하는 선분 단순화 허용 오차 (논리 좌표)
     	 private boolean isGameRunning;
     	    private int currentRound;
     	    private String currentWord;
     	    private int currentDrawerIndex;
     	    private List<String> wordList;
-    	    private Timer gameTimer;
-    	    private int timeLeft;
+    	    private ScheduledFuture<?> roundEndTask;   // 라운드 종료 시각에 한 번 실행
+    	    private ScheduledFuture<?> resyncTask;     // 가끔씩 남은 시간을 다시 맞춰준다
+    	    private long roundDeadline;                // 서버 시계 기준 라운드 종료 시각 (ms)
+    	    private long roundStartedAt;
+    	    private final Map<String, long[]> guessTimes = new HashMap<>();  // 이번 게임의 닉네임 -> {정답 수, 걸린 시간 합}
     	    private Set<ClientHandler> readyPlayers;
     	    private static final int DRAWER_POINTS = 1;    // 출제자 점수
     	    private static final int GUESSER_POINTS = 2;   // 정답자 점수
+
+    	    // 플레이어 상태 발행 - 바뀌면 표시만 해두고 틱마다 바뀐 항목만 모아 한 번 보낸다
+    	    private volatile boolean playersDirty;
+    	    private int stateVersion;
+    	    private final Map<String, String> publishedState = new LinkedHashMap<>();  // 닉네임 -> "점수,준비"
+    	    private volatile GameRecorder recorder;    // 게임 중에만 있다 (recording.enabled일 때)
+    	    private final RoomCanvas canvas = new RoomCanvas(config.canvasMaxSegments);
+    	    // 라운드 그림 저장 - 게임마다 새 폴더, 끝나면 요약 이미지를 만든다
+    	    private Path exportDirectory;
+    	    private List<RoomCanvas.Snapshot> exportedRounds;
+    	    private List<String> exportCaptions;
+    	    private List<CompletableFuture<Path>> pendingExports;
     	    
-    	    public GameRoom() {
+    	    public GameRoom(String name) {
+    	        this.name = name;
+    	        this.strokeTolerance = config.strokeTolerance(name) * CanvasCodec.SUBPIXELS;  // 설정은 기준 캔버스 px
     	        this.wordList = initializeWordList();
     	        this.currentRound = 0;
     	        this.currentDrawerIndex = 0;
     	        this.readyPlayers = new HashSet<>();
+    	        this.spectatorFeed = new SpectatorFeed(spectatorExecutor, spectators, canvas,
+    	            config.spectatorBatchMillis, config.spectatorTolerance * CanvasCodec.SUBPIXELS, config.spectatorMaxPending);
+    	        spectatorFeed.start();
     	    }
-        public void handleReady(ClientHandler client) {
+
+        // 마지막 연결이 나간 방 - 진행 중인 게임은 기록과 그림 저장을 마무리하고 끝낸다
+        public synchronized void close() {
+            if (isGameRunning) {
+                endGame();
+            }
+            cancelTimer();
+            spectatorFeed.stop();
+            System.out.println("방을 닫습니다: " + name);
+        }
+
+        // 선분은 UDP를 켠 연결에는 데이터그램으로, 나머지에는 DRAW 메시지로 보낸다
+        private void relayDraw(DrawSegment segment) {
+            keepSegment(segment);
+            String message = null;
+            int epoch = drawEpoch.get() & 0xFFFF;
+            for (ClientHandler client : clients) {
+                if (client.udpActive && client.sendStroke(segment, epoch)) {
+                    continue;
+                }
+                if (message == null) {
+                    message = segment.encode();
+                }
+                client.sendMessage(message);
+            }
+        }
+
+        // 곡선은 모든 연결에 TCP로 보낸다 - 데이터그램에 나눠 담으면 하나만 잃어도 곡선이 끊긴다
+        // 보내기 전에 방의 허용 오차로 거의 일직선인 중간 점을 뺀다 (curve를 바꾼다)
+        // 캔버스에는 곡선 그대로 넣고, 기록과 관전자 묶음에는 나눈 선분으로 넣는다 (scratch는 나눈 선분을 담을 호출한 쪽의 객체)
+        private void relayCurve(StrokeCurve curve, DrawSegment scratch) {
+            CURVE_MESSAGES.increment();
+            int dropped = curve.simplify(strokeTolerance);
+            if (dropped > 0) {
+                CURVE_POINTS_SIMPLIFIED.add(dropped);
+                SIMPLIFY_BYTES_SAVED.add((long) dropped * CanvasCodec.POINT_CHARS * clients.size());
+            }
+            CURVE_SPANS.add(curve.spans());
+            canvas.appendCurve(curve);
+            compactCanvas();
+            curve.flatten(scratch, this::recordSegment);
+            String message = curve.encode();
+            for (ClientHandler client : clients) {
+                client.sendMessage(message);
+            }
+        }
+
+        // 나중에 들어온 연결, 그림 저장, 게임 기록, 관전자를 위해 선분을 남긴다
+        private void keepSegment(DrawSegment segment) {
+            canvas.append(segment);
+            compactCanvas();
+            recordSegment(segment);
+        }
+
+        private void recordSegment(DrawSegment segment) {
+            GameRecorder recorder = this.recorder;
+            if (recorder != null) {
+                recorder.stroke(segment);
+            }
+            if (hasSpectators()) {
+                spectatorFeed.add(segment);
+            }
+        }
+
+        // 선분이 keyframeSegments개 쌓이면 키프레임 스레드에서 이미지로 굳힌다 (여기서는 선분을 복사만 한다)
+        // 다시 맞추는 세션과 새 관전자는 키프레임 하나와 그 뒤의 선분만 받으므로 오래 그려도 보낼 양이 늘지 않는다
+        private void compactCanvas() {
+            if (config.keyframeSegments == 0) {
+                return;
+            }
+            RoomCanvas.Snapshot folded = canvas.beginKeyframe(config.keyframeSegments);
+            if (folded != null) {
+                keyframeExecutor.execute(() -> canvas.finishKeyframe(folded, CanvasKeyframe.render(folded)));
+            }
+        }
+
+        // 채우기는 모든 연결에 TCP로 보낸다 - 받는 쪽마다 같은 캔버스에 같은 채우기를 해서 결과가 같다
+        private void relayFill(DrawSegment seed) {
+            canvas.appendFill(seed);
+            compactCanvas();
+            GameRecorder recorder = this.recorder;
+            if (recorder != null) {
+                recorder.fill(seed);
+            }
+            broadcastMessage(seed.encodeFill());
+        }
+
+        private void flushStrokes() {
+            for (ClientHandler client : clients) {
+                client.flushHeldStrokes();
+            }
+        }
+
+        // 모든 연결에 PING을 보내고, 응답 없는 연결을 정리하고, RTT를 알린다
+        private void heartbeat(long now) {
+            StringBuilder rttInfo = new StringBuilder(Constants.CMD_RTT);
+            for (ClientHandler client : clients) {
+                if (client.getNickname() == null || client.suspended) {
+                    continue;  // 보류 중인 세션은 유예 시간이 끝나면 정리된다
+                }
+                if (client.missedBeats >= config.heartbeatMaxMissed) {
+                    REAPED.increment();
+                    System.out.println("응답이 없는 연결을 정리합니다: " + client.getNickname());
+                    client.close();  // 읽기 스레드가 깨어나 disconnect()를 처리한다
+                    continue;
+                }
+                client.missedBeats++;
+                client.sendMessage(Constants.CMD_PING + Constants.DELIMITER + now);
+                if (client.rttMillis >= 0) {
+                    rttInfo.append(Constants.DELIMITER)
+                           .append(client.getNickname())
+                           .append(",")
+                           .append(client.rttMillis);
+                }
+            }
+            // 관전자는 RTT 목록에 넣지 않고 응답 없는 연결만 정리한다
+            for (ClientHandler spectator : spectators) {
+                if (spectator.missedBeats >= config.heartbeatMaxMissed) {
+                    REAPED.increment();
+                    spectator.close();
+                    continue;
+                }
+                spectator.missedBeats++;
+                spectator.sendMessage(Constants.CMD_PING + Constants.DELIMITER + now);
+            }
+            ClientHandler[] waiting;
+            synchronized (admissionLock) {
+                waiting = waitingQueue.toArray(new ClientHandler[0]);
+            }
+            for (ClientHandler waiter : waiting) {
+                pingWaiter(waiter, now);
+            }
+            if (rttInfo.length() > Constants.CMD_RTT.length()) {
+                broadcastMessage(rttInfo.toString());
+            }
+        }
+
+        // 자리를 준다 - 대기 루프를 돌던 그 연결의 스레드가 이어서 입장한다 (admissionLock을 잡고 부른다)
+        private void seat(ClientHandler clientHandler) {
+            clients.add(clientHandler);
+            ADMITTED.increment();
+            clientHandler.seated = true;
+        }
+
+        // 자리가 나면 대기열 앞에서부터 입장시키고 남은 대기자에게 순번을 다시 알린다
+        private void admitWaiting() {
+            synchronized (admissionLock) {
+                boolean moved = false;
+                while (clients.size() < config.maxConnections && !waitingQueue.isEmpty()) {
+                    ClientHandler next = waitingQueue.pollFirst();
+                    moved = true;
+                    if (next.isClosed()) {
+                        leaveRoom(next);   // 기다리다 끊긴 연결
+                    } else {
+                        seat(next);
+                    }
+                }
+                if (moved) {
+                    int position = 1;
+                    for (ClientHandler waiting : waitingQueue) {
+                        waiting.sendMessage(Constants.CMD_BUSY + Constants.DELIMITER + position++);
+                    }
+                }
+            }
+        }
+
+        // 입장 중인 관전자도 센다 - 캔버스 스냅샷을 보낸 뒤 목록에 들어가기 전까지의 메시지를 놓치지 않도록
+        private boolean hasSpectators() {
+            return watchers.get() > 0;
+        }
+
+        // 관전자에게는 SpectatorFeed의 낮은 우선순위 스레드가 선분 묶음과 순서를 맞춰 보낸다
+        private void broadcastMessage(String message) {
+            for (ClientHandler client : clients) {
+                client.sendMessage(message);
+            }
+            if (hasSpectators()) {
+                spectatorFeed.broadcast(message);
+            }
+        }
+        public synchronized void handleReady(ClientHandler client) {
             if (!isGameRunning) {
                 if (readyPlayers.contains(client)) {
                     readyPlayers.remove(client);
                 } else {
                     readyPlayers.add(client);
                 }
-                broadcastReadyStatus();
+                if (journal != null) {
+                    journal.ready(name, client.getNickname(), readyPlayers.contains(client));
+                }
+                markPlayersDirty();
                 
                 // 모든 플레이어가 준비되었는지 확인
-                if (readyPlayers.size() == clients.size() && clients.size() >= Constants.MIN_PLAYERS) {
+                if (readyPlayers.size() == clients.size() && clients.size() >= config.minPlayers) {
                     startGame();
                 }
             }
         }
         
-        private void broadcastReadyStatus() {
-            StringBuilder statusMsg = new StringBuilder(Constants.CMD_READY_STATUS);
+        // 나간 플레이어를 준비 목록에서 빼고, 남은 인원이 모두 준비됐으면 시작한다
+        public synchronized void removePlayer(ClientHandler client) {
+            readyPlayers.remove(client);
+            if (recorder != null) {
+                recorder.leave(client.getNickname());
+            }
+            if (journal != null) {
+                journal.leave(this.name, client.getNickname());
+            }
+            markPlayersDirty();
+            if (!isGameRunning && readyPlayers.size() == clients.size() && clients.size() >= config.minPlayers) {
+                startGame();
+            }
+        }
+
+        // 새로 들어온 플레이어의 닉네임을 겹치지 않게 정하고, 마지막으로 발행한 전체 상태를 보낸다
+        public synchronized String addPlayer(ClientHandler client, String requestedName) {
+            String name = requestedName;
+            for (int suffix = 2; isNicknameTaken(name); suffix++) {
+                name = requestedName + suffix;
+            }
+            client.nickname = name;
+            client.sendMessage(playerSnapshot());
+            client.stateSynced = true;
+            markPlayersDirty();
+            if (recorder != null) {
+                recorder.join(name);
+            }
+            if (journal != null) {
+                journal.join(this.name, name, client.sessionToken);
+            }
+            if (expectedPlayers > 0 && !isGameRunning && syncedPlayers() >= expectedPlayers) {
+                expectedPlayers = 0;
+                startGame();
+            }
+            return name;
+        }
+
+        // 자동 매칭으로 만든 방 - 묶인 인원이 모두 들어오면 바로 시작한다
+        public synchronized void expectPlayers(int count) {
+            expectedPlayers = count;
+        }
+
+        // 저널에서 복구한 상태를 넣는다 (플레이어는 이미 보류한 세션으로 들어와 있다)
+        // 진행 중이던 라운드는 남은 시간으로 이어가되, 플레이어가 다시 붙을 시간만큼은 남겨둔다. 캔버스는 저널에 없어 빈 채로 시작한다
+        public synchronized void restore(RoomJournal.RoomState state) {
+            for (ClientHandler client : clients) {
+                RoomJournal.PlayerState player = state.players.get(client.getNickname());
+                if (player != null && player.ready) {
+                    readyPlayers.add(client);
+                }
+            }
+            markPlayersDirty();
+            if (!state.running) {
+                return;
+            }
+            if (state.round < 1 || state.words.size() < config.totalRounds) {
+                journal.gameEnd(name);   // 라운드 설정이 바뀌어 이어갈 수 없는 게임 - 대기 상태로 돌린다
+                return;
+            }
+            isGameRunning = true;
+            currentRound = state.round;
+            currentWord = state.word;
+            wordList = new ArrayList<>(state.words);
+            currentDrawerIndex = 0;
+            for (int i = 0; i < clients.size(); i++) {
+                if (clients.get(i).getNickname().equals(state.drawer)) {
+                    currentDrawerIndex = i;
+                }
+            }
+            roundStartedAt = System.currentTimeMillis();
+            roundDeadline = Math.max(state.deadline, roundStartedAt + config.sessionGraceMillis);
+            canvas.startRound();
+            startTimer();
+        }
+
+        private int syncedPlayers() {
+            int count = 0;
+            for (ClientHandler client : clients) {
+                if (client.stateSynced) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        // 마지막으로 발행한 전체 플레이어 상태
+        private String playerSnapshot() {
+            StringBuilder snapshot = new StringBuilder(Constants.CMD_PLAYERS)
+                .append(Constants.DELIMITER).append(stateVersion);
+            for (Map.Entry<String, String> entry : publishedState.entrySet()) {
+                snapshot.append(Constants.DELIMITER).append(entry.getKey()).append(",").append(entry.getValue());
+            }
+            return snapshot.toString();
+        }
+
+        // 새 관전자가 캔버스보다 먼저 받을 상태 - 플레이어 목록과 진행 중인 라운드 (제시어는 숨긴다)
+        public synchronized List<String> spectatorSnapshot() {
+            List<String> messages = new ArrayList<>();
+            messages.add(playerSnapshot());
+            if (isGameRunning) {
+                messages.add(Constants.CMD_ROUND + Constants.DELIMITER + currentRound
+                    + Constants.DELIMITER + config.totalRounds);
+                messages.add(hiddenStartMessage());
+            }
+            return messages;
+        }
+
+        // 재전송 버퍼로 메울 수 없을 만큼 놓친 세션에 보내는 현재 상태 전체 (캔버스 포함)
+        public synchronized List<String> resyncMessages(ClientHandler client) {
+            List<String> messages = new ArrayList<>();
+            messages.add(playerSnapshot());
+            if (isGameRunning) {
+                messages.add(Constants.CMD_ROUND + Constants.DELIMITER + currentRound
+                    + Constants.DELIMITER + config.totalRounds);
+                boolean drawer = clients.indexOf(client) == currentDrawerIndex;
+                messages.add(drawer
+                    ? Constants.CMD_START + Constants.DELIMITER + currentWord + Constants.DELIMITER + config.gameTimeSeconds
+                        + Constants.DELIMITER + "true" + Constants.DELIMITER + roundDeadline
+                    : hiddenStartMessage());
+            }
+            messages.add(Constants.CMD_CLEAR + Constants.DELIMITER + (drawEpoch.get() & 0xFFFF));
+            messages.addAll(SpectatorFeed.encode(canvas.snapshot(), 0));
+            return messages;
+        }
+
+        private String hiddenStartMessage() {
+            return Constants.CMD_START + Constants.DELIMITER + "?????" + Constants.DELIMITER + config.gameTimeSeconds
+                + Constants.DELIMITER + "false" + Constants.DELIMITER + roundDeadline;
+        }
+
+        private boolean isNicknameTaken(String name) {
             for (ClientHandler client : clients) {
-                statusMsg.append(Constants.DELIMITER)
-                        .append(client.getNickname())
-                        .append(",")
-                        .append(readyPlayers.contains(client) ? "1" : "0");
+                if (client.stateSynced && name.equals(client.getNickname())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public void markPlayersDirty() {
+            playersDirty = true;
+        }
+
+        // 바뀐 플레이어 상태만 버전이 붙은 델타로 보낸다 ("-닉네임"은 퇴장)
+        public synchronized void publishPlayerState() {
+            if (!playersDirty) {
+                return;
+            }
+            playersDirty = false;
+
+            StringBuilder delta = new StringBuilder();
+            Set<String> present = new HashSet<>();
+            for (ClientHandler client : clients) {
+                if (!client.stateSynced) {
+                    continue;
+                }
+                String name = client.getNickname();
+                String value = client.getScore() + "," + (readyPlayers.contains(client) ? "1" : "0");
+                present.add(name);
+                if (!value.equals(publishedState.put(name, value))) {
+                    delta.append(Constants.DELIMITER).append(name).append(",").append(value);
+                }
+            }
+            Iterator<String> names = publishedState.keySet().iterator();
+            while (names.hasNext()) {
+                String name = names.next();
+                if (!present.contains(name)) {
+                    names.remove();
+                    delta.append(Constants.DELIMITER).append("-").append(name);
+                }
+            }
+            if (delta.length() == 0) {
+                return;
+            }
+
+            stateVersion++;
+            String message = Constants.CMD_PLAYERS_DELTA + Constants.DELIMITER + stateVersion + delta;
+            for (ClientHandler client : clients) {
+                if (client.stateSynced) {
+                    client.sendMessage(message);
+                }
+            }
+            if (hasSpectators()) {
+                spectatorFeed.broadcast(message);
             }
-            broadcastMessage(statusMsg.toString());
         }
      // 제시어 목록도 더 추가해봅시다
         private List<String> initializeWordList() {
@@ -95,21 +992,48 @@ public class Server {
             return words;
         }
 
-        public void startGame() {
-            if (clients.size() >= Constants.MIN_PLAYERS) {
+        public synchronized void startGame() {
+            if (clients.size() >= config.minPlayers) {
                 isGameRunning = true;
                 currentRound = 1;
                 readyPlayers.clear();
+                guessTimes.clear();
                 currentDrawerIndex = 0;  // 명시적으로 첫 출제자 설정
                 Collections.shuffle(wordList);
+                if (journal != null) {
+                    journal.gameStart(name, wordList);
+                }
                 System.out.println("게임 시작! 현재 플레이어 수: " + clients.size()); // 디버그 로그
+                if (exporter != null) {
+                    exportDirectory = Paths.get(config.exportDirectory, "game-" + System.currentTimeMillis());
+                    exportedRounds = new ArrayList<>();
+                    exportCaptions = new ArrayList<>();
+                    pendingExports = new ArrayList<>();
+                }
+                if (config.recordingEnabled) {
+                    recorder = GameRecorder.start(Paths.get(config.recordingDirectory), config.recordingQueueCapacity);
+                    for (ClientHandler client : clients) {
+                        if (client.stateSynced) {
+                            recorder.join(client.getNickname());
+                        }
+                    }
+                }
                 startRound();
             }
         }
         private void startRound() {
-            if (currentRound <= Constants.TOTAL_ROUNDS) {
+            if (currentRound <= config.totalRounds) {
                 currentWord = wordList.get(currentRound - 1);
-                timeLeft = Constants.GAME_TIME_SECONDS;
+                roundStartedAt = System.currentTimeMillis();
+                roundDeadline = roundStartedAt + config.gameTimeSeconds * 1000L;
+                canvas.startRound();
+                if (recorder != null) {
+                    recorder.roundStart(currentRound, clients.get(currentDrawerIndex).getNickname(), currentWord);
+                }
+                if (journal != null) {
+                    journal.roundStart(name, currentRound, clients.get(currentDrawerIndex).getNickname(), currentWord,
+                        roundDeadline);
+                }
                 broadcastGameState();
                 startTimer();
             } else {
@@ -117,40 +1041,82 @@ public class Server {
             }
         }
 
+        // 클라이언트가 종료 시각을 보고 직접 카운트다운하므로 매초 TIMER를 보내지 않는다
         private void startTimer() {
-            if (gameTimer != null) {
-                gameTimer.cancel();
+            cancelTimer();
+
+            final int round = currentRound;
+            roundEndTask = scheduler.schedule(() -> onRoundTimeout(round),
+                roundDeadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+            resyncTask = scheduler.scheduleAtFixedRate(
+                () -> broadcastMessage(Constants.CMD_TIMER + Constants.DELIMITER + roundDeadline),
+                config.timerResyncSeconds, config.timerResyncSeconds, TimeUnit.SECONDS);
+        }
+
+        private void cancelTimer() {
+            if (roundEndTask != null) {
+                roundEndTask.cancel(false);
+                roundEndTask = null;
+            }
+            if (resyncTask != null) {
+                resyncTask.cancel(false);
+                resyncTask = null;
             }
-            
-            gameTimer = new Timer();
-            gameTimer.scheduleAtFixedRate(new TimerTask() {
-                @Override
-                public void run() {
-                    timeLeft--;
-                    broadcastMessage(Constants.CMD_TIMER + Constants.DELIMITER + timeLeft);
-                    
-                    if (timeLeft <= 0) {
-                        nextRound();
-                    }
-                }
-            }, 1000, 1000);
         }
 
-        private void nextRound() {
-            if (gameTimer != null) {
-                gameTimer.cancel();
+        // 정답으로 이미 넘어간 라운드의 종료 작업은 무시한다
+        private synchronized void onRoundTimeout(int round) {
+            if (isGameRunning && currentRound == round) {
+                nextRound();
             }
-            
+        }
+
+        private void nextRound() {
+            cancelTimer();
+            flushStrokes();  // 끝난 라운드의 선분이 다음 라운드 캔버스에 섞이지 않게
+            // 라운드 종료는 서버가 확정해서 알린다
+            broadcastMessage(Constants.CMD_ROUND_END + Constants.DELIMITER + currentRound);
+            exportRound();
+
             currentRound++;
             currentDrawerIndex = (currentDrawerIndex + 1) % clients.size();
             
-            if (currentRound <= Constants.TOTAL_ROUNDS) {
+            if (currentRound <= config.totalRounds) {
                 startRound();
             } else {
                 endGame();
             }
         }
 
+        // 이번 라운드의 마지막 그림을 저장 풀에 넘긴다 (게임 스레드에서는 스냅샷만 복사한다)
+        private void exportRound() {
+            if (exporter == null || exportDirectory == null) {
+                return;
+            }
+            RoomCanvas.Snapshot strokes = canvas.snapshotRound();
+            exportedRounds.add(strokes);
+            exportCaptions.add(currentRound + ". " + currentWord);
+            pendingExports.add(exporter.exportRound(strokes, exportDirectory.resolve("round-" + currentRound + ".png")));
+        }
+
+        // 요약 이미지를 맡기고 기다리지 않는다 - 모두 저장되면 그때 알린다
+        private void exportSummary() {
+            if (exporter == null || exportDirectory == null || exportedRounds.isEmpty()) {
+                return;
+            }
+            Path directory = exportDirectory;
+            int count = exportedRounds.size();
+            List<CompletableFuture<Path>> all = new ArrayList<>(pendingExports);
+            all.add(exporter.exportSummary(exportedRounds, exportCaptions, directory.resolve("summary.png")));
+            CompletableFuture.allOf(all.toArray(new CompletableFuture<?>[0])).whenComplete((done, error) -> {
+                if (error == null) {
+                    System.out.println("게임 그림 저장 완료: " + directory.toAbsolutePath());
+                    broadcastMessage(Constants.CMD_CHAT + Constants.DELIMITER + "이번 게임 그림 " + count + "장을 저장했습니다.");
+                }
+            });
+            exportDirectory = null;
+        }
+
         private void endGame() {
             isGameRunning = false;
             
@@ -161,11 +1127,22 @@ public class Server {
             readyPlayers.clear();
             
             // 타이머 정리
-            if (gameTimer != null) {
-                gameTimer.cancel();
-                gameTimer = null;
+            cancelTimer();
+
+            // 최종 점수가 GAME_OVER보다 먼저 도착하도록 밀린 변경을 바로 발행
+            publishPlayerState();
+
+            if (recorder != null) {
+                recorder.finish();
+                recorder = null;
+            }
+            if (journal != null) {
+                journal.gameEnd(name);
             }
+            exportSummary();
             
+            recordStats();
+
             // 모든 플레이어의 점수 초기화
             for (ClientHandler client : clients) {
                 client.resetScore(); // ClientHandler에 새로운 메소드 추가 필요
@@ -175,17 +1152,46 @@ public class Server {
             broadcastMessage(Constants.CMD_GAME_OVER);
             
             // 플레이어 목록 업데이트 (점수 초기화 반영)
-            updatePlayerList();
+            markPlayersDirty();
             
             // 새로운 단어 목록 준비
             wordList = initializeWordList();
         }
 
-        public void checkAnswer(String answer, ClientHandler client) {
+        // 이번 게임 결과를 전적에 넘기고 (쓰기는 기록 스레드가 한다) 전체 순위를 알린다 - GAME_OVER보다 먼저 보낸다
+        private void recordStats() {
+            if (stats == null) {
+                return;
+            }
+            int best = 0;
+            for (ClientHandler client : clients) {
+                best = Math.max(best, client.getScore());
+            }
+            for (ClientHandler client : clients) {
+                if (!client.stateSynced || client.getNickname() == null) {
+                    continue;
+                }
+                long[] guessed = guessTimes.getOrDefault(client.getNickname(), new long[2]);
+                stats.recordGame(client.getNickname(), client.getScore(), best > 0 && client.getScore() == best,
+                    (int) guessed[0], guessed[1]);
+            }
+            guessTimes.clear();
+            StringBuilder board = new StringBuilder(Constants.CMD_LEADERBOARD);
+            for (PlayerStatsStore.PlayerStats entry : stats.leaderboard()) {
+                board.append(Constants.DELIMITER).append(entry.nickname).append(',').append(entry.points)
+                     .append(',').append(entry.wins).append(',').append(entry.gamesPlayed);
+            }
+            broadcastMessage(board.toString());
+        }
+
+        public synchronized void checkAnswer(String answer, ClientHandler client) {
             if (isGameRunning && answer.trim().equals(currentWord) && 
                 clients.indexOf(client) != currentDrawerIndex) {
                 // 정답자에게 점수 부여
                 client.addScore(GUESSER_POINTS);
+                long[] guessed = guessTimes.computeIfAbsent(client.getNickname(), k -> new long[2]);
+                guessed[0]++;
+                guessed[1] += System.currentTimeMillis() - roundStartedAt;
                 // 출제자에게도 점수 부여
                 clients.get(currentDrawerIndex).addScore(DRAWER_POINTS);
                 
@@ -195,9 +1201,6 @@ public class Server {
                 broadcastMessage(Constants.CMD_CHAT + Constants.DELIMITER + 
                     clients.get(currentDrawerIndex).getNickname() + "님이 " + DRAWER_POINTS + "점을 획득했습니다!");
                 
-                // 플레이어 점수 업데이트
-                updatePlayerList();
-                
                 // 다음 라운드로
                 nextRound();
             }
@@ -212,139 +1215,950 @@ public class Server {
                 "현재 출제자는 " + currentDrawer.getNickname() + "님 입니다.");
             
             // 현재 라운드 정보 전송
-            broadcastMessage(Constants.CMD_ROUND + Constants.DELIMITER + currentRound);
+            broadcastMessage(Constants.CMD_ROUND + Constants.DELIMITER + currentRound
+                + Constants.DELIMITER + config.totalRounds);
             
-            // 출제자에게 제시어 전송
+            // 출제자에게 제시어 전송 (마지막 필드는 서버 시계 기준 라운드 종료 시각)
             currentDrawer.sendMessage(Constants.CMD_START + Constants.DELIMITER + 
-                currentWord + Constants.DELIMITER + timeLeft + Constants.DELIMITER + "true");  // "true" 큰따옴표 확인
+                currentWord + Constants.DELIMITER + config.gameTimeSeconds + Constants.DELIMITER + "true"
+                + Constants.DELIMITER + roundDeadline);  // "true" 큰따옴표 확인
             
-            // 다른 플레이어들에게는 "?????" 전송
+            // 다른 플레이어들과 관전자에게는 "?????" 전송
+            String hidden = hiddenStartMessage();
             for (ClientHandler client : clients) {
                 if (client != currentDrawer) {
-                    client.sendMessage(Constants.CMD_START + Constants.DELIMITER + 
-                        "?????" + Constants.DELIMITER + timeLeft + Constants.DELIMITER + "false");  // "false" 큰따옴표 확인
+                    client.sendMessage(hidden);
                 }
             }
+            if (hasSpectators()) {
+                spectatorFeed.broadcast(hidden);
+            }
         }
     }
 
     // 클라이언트 핸들러 클래스
-    private class ClientHandler implements Runnable {
+    private class ClientHandler implements Runnable, SpectatorFeed.Viewer {
         private Socket socket;
-        private BufferedReader reader;
+        private FrameReader reader;
         private PrintWriter writer;
+        // 쓰기 상태 - 여러 스레드가 보내므로 writeLock으로 묶는다 (압축 전환 시 순서 보장)
+        private final Object writeLock = new Object();
+        private StreamCompression compression;
+        private boolean flushScheduled;
+        private boolean writeClosed;
+        // UDP 선분 채널 - HELLO로 주소를 받고, 클라이언트가 UDP//on을 보내면 선분을 UDP로 보낸다
+        // 세션을 넘기거나 보류하면 udpStream이 null이 되므로 다른 스레드는 지역 변수로 한 번만 읽는다
+        private volatile StrokeStream udpStream;
+        private volatile SocketAddress udpAddress;
+        private volatile boolean udpActive;
         private String nickname;
+        private String requestedName;      // 로그인 때 받은 닉네임 - 대기열에서 나중에 입장할 때 쓴다
+        private GameRoom room;             // 로그인 때 고른 방 (이어받은 연결은 방을 고르지 않는다)
+        private boolean inRoom;            // 방 인원에 들어 있는지 (admissionLock)
+        private boolean matching;          // 자동 매칭을 기다리는 연결
+        private volatile boolean spectator;
+        // 세션 - 보내는 메시지마다 암묵적인 순번을 매겨 최근 것을 재전송 버퍼에 남긴다 (writeLock)
+        // 클라이언트는 LOGIN_OK 뒤로 받은 프레임 수를 세어 다시 연결할 때 lastSeq로 알려준다
+        private long sessionToken;
+        private String[] replay;
+        private long sentSeq;
+        private int connection;            // 연결을 이어받을 때마다 증가 - 이전 읽기 스레드의 정리를 막는다
+        private volatile boolean suspended;
+        private boolean expired;
+        private volatile boolean noResume; // 전송 제한으로 끊은 연결은 보류하지 않는다
+        private boolean recovered;         // 저널에서 복구한 세션 - 순번이 이전 서버의 것이라 처음 붙을 때는 전체 상태를 보낸다
+        private ScheduledFuture<?> expiryTask;
+        private ClientHandler resumed;     // 이 연결이 이어받은 세션 (로그인 직후에만 쓴다)
         private int score;
+        // 하트비트 상태 - 스케줄러와 읽기 스레드가 함께 접근한다
+        private volatile int missedBeats;
+        private volatile boolean seated;      // 대기열이나 자동 매칭에서 자리를 받았다 (대기 루프가 보고 입장한다)
+        private volatile long rttMillis = -1;
+        private volatile boolean stateSynced;   // 전체 플레이어 상태를 받은 뒤부터 델타를 받는다
+
+        // 속도 제한 상태 - 읽기 루프 스레드에서만 접근한다
+        private final TokenBucket chatLimiter;
+        private final TokenBucket drawLimiter;
+        private int violations;
+        private long lastViolationTime;
+        private long throttledUntil;
+        private final DrawSegment segment = new DrawSegment();     // 수신한 선분 (재사용)
+        private final DrawSegment coalesced = new DrawSegment();   // 제한 중 합쳐둔 선분 (이 객체로 잠근다 - 틱에서도 내보낸다)
+        private final StrokeCurve curve = new StrokeCurve();        // 수신한 곡선 (재사용)
+        // 제한 중 붙잡아 둔 곡선과 채우기 (coalesced로 잠근다 - 순서를 지키려고 합쳐둔 선분을 포함해 한 가지만 붙잡는다)
+        private final StrokeCurve heldCurve = new StrokeCurve();
+        private final DrawSegment heldFill = new DrawSegment();
+        private final DrawSegment heldScratch = new DrawSegment();  // 틱에서 붙잡아 둔 곡선을 나눌 때 쓴다
+        private boolean hasHeldCurve;
+        private boolean hasHeldFill;
+        private final StrokeSimplifier simplifier = new StrokeSimplifier();
+        private volatile int samplingLevel;   // 클라이언트가 알린 그림 전송 단계 (0이 최고)
+        private boolean hasCoalesced;
+        // UDP로 받아 아직 중계하지 않은 선분 (udpInbox로 잠근다)
+        private final ArrayDeque<ReceivedStrokes> udpInbox = new ArrayDeque<>();
+        private int udpInboxSegments;
+        private boolean udpDraining;
 
         public ClientHandler(Socket socket) throws IOException {
             this.socket = socket;
-            this.reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-            this.writer = new PrintWriter(socket.getOutputStream(), true);
+            this.reader = new FrameReader(socket.getInputStream(), config.maxFrameLength);
+            this.writer = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
             this.score = 0;
+            this.chatLimiter = new TokenBucket(config.chatRatePerSecond, config.chatBurst);
+            this.drawLimiter = new TokenBucket(config.drawRatePerSecond, config.drawBurst);
+        }
+        // 저널에서 복구한 플레이어 - 연결 없이 만들고 suspendRecovered()로 보류한다 (다시 붙으면 attach()가 연결을 넣는다)
+        public ClientHandler(RoomJournal.PlayerState player) {
+            this.socket = new Socket();   // 연결하지 않은 자리 표시 - 닫기만 한다
+            this.chatLimiter = new TokenBucket(config.chatRatePerSecond, config.chatBurst);
+            this.drawLimiter = new TokenBucket(config.drawRatePerSecond, config.drawBurst);
+            this.requestedName = player.nickname;
+            this.nickname = player.nickname;
+            this.sessionToken = player.token;
+            this.replay = new String[config.sessionReplayCapacity];
+            this.score = player.score;
+            this.stateSynced = true;
+            this.recovered = true;
         }
+
         public void resetScore() {
             this.score = 0;
         }
 
+        // 대기열에 들어간 연결은 읽기 스레드를 돌려주고, 자리가 나면 room.admitWaiting()이 다시 실행한다
         @Override
         public void run() {
             try {
-                // 첫 메시지로 닉네임 받기
-                nickname = reader.readLine();
-                broadcastMessage(Constants.CMD_CHAT + Constants.DELIMITER + 
+                if (requestedName == null) {
+                    if (!login()) {
+                        disconnect();
+                        return;
+                    }
+                    if (resumed != null) {
+                        resumed.serve();  // 이 스레드가 이어받은 세션의 읽기 스레드가 된다
+                        return;
+                    }
+                    if (matching) {
+                        int waiting = matchmaker.enqueue(this, System.currentTimeMillis());
+                        sendMessage(Constants.CMD_MATCHING + Constants.DELIMITER + waiting);
+                        if (!awaitSeat()) {  // 묶이면 matchPlayers()가 새 방에 자리를 준다
+                            disconnect();
+                            return;
+                        }
+                    } else if (!spectator && !claimSeat() && (isClosed() || !awaitSeat())) {
+                        disconnect();
+                        return;
+                    }
+                }
+            } catch (IOException e) {
+                System.out.println("클라이언트 연결 에러: " + e.getMessage());
+                disconnect();
+                return;
+            }
+            if (spectator) {
+                nickname = requestedName;
+                room.spectatorFeed.join(this, room::spectatorSnapshot, this::registerSpectator);
+                SPECTATOR_JOINED.increment();
+                System.out.println("관전자 입장: " + nickname);
+            } else {
+                nickname = room.addPlayer(this, requestedName);
+                room.broadcastMessage(Constants.CMD_CHAT + Constants.DELIMITER + 
                     nickname + "님이 입장하셨습니다.");
-                updatePlayerList();
-
-   
-                
+            }
+            serve();
+        }
 
+        // 읽기 루프 - 끊기면 세션이 있는 플레이어는 보류하고, 아니면 퇴장 처리한다
+        // 세션을 이어받으면 reader가 바뀌므로 시작할 때의 reader와 연결 번호로만 읽고 정리한다
+        private void serve() {
+            FrameReader in;
+            StreamCompression ownCompression;
+            int own;
+            synchronized (writeLock) {
+                in = reader;
+                ownCompression = compression;
+                own = connection;
+            }
+            try {
                 String message;
-                while ((message = reader.readLine()) != null) {
-                    processMessage(message);
+                while ((message = in.readFrame()) != null) {
+                    missedBeats = 0;  // 어떤 프레임이든 받으면 살아있는 연결로 본다
+                    // 제한 초과로 지연 상태면 읽기를 늦춰 송신 측에 배압을 건다
+                    long delay = throttledUntil - System.currentTimeMillis();
+                    if (delay > 0) {
+                        Thread.sleep(delay);
+                    }
+                    try {
+                        processMessage(message);
+                    } catch (RuntimeException e) {
+                        // 잘못된 메시지 하나 때문에 연결 전체를 끊지 않는다
+                        System.out.println("메시지 처리 에러 (" + nickname + "): " + e);
+                    }
                 }
             } catch (IOException e) {
                 System.out.println("클라이언트 연결 에러: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             } finally {
+                connectionLost(own, ownCompression);
+            }
+        }
+
+        private void connectionLost(int own, StreamCompression ownCompression) {
+            synchronized (writeLock) {
+                if (own != connection) {
+                    // 새 연결이 이미 세션을 이어받았다 - 이 연결의 압축기만 정리한다
+                    if (ownCompression != null) {
+                        endCompression(ownCompression);
+                    }
+                    return;
+                }
+            }
+            if (!suspend(own)) {
                 disconnect();
             }
         }
 
-        private void processMessage(String message) {
+        // 세션이 있는 플레이어는 바로 내보내지 않고 유예 시간 동안 자리, 점수, 출제 순서를 지켜둔다
+        // 그동안 보내는 메시지는 재전송 버퍼에만 쌓인다
+        private boolean suspend(int own) {
+            synchronized (writeLock) {
+                if (sessionToken == 0 || noResume || !stateSynced || own != connection || !room.clients.contains(this)) {
+                    return false;
+                }
+                // 이어받기와 겹치지 않도록 연결 정리까지 잠금 안에서 한다
+                suspendLocked();
+            }
+            SESSION_SUSPENDED.increment();
+            System.out.println("연결이 끊긴 세션을 보류합니다: " + nickname);
+            room.broadcastMessage(Constants.CMD_CHAT + Constants.DELIMITER +
+                nickname + "님의 연결이 끊겼습니다. 잠시 기다립니다.");
+            return true;
+        }
+
+        private void suspendRecovered() {
+            synchronized (writeLock) {
+                suspendLocked();
+            }
+            SESSION_SUSPENDED.increment();
+        }
+
+        private void suspendLocked() {
+            suspended = true;
+            udpActive = false;
+            close();
+            closeCompression();
+            if (udpStream != null) {
+                udpSessions.remove(udpStream.getToken());
+            }
+            final int own = connection;
+            expiryTask = scheduler.schedule(() -> expire(own), config.sessionGraceMillis, TimeUnit.MILLISECONDS);
+        }
+
+        // 유예 시간 안에 돌아오지 않으면 그때 퇴장 처리한다
+        private void expire(int own) {
+            synchronized (writeLock) {
+                if (!suspended || own != connection) {
+                    return;
+                }
+                suspended = false;
+                expired = true;
+            }
+            SESSION_EXPIRED.increment();
+            disconnect();
+        }
+
+        // 다시 연결한 클라이언트의 소켓을 이 세션으로 옮기고, LOGIN_OK 뒤에 놓친 메시지만 다시 보낸다
+        // 놓친 메시지가 재전송 버퍼보다 많으면 현재 상태 전체(플레이어, 라운드, 캔버스)를 보낸다
+        // 이전 연결이 아직 살아있는 것으로 보이면 (반쯤 끊긴 연결) 닫고 이어받는다
+        private boolean attach(ClientHandler fresh, LoginRequest request) throws IOException {
+            long lastSeq = DrawSegment.parseLong(request.option("lastSeq"));
+            Socket previous;
+            boolean replayable;
+            synchronized (writeLock) {
+                if (expired || noResume || !stateSynced) {
+                    return false;
+                }
+                previous = socket;
+                socket = fresh.socket;
+                reader = fresh.reader;
+                writer = fresh.writer;
+                compression = null;   // 이전 압축기는 이전 읽기 스레드가 정리한다
+                flushScheduled = false;
+                writeClosed = false;
+                suspended = false;
+                connection++;
+                missedBeats = 0;
+                if (expiryTask != null) {
+                    expiryTask.cancel(false);
+                    expiryTask = null;
+                }
+                if (udpStream != null) {
+                    udpSessions.remove(udpStream.getToken());
+                    udpStream = null;
+                }
+                udpActive = false;
+                udpAddress = null;
+                replayable = !recovered && lastSeq >= 0 && lastSeq <= sentSeq && sentSeq - lastSeq <= replay.length;
+                recovered = false;
+                try {
+                    negotiate(request, replayable ? lastSeq : sentSeq, true);
+                } catch (IOException e) {
+                    suspendLocked();  // 새 연결도 끊겼다 - 남은 유예 시간을 다시 센다
+                    throw e;
+                }
+                if (replayable) {
+                    for (long seq = lastSeq + 1; seq <= sentSeq; seq++) {
+                        writer.println(replay[(int) (seq % replay.length)]);
+                    }
+                    writer.flush();
+                    SESSION_REPLAYED.add(sentSeq - lastSeq);
+                }
+            }
+            if (previous != socket) {
+                try {
+                    previous.close();
+                } catch (IOException e) {
+                    System.out.println("이전 연결 종료 에러: " + e.getMessage());
+                }
+            }
+            if (!replayable) {
+                SESSION_RESYNCED.increment();
+                for (String message : room.resyncMessages(this)) {
+                    sendMessage(message);
+                }
+            }
+            SESSION_RESUMED.increment();
+            System.out.println("세션을 이어받았습니다: " + nickname + (replayable ? "" : " (전체 상태 재전송)"));
+            room.broadcastMessage(Constants.CMD_CHAT + Constants.DELIMITER + nickname + "님이 다시 연결되었습니다.");
+            return true;
+        }
+
+        // 첫 메시지로 로그인 받기 (예전 클라이언트는 닉네임만 보낸다)
+        // 관전자 자리는 협상 전에 확인해서, 없으면 압축하지 않은 BUSY//0으로 거절한다
+        private boolean login() throws IOException {
+            socket.setSoTimeout(Constants.LOGIN_TIMEOUT_MILLIS);
+            String login = reader.readFrame();
+            if (login == null) {
+                return false;
+            }
+            socket.setSoTimeout(0);
+            LoginRequest request = LoginRequest.parse(login);
+            // 세션 이어받기 - 실패하면 (만료, 모르는 토큰) 새 플레이어로 입장한다
+            String resume = request.option("resume");
+            if (!request.legacy && resume != null && config.sessionGraceMillis > 0) {
+                ClientHandler session = sessions.get(parseToken(resume));
+                if (session != null && session.attach(this, request)) {
+                    resumed = session;
+                    return true;
+                }
+            }
+            // 자동 매칭 - 방을 고르지 않고 이 노드의 매칭 대기열로 간다 (관전자는 매칭하지 않는다)
+            if (!request.legacy && matchmaker != null && request.option("match") != null
+                    && !Constants.ROLE_SPECTATOR.equals(request.option("role"))) {
+                matching = true;
+                negotiate(request, 0, false);
+                requestedName = sanitizeNickname(request.nickname);
+                return true;
+            }
+            // 방 고르기 - 다른 노드가 맡은 방이면 그 노드 주소를 알려주고 끊는다 (예전 클라이언트는 이 노드의 기본 방)
+            String roomName = request.legacy ? Constants.DEFAULT_ROOM : sanitizeRoom(request.option("room"));
+            if (!request.legacy && cluster != null) {
+                ClusterNode.Member owner = cluster.locate(roomName, rooms.containsKey(roomName));
+                if (owner != null) {
+                    REDIRECTED.increment();
+                    sendMessage(Constants.CMD_REDIRECT + Constants.DELIMITER + owner.host
+                        + Constants.DELIMITER + owner.port + Constants.DELIMITER + owner.id);
+                    return false;
+                }
+            }
+            if (enterRoom(this, roomName) == null) {
+                sendMessage(Constants.CMD_BUSY + Constants.DELIMITER + 0);
+                return false;
+            }
+            if (!request.legacy && Constants.ROLE_SPECTATOR.equals(request.option("role"))) {
+                if (loadMonitor.isOverloaded() || !spectatorSlots.tryAcquire()) {
+                    SPECTATOR_REJECTED.increment();
+                    sendMessage(Constants.CMD_BUSY + Constants.DELIMITER + 0);
+                    return false;
+                }
+                spectator = true;
+                room.watchers.incrementAndGet();
+            }
+            if (!request.legacy) {
+                negotiate(request, 0, false);
+            }
+            requestedName = sanitizeNickname(request.nickname);
+            return true;
+        }
+
+        private long parseToken(String text) {
+            try {
+                return Long.parseUnsignedLong(text, 16);
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+
+        // 피드 스레드에서 호출 - 그 사이 끊긴 연결은 목록에 넣지 않는다 (disconnect가 먼저 writeClosed를 세운다)
+        private void registerSpectator() {
+            synchronized (writeLock) {
+                if (!writeClosed) {
+                    room.spectators.add(this);
+                }
+            }
+        }
+
+        // 플레이어 자리를 잡는다. 없으면 대기열에 넣거나 거절하고 false
+        private boolean claimSeat() {
+            synchronized (admissionLock) {
+                if (room.clients.size() < config.maxConnections && room.waitingQueue.isEmpty()) {
+                    room.clients.add(this);
+                    ADMITTED.increment();
+                    return true;
+                }
+                // 이미 입장한 플레이어를 보호하기 위해 과부하 중에는 대기열도 늘리지 않는다
+                if (loadMonitor.isOverloaded()) {
+                    SHED.increment();
+                } else if (room.waitingQueue.size() < config.waitQueueCapacity) {
+                    room.waitingQueue.addLast(this);
+                    QUEUED.increment();
+                    sendMessage(Constants.CMD_BUSY + Constants.DELIMITER + room.waitingQueue.size());
+                    return false;
+                } else {
+                    REJECTED_FULL.increment();
+                }
+            }
+            sendMessage(Constants.CMD_BUSY + Constants.DELIMITER + 0);
+            flushBatch();
+            close();
+            return false;
+        }
+
+        // 대기열에 있는 동안에도 이 스레드가 연결을 읽는다 - 하트비트 PONG으로 살아있는지 알리고, 끊기면 바로 나간다
+        // 자리를 받으면 seat()가 seated를 세우므로 짧은 읽기 제한 시간마다 확인한다. 끊기면 false
+        private boolean awaitSeat() throws IOException {
+            socket.setSoTimeout(Constants.WAIT_POLL_MILLIS);
+            while (!seated) {
+                String message;
+                try {
+                    message = reader.readFrame();
+                } catch (SocketTimeoutException e) {
+                    continue;
+                }
+                if (message == null) {
+                    return false;
+                }
+                missedBeats = 0;  // 대기 중에는 채팅이나 그림을 받지 않는다
+            }
+            socket.setSoTimeout(0);
+            return true;
+        }
+
+        private void processMessage(String message) throws IOException {
             String[] parts = message.split(Constants.DELIMITER);
             String command = parts[0];
+            // 관전자는 읽기 전용 - 시계 맞추기와 하트비트 응답만 받는다
+            if (spectator && !command.equals(Constants.CMD_TIME_SYNC) && !command.equals(Constants.CMD_PONG)) {
+                return;
+            }
 
             switch (command) {
                 case Constants.CMD_CHAT:
+                    if (!chatLimiter.tryAcquire()) {
+                        CHAT_DROPPED.increment();
+                        recordViolation();
+                        break;
+                    }
+                    if (parts.length < 2 || parts[1].trim().isEmpty()) {
+                        break;
+                    }
                     String chatMessage = parts[1];
-                    gameRoom.checkAnswer(chatMessage, this);
-                    broadcastMessage(Constants.CMD_CHAT + Constants.DELIMITER + 
+                    GameRecorder recorder = room.recorder;
+                    if (recorder != null) {
+                        recorder.chat(nickname, chatMessage);
+                    }
+                    room.checkAnswer(chatMessage, this);
+                    room.broadcastMessage(Constants.CMD_CHAT + Constants.DELIMITER +
                         nickname + ": " + chatMessage);
                     break;
-                
+
                 case Constants.CMD_DRAW:
-                    broadcastMessage(message); // 그리기 데이터를 모든 클라이언트에게 전달
+                    if (!segment.parse(parts)) {
+                        break;  // 형식이 잘못된 선분은 버린다
+                    }
+                    if (!drawLimiter.tryAcquire()) {
+                        coalesceDraw();
+                        recordViolation();
+                        break;
+                    }
+                    synchronized (coalesced) {
+                        if (hasHeldCurve || hasHeldFill) {
+                            flushHeldStrokes();  // 붙잡아 둔 곡선이나 채우기가 먼저 나가게
+                        }
+                        relayStroke(mergeCoalescedDraw()); // 그리기 데이터를 모든 클라이언트에게 전달
+                    }
                     break;
                 
+                case Constants.CMD_CURVE:
+                    if (!curve.parse(parts)) {
+                        break;  // 형식이 잘못된 곡선은 버린다
+                    }
+                    if (!drawLimiter.tryAcquire()) {
+                        holdCurve();
+                        recordViolation();
+                        break;
+                    }
+                    flushHeldStrokes();  // 앞서 받은 선분이 곡선보다 먼저 나가게
+                    room.relayCurve(curve, segment);
+                    break;
+
+                case Constants.CMD_FILL:
+                    if (!segment.parseFill(parts)) {
+                        break;
+                    }
+                    if (!drawLimiter.tryAcquire()) {
+                        holdFill();
+                        recordViolation();
+                        break;
+                    }
+                    flushHeldStrokes();  // 앞에 그린 선분이 먼저 칠해져 있어야 같은 영역이 채워진다
+                    room.relayFill(segment);
+                    break;
+
                 case Constants.CMD_CLEAR:
-                    broadcastMessage(Constants.CMD_CLEAR);
+                    flushHeldStrokes();  // 지우기 전에 그린 선분은 지우기 앞에 나가야 새 캔버스에 남지 않는다
+                    room.canvas.clear();
+                    GameRecorder clearRecorder = room.recorder;
+                    if (clearRecorder != null) {
+                        clearRecorder.clear();
+                    }
+                    // 캔버스 세대를 올려서 알린다 - 이전 세대의 UDP 선분은 양쪽에서 버린다
+                    room.broadcastMessage(Constants.CMD_CLEAR + Constants.DELIMITER + (room.drawEpoch.incrementAndGet() & 0xFFFF));
+                    break;
+                case Constants.CMD_UDP:
+                    // HELLO 확인을 받은 클라이언트만 켤 수 있다 (양방향 경로가 확인된 경우)
+                    udpActive = parts.length > 1 && "on".equals(parts[1]) && udpAddress != null;
                     break;
                 case Constants.CMD_READY:
-                    gameRoom.handleReady(this);
+                    room.handleReady(this);
+                    break;
+                case Constants.CMD_TIME_SYNC:
+                    // 클라이언트 시계 오프셋 추정용 - 받은 값에 서버 시각을 붙여 돌려준다
+                    if (parts.length > 1) {
+                        sendMessage(Constants.CMD_TIME_SYNC + Constants.DELIMITER + parts[1]
+                            + Constants.DELIMITER + System.currentTimeMillis());
+                    }
+                    break;
+                case Constants.CMD_SAMPLING:
+                    int level = parts.length > 1 ? DrawSegment.parseInt(parts[1], 0, parts[1].length()) : -1;
+                    if (level >= 0 && level < StrokeSampler.LEVELS) {
+                        samplingLevel = level;
+                        SAMPLING_CHANGES.increment();
+                    }
                     break;
+                case Constants.CMD_PONG:
+                    long sentAt = parts.length > 1 ? DrawSegment.parseLong(parts[1]) : -1;
+                    if (sentAt >= 0) {
+                        rttMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos - sentAt);
+                    }
+                    break;
+            }
+        }
+
+        // 제한에 걸린 선분은 버리지 않고 이어지는 선분 하나로 합쳐둔다
+        private void coalesceDraw() {
+            synchronized (coalesced) {
+                if (hasCoalesced && coalesced.x2 == segment.x1 && coalesced.y2 == segment.y1
+                        && coalesced.sameStyle(segment)) {
+                    coalesced.x2 = segment.x2;
+                    coalesced.y2 = segment.y2;
+                } else {
+                    flushHeldStrokes();  // 이어지지 않으면 붙잡아 둔 것을 먼저 보낸다 (위반은 계속 센다)
+                    coalesced.copyFrom(segment);
+                    hasCoalesced = true;
+                }
+            }
+            DRAW_COALESCED.increment();
+        }
+
+        // 제한에 걸린 곡선도 버리지 않고 붙잡아 둔다 - 이어지는 곡선이면 하나로 이어 붙이고 아니면 붙잡아 둔 것을 먼저 보낸다
+        private void holdCurve() {
+            synchronized (coalesced) {
+                if (!hasHeldCurve || !heldCurve.append(curve)) {
+                    flushHeldStrokes();
+                    heldCurve.copyFrom(curve);
+                    hasHeldCurve = true;
+                }
+            }
+            DRAW_HELD.increment();
+        }
+
+        // 제한에 걸린 채우기도 붙잡아 둔다 (합칠 수 없으므로 붙잡아 둔 것을 먼저 보낸다)
+        private void holdFill() {
+            synchronized (coalesced) {
+                flushHeldStrokes();
+                heldFill.copyFrom(segment);
+                hasHeldFill = true;
+            }
+            DRAW_HELD.increment();
+        }
+
+        // 합쳐둔 선분이 있으면 현재 선분과 이어 붙인 선분을 돌려준다 (coalesced를 잠그고 부른다)
+        private DrawSegment mergeCoalescedDraw() {
+            if (!hasCoalesced) {
+                return segment;
+            }
+            hasCoalesced = false;
+            if (coalesced.x2 == segment.x1 && coalesced.y2 == segment.y1 && coalesced.sameStyle(segment)) {
+                coalesced.x2 = segment.x2;
+                coalesced.y2 = segment.y2;
+                return coalesced;
+            }
+            // 이어지지 않는 선분이면 합쳐둔 선분을 먼저 보낸다
+            relayStroke(coalesced);
+            return segment;
+        }
+
+        // 제한 중 붙잡아 둔 선분, 곡선, 채우기와 단순화로 붙잡아 둔 선분을 받은 순서대로 바로 보낸다 (읽기 스레드와 방의 flush 틱)
+        private void flushHeldStrokes() {
+            synchronized (coalesced) {
+                if (hasCoalesced) {
+                    hasCoalesced = false;
+                    relayStroke(coalesced);
+                }
+                simplifier.flush(room::relayDraw);
+                if (hasHeldCurve) {
+                    hasHeldCurve = false;
+                    room.relayCurve(heldCurve, heldScratch);
+                }
+                if (hasHeldFill) {
+                    hasHeldFill = false;
+                    room.relayFill(heldFill);
+                }
             }
         }
 
+        // 방의 허용 오차로 단순화해서 중계한다 (붙잡아 둔 선분은 다음 선분이나 틱에 나간다)
+        private void relayStroke(DrawSegment stroke) {
+            simplifier.offer(stroke, room.strokeTolerance, room.clients.size(), room::relayDraw);
+        }
+
+        // UDP로 받은 선분 (받는 스레드) - 풀어서 이 연결의 큐에 넣기만 하고 중계는 drainUdpInbox()가 한다
+        // 지워진 캔버스의 선분과 큐가 넘친 선분은 버린다 (손실을 견디는 채널이라 합치지 않는다)
+        private void receiveStrokes(StrokeStream stream, ByteBuffer packet, DrawSegment[] received) {
+            int count = stream.receive(packet, received);
+            if (count < 0) {
+                UDP_INVALID.increment();
+                return;
+            }
+            int epoch = StrokeStream.epochOf(packet);
+            if (StrokeStream.isStaleEpoch(epoch, room.drawEpoch.get() & 0xFFFF)) {
+                UDP_STALE.add(count);
+                return;
+            }
+            UDP_RECEIVED.add(count);
+            synchronized (udpInbox) {
+                if (udpInboxSegments + count > config.drawBurst) {
+                    UDP_DROPPED.add(count);
+                    return;
+                }
+                udpInbox.add(new ReceivedStrokes(epoch, received, count));
+                udpInboxSegments += count;
+                if (udpDraining) {
+                    return;
+                }
+                udpDraining = true;
+            }
+            udpRelayExecutor.execute(this::drainUdpInbox);
+        }
+
+        // 연결마다 한 번에 하나만 돈다. 중계하기 전에 캔버스 세대와 그리기 제한을 다시 본다
+        private void drainUdpInbox() {
+            while (true) {
+                ReceivedStrokes batch;
+                synchronized (udpInbox) {
+                    batch = udpInbox.poll();
+                    if (batch == null) {
+                        udpDraining = false;
+                        return;
+                    }
+                    udpInboxSegments -= batch.strokes.length;
+                }
+                if (StrokeStream.isStaleEpoch(batch.epoch, room.drawEpoch.get() & 0xFFFF)) {
+                    UDP_STALE.add(batch.strokes.length);
+                    continue;
+                }
+                for (DrawSegment stroke : batch.strokes) {
+                    if (drawLimiter.tryAcquire()) {
+                        relayStroke(stroke);
+                    } else {
+                        UDP_DROPPED.increment();
+                    }
+                }
+            }
+        }
+
+        // 보내지 못하면 UDP를 끄고 TCP로 돌아간다
+        public boolean sendStroke(DrawSegment stroke, int epoch) {
+            StrokeStream stream = udpStream;
+            if (stream == null) {
+                udpActive = false;
+                return false;
+            }
+            try {
+                udpLink.send(stream.nextDatagram(stroke, epoch), udpAddress);
+                UDP_SENT.increment();
+                return true;
+            } catch (IOException e) {
+                udpActive = false;
+                System.out.println("UDP 전송 실패, TCP로 전환합니다 (" + nickname + "): " + e.getMessage());
+                return false;
+            }
+        }
+
+        // 로그인 옵션을 정하고 LOGIN_OK를 압축하지 않은 채 보낸 뒤, 그 다음 바이트부터 압축 스트림으로 바꾼다
+        // writeLock 안에서 바꾸므로 다른 스레드의 메시지가 LOGIN_OK와 전환 사이에 끼지 않는다
+        // seq는 LOGIN_OK 바로 다음 메시지의 순번 - 1 (새 세션은 0, 이어받을 때는 클라이언트가 받은 곳부터)
+        private void negotiate(LoginRequest request, long seq, boolean resuming) throws IOException {
+            Map<String, String> accepted = new LinkedHashMap<>();
+            String mode = config.compressionEnabled
+                ? StreamCompression.negotiate(request.option("compress"), config.compressionDictionary)
+                : StreamCompression.NONE;
+            accepted.put("compress", mode);
+            if (spectator) {
+                accepted.put("role", Constants.ROLE_SPECTATOR);
+            } else if (udpLink != null && request.option("udp") != null) {
+                long token = newToken(udpSessions);
+                udpStream = new StrokeStream(token, config.udpRedundancy);
+                udpSessions.put(token, this);
+                accepted.put("udpPort", String.valueOf(config.udpPort));
+                accepted.put("udpToken", Long.toHexString(token));
+            }
+            if (!spectator && config.sessionGraceMillis > 0) {
+                if (sessionToken == 0) {
+                    sessionToken = newToken(sessions);
+                    replay = new String[config.sessionReplayCapacity];
+                    sessions.put(sessionToken, this);
+                }
+                accepted.put("session", Long.toHexString(sessionToken));
+                accepted.put("seq", String.valueOf(seq));
+                if (request.option("resume") != null) {
+                    accepted.put("resumed", resuming ? "1" : "0");
+                }
+            }
+            synchronized (writeLock) {
+                writer.println(Constants.CMD_LOGIN_OK + Constants.DELIMITER + LoginRequest.encodeOptions(accepted));
+                if (StreamCompression.NONE.equals(mode)) {
+                    return;
+                }
+                compression = new StreamCompression(mode, config.compressionLevel);
+                writer = new PrintWriter(new OutputStreamWriter(
+                    compression.wrapOutput(socket.getOutputStream()), StandardCharsets.UTF_8), false);
+                reader = new FrameReader(compression.wrapInput(reader.remaining()), config.maxFrameLength);
+                COMPRESSED_CONNECTIONS.increment();
+            }
+        }
+
+        // 방 이름은 로그인 옵션과 클러스터 목록에 들어가므로 구분자를 뺀다. 없으면 기본 방
+        private String sanitizeRoom(String name) {
+            if (name == null) {
+                return Constants.DEFAULT_ROOM;
+            }
+            // '#'으로 시작하는 이름은 자동 매칭 방에 쓴다
+            name = name.replace(Constants.DELIMITER, "").replaceAll("[,=#\\s]", "");
+            if (name.length() > Constants.MAX_ROOM_NAME_LENGTH) {
+                name = name.substring(0, Constants.MAX_ROOM_NAME_LENGTH);
+            }
+            return name.isEmpty() ? Constants.DEFAULT_ROOM : name;
+        }
+
+        // 닉네임의 구분자와 길이를 정리한다
+        private String sanitizeNickname(String name) {
+            name = name.replace(Constants.DELIMITER, "").replace(",", "").trim();
+            // '-'로 시작하면 플레이어 델타에서 퇴장 표시와 구분되지 않는다
+            while (name.startsWith("-")) {
+                name = name.substring(1).trim();
+            }
+            if (name.length() > Constants.MAX_NICKNAME_LENGTH) {
+                name = name.substring(0, Constants.MAX_NICKNAME_LENGTH);
+            }
+            return name.isEmpty() ? "손님" : name;
+        }
+
+        // 제한 초과 누적에 따라 읽기 지연, 연결 종료 순으로 단계적으로 대응한다
+        private void recordViolation() throws IOException {
+            long now = System.currentTimeMillis();
+            if (now - lastViolationTime > config.violationResetMillis) {
+                violations = 0;
+            }
+            lastViolationTime = now;
+            violations++;
+
+            if (violations >= config.disconnectViolations) {
+                RATE_DISCONNECTED.increment();
+                System.out.println("전송 제한 초과로 연결을 종료합니다: " + nickname);
+                noResume = true;
+                socket.close();
+            } else if (violations % config.throttleViolations == 0) {
+                THROTTLED.increment();
+                throttledUntil = now + config.throttleMillis;
+                sendMessage(Constants.CMD_CHAT + Constants.DELIMITER + "메시지를 너무 빠르게 보내고 있습니다.");
+            }
+        }
+
+        // 압축 연결은 바로 flush하지 않고 잠깐 모아서 한 번에 sync flush 한다 (묶음이 클수록 압축이 잘 된다)
+        @Override
         public void sendMessage(String message) {
-            writer.println(message);
+            synchronized (writeLock) {
+                if (replay != null) {
+                    sentSeq++;
+                    replay[(int) (sentSeq % replay.length)] = message;
+                }
+                if (writeClosed) {
+                    return;
+                }
+                writer.println(message);
+                (spectator ? SPECTATOR_OUT : PLAYER_OUT).add(message.length() + 1);
+                if (compression != null && !flushScheduled) {
+                    flushScheduled = true;
+                    scheduler.schedule(this::flushBatch, config.compressionFlushMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+
+        private void flushBatch() {
+            synchronized (writeLock) {
+                flushScheduled = false;
+                if (!writeClosed) {
+                    writer.flush();
+                }
+            }
+        }
+
+        public String compressionReport() {
+            synchronized (writeLock) {
+                return compression == null || writeClosed ? null : compression.summary();
+            }
         }
 
         public String getNickname() {
             return nickname;
         }
 
+        public boolean isClosed() {
+            return socket.isClosed();
+        }
+
+        public void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                System.out.println("클라이언트 연결 종료 에러: " + e.getMessage());
+            }
+        }
+
         public int getScore() {
             return score;
         }
 
         public void addScore(int points) {
             score += points;
-            updatePlayerList();
+            room.markPlayersDirty();
+            GameRecorder recorder = room.recorder;
+            if (recorder != null) {
+                recorder.score(nickname, score);
+            }
+            if (journal != null) {
+                journal.score(room.name, nickname, score);
+            }
+        }
+
+        // 읽기 스레드가 끝난 뒤에만 호출 - 압축기의 네이티브 메모리를 놓아준다
+        private void closeCompression() {
+            synchronized (writeLock) {
+                writeClosed = true;
+                if (compression != null) {
+                    endCompression(compression);
+                    compression = null;
+                }
+            }
+        }
+
+        private void endCompression(StreamCompression ended) {
+            COMPRESSED_RAW_BYTES.add(ended.getRawBytesOut());
+            COMPRESSED_WIRE_BYTES.add(ended.getCompressedBytesOut());
+            COMPRESSION_CPU_MICROS.add(ended.getDeflateMicros());
+            System.out.println("압축 연결 종료 (" + nickname + "): " + ended.summary());
+            ended.end();
         }
 
         private void disconnect() {
             try {
-                clients.remove(this);
                 socket.close();
-                broadcastMessage(Constants.CMD_CHAT + Constants.DELIMITER + 
+                closeCompression();
+                if (udpStream != null) {
+                    udpSessions.remove(udpStream.getToken());
+                }
+                if (sessionToken != 0) {
+                    sessions.remove(sessionToken);
+                }
+                if (matching) {
+                    matchmaker.cancel(this);
+                }
+                synchronized (admissionLock) {  // 자동 매칭은 이 잠금 안에서 닫히지 않은 연결에만 방을 준다
+                    if (room == null) {
+                        return;  // 방을 고르기 전에 끊긴 연결 (다른 노드로 보낸 연결, 매칭 대기 포함)
+                    }
+                }
+                if (!spectator) {
+                    flushHeldStrokes();  // 나가기 전에 붙잡아 둔 선분을 보낸다
+                }
+                room.clients.remove(this);
+                if (spectator) {
+                    room.spectators.remove(this);
+                    room.watchers.decrementAndGet();
+                    spectatorSlots.release();
+                    System.out.println("관전자 퇴장: " + nickname);
+                    return;
+                }
+                room.admitWaiting();
+                if (nickname == null) {
+                    return;  // 닉네임을 보내기 전에 끊긴 연결
+                }
+                room.removePlayer(this);
+                room.broadcastMessage(Constants.CMD_CHAT + Constants.DELIMITER + 
                     nickname + "님이 퇴장하셨습니다.");
-                updatePlayerList();
             } catch (IOException e) {
                 System.out.println("클라이언트 연결 종료 에러: " + e.getMessage());
+            } finally {
+                leaveRoom(this);
             }
         }
     }
 
-    // 유틸리티 메소드
-    private void broadcastMessage(String message) {
-        for (ClientHandler client : clients) {
-            client.sendMessage(message);
-        }
-    }
-
-    private void updatePlayerList() {
-        StringBuilder playerInfo = new StringBuilder("PLAYERS");
-        for (ClientHandler client : clients) {
-            playerInfo.append(Constants.DELIMITER)
-                     .append(client.getNickname())
-                     .append(",")
-                     .append(client.getScore());
-        }
-        broadcastMessage(playerInfo.toString());
-    }
-
     // 메인 메소드
+    // 사용법: java catchping.Server [설정 파일 경로]
     public static void main(String[] args) {
-        Server server = new Server();
+        // 화면 없는 서버 - 서버 코드는 java.awt를 쓰지 않지만 혹시 로드되더라도 디스플레이를 찾지 않게 한다
+        System.setProperty("java.awt.headless", "true");
+        ServerConfig config = ServerConfig.load(args.length > 0 ? args[0] : ServerConfig.DEFAULT_PATH);
+        Server server = new Server(config);
         server.start();
     }
-}
\ No newline at end of file
+
+    // UDP 데이터그램 하나에서 푼 선분 - 받는 스레드의 재사용 배열에서 복사해 둔다
+    private static final class ReceivedStrokes {
+        final int epoch;
+        final DrawSegment[] strokes;
+
+        ReceivedStrokes(int epoch, DrawSegment[] received, int count) {
+            this.epoch = epoch;
+            this.strokes = new DrawSegment[count];
+            for (int i = 0; i < count; i++) {
+                strokes[i] = new DrawSegment();
+                strokes[i].copyFrom(received[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package catchping;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+// 서버 실행 설정
+// 시작할 때 properties 파일에서 읽고, 없는 값은 Constants의 기본값을 쓴다.
+// 서버가 java.awt를 로드하지 않도록 Constants의 배열/색상 필드는 참조하지 않는다.
+public class ServerConfig {
+    public static final String DEFAULT_PATH = "server.properties";
+
+    // 네트워크
+    public final int port;
+    public final int maxConnections;
+    public final int maxFrameLength;
+    // 스트림 압축
+    public final boolean compressionEnabled;
+    public final boolean compressionDictionary;
+    public final int compressionLevel;
+    public final long compressionFlushMillis;
+    // UDP 선분 채널
+    public final boolean udpEnabled;
+    public final int udpPort;
+    public final int udpRedundancy;
+    public final double udpSimulatedLoss;
+    public final double udpSimulatedReorder;
+    // 게임 기록
+    public final boolean recordingEnabled;
+    public final String recordingDirectory;
+    public final int recordingQueueCapacity;
+    // 라운드 그림 저장
+    public final boolean exportEnabled;
+    public final String exportDirectory;
+    public final int exportThreads;
+    public final int canvasMaxSegments;
+    public final int keyframeSegments;
+    // 관전자
+    public final int spectatorMax;
+    public final long spectatorBatchMillis;
+    public final int spectatorTolerance;
+    // 플레이어 중계 선분 단순화 (방 이름별로 허용 오차를 바꿀 수 있다)
+    public final int simplifyTolerance;
+    public final long simplifyFlushMillis;
+    private final Map<String, Integer> roomTolerances = new HashMap<>();
+    public final int spectatorMaxPending;
+    // 세션 이어받기
+    public final long sessionGraceMillis;
+    public final int sessionReplayCapacity;
+    // 방과 클러스터
+    public final int maxRooms;
+    public final boolean clusterEnabled;
+    public final String clusterNodeId;
+    public final String clusterHost;
+    public final int clusterPort;
+    public final String clusterSeeds;
+    public final int clusterVirtualNodes;
+    public final long clusterGossipMillis;
+    public final long clusterFailMillis;
+    // 자동 매칭
+    public final boolean matchmakingEnabled;
+    public final long matchmakingTickMillis;
+    public final int matchmakingBudget;
+    public final long matchmakingFillWaitMillis;
+    public final long matchmakingWidenMillis;
+    public final int matchmakingBandWidth;
+    // 누적 전적
+    public final boolean statsEnabled;
+    public final String statsFile;
+    public final long statsFlushMillis;
+    public final int statsLeaderboardSize;
+    // 방 상태 저널 (크래시 복구)
+    public final boolean journalEnabled;
+    public final String journalDirectory;
+    public final long journalCommitMillis;
+    public final long journalSnapshotMillis;
+    public final int journalSnapshotRecords;
+    // 게임룸
+    public final int maxPlayers;
+    public final int minPlayers;
+    public final int totalRounds;
+    public final int gameTimeSeconds;
+    public final int timerResyncSeconds;
+    public final long statePublishIntervalMillis;
+    // 입장 제어
+    public final int waitQueueCapacity;
+    public final int acceptRatePerSecond;
+    public final int acceptBurst;
+    public final long shedLagMillis;
+    public final double shedHeapRatio;
+    // 속도 제한
+    public final int chatRatePerSecond;
+    public final int chatBurst;
+    public final int drawRatePerSecond;
+    public final int drawBurst;
+    public final int throttleViolations;
+    public final int disconnectViolations;
+    public final long throttleMillis;
+    public final long violationResetMillis;
+    // 하트비트
+    public final long heartbeatIntervalMillis;
+    public final int heartbeatMaxMissed;
+    // 스레드 풀
+    public final int handlerThreads;
+    public final int schedulerThreads;
+    public final int metricsLogIntervalSeconds;
+
+    private ServerConfig(Properties props) {
+        port = intValue(props, "server.port", Constants.SERVER_PORT);
+        maxFrameLength = intValue(props, "server.maxFrameLength", Constants.MAX_FRAME_LENGTH);
+
+        compressionEnabled = booleanValue(props, "compression.enabled", true);
+        compressionDictionary = booleanValue(props, "compression.dictionary", true);
+        compressionLevel = intValue(props, "compression.level", Constants.COMPRESSION_LEVEL);
+        compressionFlushMillis = longValue(props, "compression.flushMillis", Constants.COMPRESSION_FLUSH_MILLIS);
+
+        udpEnabled = booleanValue(props, "udp.enabled", false);
+        udpPort = intValue(props, "udp.port", port);
+        udpRedundancy = intValue(props, "udp.redundancy", Constants.UDP_REDUNDANCY);
+        udpSimulatedLoss = doubleValue(props, "udp.simulatedLoss", 0);
+        udpSimulatedReorder = doubleValue(props, "udp.simulatedReorder", 0);
+
+        recordingEnabled = booleanValue(props, "recording.enabled", false);
+        recordingDirectory = stringValue(props, "recording.directory", "recordings");
+        recordingQueueCapacity = intValue(props, "recording.queueCapacity", Constants.RECORDING_QUEUE_CAPACITY);
+
+        exportEnabled = booleanValue(props, "export.enabled", false);
+        exportDirectory = stringValue(props, "export.directory", "exports");
+        exportThreads = Math.max(1, intValue(props, "export.threads", Constants.EXPORT_THREADS));
+        canvasMaxSegments = intValue(props, "room.canvasMaxSegments", Constants.ROOM_CANVAS_MAX_SEGMENTS);
+        keyframeSegments = Math.max(0, intValue(props, "room.keyframeSegments", Constants.ROOM_KEYFRAME_SEGMENTS));
+
+        spectatorMax = Math.max(0, intValue(props, "spectator.max", Constants.SPECTATOR_MAX));
+        spectatorBatchMillis = Math.max(10, longValue(props, "spectator.batchMillis", Constants.SPECTATOR_BATCH_MILLIS));
+        spectatorTolerance = intValue(props, "spectator.tolerance", Constants.SPECTATOR_TOLERANCE);
+        simplifyTolerance = Math.max(0, intValue(props, "simplify.tolerance", Constants.SIMPLIFY_TOLERANCE));
+        simplifyFlushMillis = Math.max(5, longValue(props, "simplify.flushMillis", Constants.SIMPLIFY_FLUSH_MILLIS));
+        // 방이름=오차,방이름=오차 형식
+        for (Map.Entry<String, String> entry
+                : LoginRequest.parseOptions(props.getProperty("simplify.roomTolerances", "")).entrySet()) {
+            try {
+                roomTolerances.put(entry.getKey(), Math.max(0, Integer.parseInt(entry.getValue())));
+            } catch (NumberFormatException e) {
+                System.out.println("설정 값이 잘못되어 무시합니다: simplify.roomTolerances " + entry.getKey() + "=" + entry.getValue());
+            }
+        }
+        spectatorMaxPending = intValue(props, "spectator.maxPendingSegments", Constants.SPECTATOR_MAX_PENDING);
+
+        // 0이면 세션을 쓰지 않고 끊기는 즉시 퇴장 처리한다
+        sessionGraceMillis = Math.max(0, longValue(props, "session.graceMillis", Constants.SESSION_GRACE_MILLIS));
+        sessionReplayCapacity = Math.max(16, intValue(props, "session.replayCapacity", Constants.SESSION_REPLAY_CAPACITY));
+
+        maxRooms = Math.max(1, intValue(props, "server.maxRooms", Constants.MAX_ROOMS));
+        // 다른 노드와 클라이언트가 이 노드를 찾는 주소 - 노드 id는 겹치지 않아야 한다
+        clusterEnabled = booleanValue(props, "cluster.enabled", false);
+        clusterHost = stringValue(props, "cluster.host", "127.0.0.1");
+        clusterPort = intValue(props, "cluster.port", port + 1);
+        clusterNodeId = stringValue(props, "cluster.nodeId", clusterHost + ":" + port);
+        clusterSeeds = stringValue(props, "cluster.seeds", "");
+        clusterVirtualNodes = Math.max(1, intValue(props, "cluster.virtualNodes", Constants.CLUSTER_VIRTUAL_NODES));
+        clusterGossipMillis = Math.max(50, longValue(props, "cluster.gossipMillis", Constants.CLUSTER_GOSSIP_MILLIS));
+        clusterFailMillis = Math.max(clusterGossipMillis * 2,
+            longValue(props, "cluster.failMillis", Constants.CLUSTER_FAIL_MILLIS));
+
+        matchmakingEnabled = booleanValue(props, "matchmaking.enabled", false);
+        matchmakingTickMillis = Math.max(20, longValue(props, "matchmaking.tickMillis", Constants.MATCHMAKING_TICK_MILLIS));
+        matchmakingBudget = Math.max(100, intValue(props, "matchmaking.budget", Constants.MATCHMAKING_BUDGET));
+        matchmakingFillWaitMillis = Math.max(0,
+            longValue(props, "matchmaking.fillWaitMillis", Constants.MATCHMAKING_FILL_WAIT_MILLIS));
+        matchmakingWidenMillis = Math.max(100,
+            longValue(props, "matchmaking.widenMillis", Constants.MATCHMAKING_WIDEN_MILLIS));
+        matchmakingBandWidth = Math.max(1, intValue(props, "matchmaking.bandWidth", Constants.MATCHMAKING_BAND_WIDTH));
+
+        statsEnabled = booleanValue(props, "stats.enabled", false);
+        statsFile = stringValue(props, "stats.file", "stats/players.dat");
+        statsFlushMillis = Math.max(10, longValue(props, "stats.flushMillis", Constants.STATS_FLUSH_MILLIS));
+        statsLeaderboardSize = Math.max(1, intValue(props, "stats.leaderboardSize", Constants.LEADERBOARD_SIZE));
+
+        journalEnabled = booleanValue(props, "journal.enabled", false);
+        journalDirectory = stringValue(props, "journal.directory", "journal");
+        journalCommitMillis = Math.max(0, longValue(props, "journal.commitMillis", Constants.JOURNAL_COMMIT_MILLIS));
+        journalSnapshotMillis = Math.max(1000, longValue(props, "journal.snapshotMillis", Constants.JOURNAL_SNAPSHOT_MILLIS));
+        journalSnapshotRecords = Math.max(100, intValue(props, "journal.snapshotRecords", Constants.JOURNAL_SNAPSHOT_RECORDS));
+
+        // 클라이언트 화면의 플레이어 칸 수보다 많이 받을 수는 없다
+        maxPlayers = Math.min(intValue(props, "room.maxPlayers", Constants.MAX_PLAYERS), Constants.MAX_PLAYERS);
+        minPlayers = Math.max(2, Math.min(intValue(props, "room.minPlayers", Constants.MIN_PLAYERS), maxPlayers));
+        maxConnections = Math.max(1, Math.min(intValue(props, "server.maxConnections", maxPlayers), maxPlayers));
+        totalRounds = intValue(props, "room.totalRounds", Constants.TOTAL_ROUNDS);
+        gameTimeSeconds = intValue(props, "room.gameTimeSeconds", Constants.GAME_TIME_SECONDS);
+        // 주기 작업의 간격은 0 이하면 스케줄러가 받지 않는다
+        timerResyncSeconds = Math.max(1, intValue(props, "room.timerResyncSeconds", Constants.TIMER_RESYNC_SECONDS));
+        statePublishIntervalMillis = Math.max(1, longValue(props, "room.statePublishIntervalMillis",
+            Constants.STATE_PUBLISH_INTERVAL_MILLIS));
+
+        waitQueueCapacity = intValue(props, "admission.waitQueueCapacity", Constants.WAIT_QUEUE_CAPACITY);
+        acceptRatePerSecond = intValue(props, "admission.acceptRatePerSecond", Constants.ACCEPT_RATE_PER_SECOND);
+        acceptBurst = intValue(props, "admission.acceptBurst", Constants.ACCEPT_BURST);
+        shedLagMillis = longValue(props, "admission.shedLagMillis", Constants.SHED_LAG_MILLIS);
+        shedHeapRatio = doubleValue(props, "admission.shedHeapRatio", Constants.SHED_HEAP_RATIO);
+
+        chatRatePerSecond = intValue(props, "ratelimit.chatRatePerSecond", Constants.CHAT_RATE_PER_SECOND);
+        chatBurst = intValue(props, "ratelimit.chatBurst", Constants.CHAT_BURST);
+        drawRatePerSecond = intValue(props, "ratelimit.drawRatePerSecond", Constants.DRAW_RATE_PER_SECOND);
+        drawBurst = intValue(props, "ratelimit.drawBurst", Constants.DRAW_BURST);
+        throttleViolations = intValue(props, "ratelimit.throttleViolations", Constants.THROTTLE_VIOLATIONS);
+        disconnectViolations = intValue(props, "ratelimit.disconnectViolations", Constants.DISCONNECT_VIOLATIONS);
+        throttleMillis = longValue(props, "ratelimit.throttleMillis", Constants.THROTTLE_MILLIS);
+        violationResetMillis = longValue(props, "ratelimit.violationResetMillis", Constants.VIOLATION_RESET_MILLIS);
+
+        heartbeatIntervalMillis = Math.max(1, longValue(props, "heartbeat.intervalMillis", Constants.HEARTBEAT_INTERVAL_MILLIS));
+        heartbeatMaxMissed = intValue(props, "heartbeat.maxMissed", Constants.HEARTBEAT_MAX_MISSED);
+
+        // 연결마다 읽기 스레드 하나를 쓴다 - 모든 방의 플레이어와 대기자, 관전자를 모두 받을 수 있어야 한다
+        int minHandlers = maxRooms * (maxConnections + waitQueueCapacity) + spectatorMax;
+        handlerThreads = Math.max(minHandlers, intValue(props, "pool.handlerThreads", minHandlers));
+        schedulerThreads = Math.max(1, intValue(props, "pool.schedulerThreads", 1));
+        metricsLogIntervalSeconds = Math.max(1,
+            intValue(props, "metrics.logIntervalSeconds", Constants.METRICS_LOG_INTERVAL_SECONDS));
+    }
+
+    // 파일이 없으면 모두 기본값을 쓴다
+    public static ServerConfig load(String path) {
+        Properties props = new Properties();
+        Path file = Paths.get(path);
+        if (Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                props.load(in);
+                System.out.println("서버 설정 파일을 읽었습니다: " + file.toAbsolutePath());
+            } catch (IOException e) {
+                System.out.println("서버 설정 파일 읽기 실패, 기본값을 사용합니다: " + e.getMessage());
+            }
+        }
+        return new ServerConfig(props);
+    }
+
+    // 방의 선분 단순화 허용 오차 - 따로 정하지 않은 방은 simplify.tolerance
+    public int strokeTolerance(String room) {
+        Integer tolerance = roomTolerances.get(room);
+        return tolerance != null ? tolerance : simplifyTolerance;
+    }
+
+    public static ServerConfig defaults() {
+        return new ServerConfig(new Properties());
+    }
+
+    // 값을 지웠거나 비워둔 키는 기본값을 쓴다
+    private static String text(Properties props, String key) {
+        String value = props.getProperty(key);
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+
+    private static String stringValue(Properties props, String key, String defaultValue) {
+        String value = text(props, key);
+        return value == null ? defaultValue : value;
+    }
+
+    private static int intValue(Properties props, String key, int defaultValue) {
+        String value = text(props, key);
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return invalid(key, value, defaultValue);
+        }
+    }
+
+    private static long longValue(Properties props, String key, long defaultValue) {
+        String value = text(props, key);
+        try {
+            return value == null ? defaultValue : Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return invalid(key, value, defaultValue);
+        }
+    }
+
+    private static boolean booleanValue(Properties props, String key, boolean defaultValue) {
+        String value = text(props, key);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+            return invalid(key, value, defaultValue);
+        }
+        return Boolean.parseBoolean(value);
+    }
+
+    private static double doubleValue(Properties props, String key, double defaultValue) {
+        String value = text(props, key);
+        try {
+            return value == null ? defaultValue : Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return invalid(key, value, defaultValue);
+        }
+    }
+
+    // 형식이 틀린 값 - 서버를 멈추지 않고 어느 키인지 알린 뒤 기본값을 쓴다
+    private static <T> T invalid(String key, String value, T defaultValue) {
+        System.out.println("설정 값이 잘못되어 기본값을 사용합니다: " + key + "=" + value + " (기본값 " + defaultValue + ")");
+        return defaultValue;
+    }
+}
@@ -0,0 +1,36 @@
+package catchping;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// 서버 카운터 모음 - 이름별 LongAdder를 보관하고 주기적으로 로그로 내보낸다
+public class ServerMetrics {
+    private static final Map<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+    private static final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+
+    private ServerMetrics() {
+    }
+
+    // 핫패스에서는 반환된 LongAdder를 필드에 보관해두고 사용한다
+    public static LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, k -> new LongAdder());
+    }
+
+    // 덤프 시점에 값을 읽어오는 게이지 (큐 길이, 힙 사용률 등)
+    public static void gauge(String name, LongSupplier supplier) {
+        gauges.put(name, supplier);
+    }
+
+    public static String dump() {
+        StringBuilder sb = new StringBuilder("[metrics]");
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            sb.append(' ').append(entry.getKey()).append('=').append(entry.getValue().sum());
+        }
+        for (Map.Entry<String, LongSupplier> entry : gauges.entrySet()) {
+            sb.append(' ').append(entry.getKey()).append('=').append(entry.getValue().getAsLong());
+        }
+        return sb.toString();
+    }
+}
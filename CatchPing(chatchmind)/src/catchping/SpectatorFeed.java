@@ -0,0 +1,222 @@
+package catchping;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// 관전자 전송 계층 - 플레이어처럼 선분을 하나씩 보내지 않고 모아두었다가 주기마다 한 메시지로 보낸다
+// 이어지는 같은 스타일의 선분은 점 목록 하나로 합치고, 직선에서 허용 오차 안에 있는 가운데 점은 뺀다.
+// 보내는 일은 우선순위가 낮은 피드 스레드 하나가 (방이 여러 개면 나눠서) 맡으므로 게임 스레드와 플레이어 전송을 막지 않는다.
+// 형식: STROKES//rgb,크기,지우개,점1점2...//rgb,... (필드 하나가 이어진 선 하나, 점은 CanvasCodec의 6글자 논리 좌표)
+// 캔버스의 채우기와 곡선은 그 앞까지의 선을 보낸 뒤 FILL, CURVE 메시지로 따로 보낸다 (곡선은 플레이어가 받은 그대로 그려진다).
+// 캔버스 전체를 보낼 때 키프레임이 있으면 KEYFRAME 메시지(base64url로 쓴 PNG를 나눈 조각 - 구분자 /가 나오지 않는다)를 먼저 보낸다.
+public class SpectatorFeed {
+    private static final LongAdder BATCHES = ServerMetrics.counter("spectator.batches");
+    private static final LongAdder SEGMENTS_IN = ServerMetrics.counter("spectator.segments.in");
+    private static final LongAdder SEGMENTS_DROPPED = ServerMetrics.counter("spectator.segments.dropped");
+    private static final LongAdder POINTS_OUT = ServerMetrics.counter("spectator.points.out");
+    private static final int MAX_MESSAGE_CHARS = 16 * 1024;   // 클라이언트 프레임 제한보다 충분히 작게 나눈다
+    private static final int MAX_LINE_POINTS = 256;
+    private static final int KEYFRAME_CHUNK_CHARS = 48 * 1024;  // CLIENT_MAX_FRAME_LENGTH 안에 들어가게
+
+    public interface Viewer {
+        void sendMessage(String message);
+    }
+
+    private final Iterable<? extends Viewer> viewers;
+    private final RoomCanvas canvas;
+    private final RoomCanvas pending;
+    private final long batchMillis;
+    private final int tolerance;
+    private final ScheduledExecutorService executor;
+    private ScheduledFuture<?> flushTask;
+
+    // executor는 newExecutor()로 만든 단일 스레드 - 같은 방의 묶음과 메시지 순서가 지켜진다
+    public SpectatorFeed(ScheduledExecutorService executor, Iterable<? extends Viewer> viewers, RoomCanvas canvas,
+                         long batchMillis, int tolerance, int maxPendingSegments) {
+        this.executor = executor;
+        this.viewers = viewers;
+        this.canvas = canvas;
+        this.pending = new RoomCanvas(maxPendingSegments);
+        this.batchMillis = batchMillis;
+        this.tolerance = tolerance;
+    }
+
+    public static ScheduledExecutorService newExecutor() {
+        return Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "spectator-feed");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    public synchronized void start() {
+        flushTask = executor.scheduleWithFixedDelay(this::flush, batchMillis, batchMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // 방이 닫힐 때 - 남은 묶음은 버린다 (볼 관전자가 없다)
+    public synchronized void stop() {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+            flushTask = null;
+        }
+    }
+
+    // 선분을 다음 묶음에 넣는다. 묶음이 가득 차면 버린다 (관전자 화면은 다음 입장 때 캔버스로 맞춰진다)
+    public void add(DrawSegment segment) {
+        if (pending.append(segment)) {
+            SEGMENTS_IN.increment();
+        } else {
+            SEGMENTS_DROPPED.increment();
+        }
+    }
+
+    // 선분 이외의 메시지 - 쌓인 선분을 먼저 보내서 CLEAR 같은 메시지와 순서가 바뀌지 않게 한다
+    public void broadcast(String message) {
+        executor.execute(() -> {
+            flush();
+            send(message);
+        });
+    }
+
+    // 새 관전자 - 게임 상태와 지금 캔버스를 보낸 뒤에 목록에 넣는다
+    // 같은 스레드에서 하므로 그 사이의 묶음을 놓치지 않는다 (겹치는 선분은 두 번 그려질 뿐이다)
+    public void join(Viewer viewer, Supplier<List<String>> state, Runnable register) {
+        executor.execute(() -> {
+            flush();
+            for (String message : state.get()) {
+                viewer.sendMessage(message);
+            }
+            for (String message : encode(canvas.snapshot(), tolerance)) {
+                viewer.sendMessage(message);
+            }
+            register.run();
+        });
+    }
+
+    private void flush() {
+        int[] segments = pending.drain();
+        if (segments.length == 0) {
+            return;
+        }
+        for (String message : encode(segments, tolerance)) {
+            send(message);
+        }
+        BATCHES.increment();
+    }
+
+    private void send(String message) {
+        for (Viewer viewer : viewers) {
+            viewer.sendMessage(message);
+        }
+    }
+
+    // 키프레임과 그 뒤의 선분 - 키프레임 조각을 먼저 보낸다
+    static List<String> encode(RoomCanvas.Snapshot snapshot, int tolerance) {
+        List<String> messages = new ArrayList<>();
+        if (snapshot.keyframe != null) {
+            String image = Base64.getUrlEncoder().encodeToString(snapshot.keyframe);
+            int chunks = (image.length() + KEYFRAME_CHUNK_CHARS - 1) / KEYFRAME_CHUNK_CHARS;
+            for (int i = 0; i < chunks; i++) {
+                messages.add(Constants.CMD_KEYFRAME + Constants.DELIMITER + i + Constants.DELIMITER + chunks
+                    + Constants.DELIMITER + image.substring(i * KEYFRAME_CHUNK_CHARS,
+                        Math.min(image.length(), (i + 1) * KEYFRAME_CHUNK_CHARS)));
+            }
+        }
+        messages.addAll(encode(snapshot.segments, tolerance));
+        return messages;
+    }
+
+    // RoomCanvas 형식의 선분을 STROKES 메시지로 바꾼다. 길면 여러 메시지로 나눈다 (채우기는 FILL, 곡선은 CURVE 메시지)
+    static List<String> encode(int[] segments, int tolerance) {
+        List<String> messages = new ArrayList<>();
+        StringBuilder message = new StringBuilder(Constants.CMD_STROKES);
+        int[] line = new int[MAX_LINE_POINTS * 2];
+        int length = 0;   // line에 담긴 좌표 수 (x, y 각각)
+        int rgb = 0;
+        int style = 0;
+        StrokeCurve curve = null;
+        int count = segments.length / RoomCanvas.INTS_PER_SEGMENT;
+        for (int i = 0; i < count; i += RoomCanvas.entries(segments, i)) {
+            int offset = i * RoomCanvas.INTS_PER_SEGMENT;
+            if (segments[offset + 5] == RoomCanvas.FILL_STYLE || segments[offset + 5] == RoomCanvas.CURVE_STYLE) {
+                // 채우기 결과는 앞의 선에 따라 달라지므로 쌓인 선을 먼저 내보낸다
+                if (length > 0) {
+                    appendLine(messages, message, rgb, style, line, length);
+                    length = 0;
+                }
+                if (message.length() > Constants.CMD_STROKES.length()) {
+                    messages.add(message.toString());
+                    message.setLength(0);
+                    message.append(Constants.CMD_STROKES);
+                }
+                if (segments[offset + 5] == RoomCanvas.FILL_STYLE) {
+                    messages.add(DrawSegment.encodeFill(segments[offset], segments[offset + 1], segments[offset + 4]));
+                } else {
+                    if (curve == null) {
+                        curve = new StrokeCurve();
+                    }
+                    RoomCanvas.readCurve(segments, i, curve);
+                    messages.add(curve.encode());
+                }
+                continue;
+            }
+            int x1 = segments[offset];
+            int y1 = segments[offset + 1];
+            int x2 = segments[offset + 2];
+            int y2 = segments[offset + 3];
+            boolean joins = length > 0 && segments[offset + 4] == rgb && segments[offset + 5] == style
+                && line[length - 2] == x1 && line[length - 1] == y1;
+            if (!joins || length == line.length) {
+                if (length > 0) {
+                    appendLine(messages, message, rgb, style, line, length);
+                }
+                rgb = segments[offset + 4];
+                style = segments[offset + 5];
+                line[0] = x1;
+                line[1] = y1;
+                length = 2;
+            }
+            // 마지막 점이 앞 점과 새 점을 잇는 선에 가까우면 새 점으로 바꾼다
+            if (length >= 4 && StrokeSimplifier.isNear(line[length - 2], line[length - 1],
+                    line[length - 4], line[length - 3], x2, y2, tolerance)) {
+                line[length - 2] = x2;
+                line[length - 1] = y2;
+            } else {
+                line[length++] = x2;
+                line[length++] = y2;
+            }
+        }
+        if (length > 0) {
+            appendLine(messages, message, rgb, style, line, length);
+        }
+        if (message.length() > Constants.CMD_STROKES.length()) {
+            messages.add(message.toString());
+        }
+        return messages;
+    }
+
+    private static void appendLine(List<String> messages, StringBuilder message,
+                                   int rgb, int style, int[] line, int length) {
+        if (message.length() > MAX_MESSAGE_CHARS) {
+            messages.add(message.toString());
+            message.setLength(0);
+            message.append(Constants.CMD_STROKES);
+        }
+        message.append(Constants.DELIMITER).append(rgb)
+               .append(',').append(style >> 1)
+               .append(',').append(style & 1)
+               .append(',');
+        for (int i = 0; i < length; i += 2) {
+            CanvasCodec.appendPoint(message, line[i], line[i + 1]);
+        }
+        POINTS_OUT.add(length / 2);
+    }
+}
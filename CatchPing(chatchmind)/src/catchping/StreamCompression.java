@@ -0,0 +1,136 @@
+package catchping;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+// 연결별 스트림 압축 (DEFLATE)
+// 로그인 때 협상하고, 보낼 때는 묶음마다 sync flush를 해서 받는 쪽이 바로 풀 수 있게 한다.
+// deflate-dict2는 프로토콜에서 자주 나오는 문자열을 미리 사전으로 넣어 짧은 메시지도 잘 줄어들게 한다.
+// (예전 DRAW 사전을 쓰던 deflate-dict는 받지 않는다 - 그 클라이언트는 함께 요청한 deflate로 붙는다)
+public class StreamCompression {
+    public static final String NONE = "none";
+    public static final String DEFLATE = "deflate";
+    public static final String DEFLATE_DICT = "deflate-dict2";
+
+    // 양쪽이 똑같이 가지고 있어야 하는 공유 사전 - 바꾸면 방식 이름도 바꿔야 한다
+    // 자주 나오는 문자열일수록 뒤쪽에 둔다 (그림은 CURVE 곡선, FILL 채우기, 관전자에게는 STROKES 묶음으로 오간다)
+    private static final byte[] DICTIONARY = (
+        "LOGIN_OK//compress=deflate-dict2,session=,seq=0\nTIME_SYNC//BUSY//MATCHING//REDIRECT//LEADERBOARD//"
+        + "KEYFRAME//SAMPLING//ROUND_END//ROUND//START//?????//60//false//GAME_OVER\nTIMER//CLEAR//READY\n"
+        + "CHAT//님이 입장하셨습니다.\nCHAT//님이 퇴장하셨습니다.\nCHAT//님이 정답을 맞추셨습니다! (+10점)\n"
+        + "CHAT//현재 출제자는 님 입니다.\nPLAYERS//PLAYERS_DELTA//,0,0//,0,1\nRTT//PING//PONG//"
+        + "STROKES//0,10,0,//0,20,0,//16711680,10,0,//255,20,0,//16777215,30,1,\n"
+        + "FILL//255,0,0\nFILL//0,0,255\nFILL//0,0,0\n"
+        + "CURVE//255,255,255//30//true\nCURVE//255,0,0//10//false\nCURVE//0,0,255//20//false\n"
+        + "CURVE//0,0,0//20//false\nCURVE//0,0,0//10//false\nCURVE//"
+    ).getBytes(StandardCharsets.UTF_8);
+
+    private final String mode;
+    private final Deflater deflater;
+    private final Inflater inflater = new Inflater(true);
+    private volatile long deflateNanos;   // 압축에 쓴 시간 (보내는 스레드들이 writeLock 안에서 더한다)
+
+    public StreamCompression(String mode, int level) {
+        this.mode = mode;
+        this.deflater = new Deflater(level, true);
+        if (DEFLATE_DICT.equals(mode)) {
+            deflater.setDictionary(DICTIONARY);
+            inflater.setDictionary(DICTIONARY);
+        }
+    }
+
+    // 상대가 요청한 방식 중 쓸 수 있는 것을 고른다
+    public static String negotiate(String requested, boolean allowDictionary) {
+        if (requested == null) {
+            return NONE;
+        }
+        for (String candidate : requested.split("\\|")) {
+            if (DEFLATE_DICT.equals(candidate) && allowDictionary) {
+                return DEFLATE_DICT;
+            }
+            if (DEFLATE.equals(candidate)) {
+                return DEFLATE;
+            }
+        }
+        return NONE;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public OutputStream wrapOutput(OutputStream out) {
+        return new DeflaterOutputStream(out, deflater, 1024, true) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                long start = System.nanoTime();
+                super.write(b, off, len);
+                deflateNanos += System.nanoTime() - start;
+            }
+
+            @Override
+            public void flush() throws IOException {
+                long start = System.nanoTime();
+                super.flush();
+                deflateNanos += System.nanoTime() - start;
+            }
+        };
+    }
+
+    // 상대가 연결을 닫으면 압축 스트림이 끝나지 않은 채 끊기므로 EOF로 본다
+    public InputStream wrapInput(InputStream in) {
+        return new InflaterInputStream(in, inflater, 1024) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                try {
+                    return super.read(b, off, len);
+                } catch (EOFException e) {
+                    return -1;
+                }
+            }
+        };
+    }
+
+    // 보낸 원문 바이트 / 실제로 나간 바이트
+    public double outboundRatio() {
+        long written = deflater.getBytesWritten();
+        return written == 0 ? 1.0 : (double) deflater.getBytesRead() / written;
+    }
+
+    // 풀어낸 원문 바이트 / 실제로 받은 바이트
+    public double inboundRatio() {
+        long read = inflater.getBytesRead();
+        return read == 0 ? 1.0 : (double) inflater.getBytesWritten() / read;
+    }
+
+    public long getRawBytesOut() {
+        return deflater.getBytesRead();
+    }
+
+    public long getCompressedBytesOut() {
+        return deflater.getBytesWritten();
+    }
+
+    public long getDeflateMicros() {
+        return deflateNanos / 1000;
+    }
+
+    public String summary() {
+        return String.format("%s 송신 %d->%dB (%.1f배), 수신 %.1f배, 압축 CPU %.2fms",
+            mode, getRawBytesOut(), getCompressedBytesOut(), outboundRatio(), inboundRatio(),
+            deflateNanos / 1_000_000.0);
+    }
+
+    // 네이티브 메모리 해제 - 더 이상 읽고 쓰지 않을 때만 호출한다
+    public void end() {
+        deflater.end();
+        inflater.end();
+    }
+}
@@ -0,0 +1,173 @@
+package catchping;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// CURVE 메시지 한 개(Catmull-Rom 곡선)의 파싱/검증 결과
+// 형식: CURVE//점0점1...점n//r,g,b//size//isEraser (점은 CanvasCodec의 6글자 논리 좌표를 구분자 없이 잇는다)
+// 첫 점과 마지막 점은 방향만 정하는 점이고, 그 사이의 이웃한 두 점마다 곡선 구간 하나를 그린다 (점 n+1개 = 구간 n-2개).
+// 획의 처음과 끝에서는 보내는 쪽이 끝점을 한 번 더 넣는다. 메시지마다 앞뒤 점이 들어 있으므로 받는 쪽은 상태 없이 그린다.
+// 구간 P1-P2는 제어점 P1 + (P2 - P0) / 6, P2 - (P3 - P1) / 6 인 3차 베지어 곡선과 같다.
+public class StrokeCurve {
+    private static final LongAdder INVALID = ServerMetrics.counter("frame.curve.invalid");
+    public final int[] points = new int[Constants.CURVE_MAX_POINTS * 2];   // x, y 차례로
+    public int count;   // 점 수
+    public int rgb;
+    public int size;
+    public boolean eraser;
+
+    // split된 메시지를 파싱하고 점 수, 좌표, 크기, 색상을 검증한다
+    public boolean parse(String[] parts) {
+        if (parts.length != 5 || !parsePoints(parts[1])) {
+            INVALID.increment();
+            return false;
+        }
+        rgb = DrawSegment.parseRgb(parts[2]);
+        size = DrawSegment.parseInt(parts[3], 0, parts[3].length());
+        eraser = "true".equals(parts[4]);
+        if (rgb < 0 || !(eraser || "false".equals(parts[4]))
+                || !Palette.isAllowedSize(size, eraser) || !Palette.isAllowedColor(rgb, eraser)) {
+            INVALID.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private boolean parsePoints(String text) {
+        count = 0;
+        int length = text.length();
+        if (length % CanvasCodec.POINT_CHARS != 0 || length < CanvasCodec.POINT_CHARS * 4
+                || length > CanvasCodec.POINT_CHARS * Constants.CURVE_MAX_POINTS) {
+            return false;
+        }
+        for (int i = 0; i < length / CanvasCodec.POINT_CHARS; i++) {
+            int x = CanvasCodec.decodeValue(text, i * CanvasCodec.POINT_CHARS);
+            int y = CanvasCodec.decodeValue(text, i * CanvasCodec.POINT_CHARS + 3);
+            if (!CanvasCodec.inBounds(x, y)) {
+                return false;
+            }
+            points[i * 2] = x;
+            points[i * 2 + 1] = y;
+        }
+        count = length / CanvasCodec.POINT_CHARS;
+        return true;
+    }
+
+    public void copyFrom(StrokeCurve other) {
+        System.arraycopy(other.points, 0, points, 0, other.count * 2);
+        count = other.count;
+        rgb = other.rgb;
+        size = other.size;
+        eraser = other.eraser;
+    }
+
+    // next가 이 곡선에 이어지는 다음 메시지면(앞 세 점이 이 곡선의 뒤 세 점과 같다) 한 곡선으로 이어 붙인다
+    // 스타일이 다르거나 점 수가 CURVE_MAX_POINTS를 넘으면 false (이 곡선은 그대로 둔다)
+    public boolean append(StrokeCurve next) {
+        if (next.rgb != rgb || next.size != size || next.eraser != eraser
+                || count + next.count - 3 > Constants.CURVE_MAX_POINTS) {
+            return false;
+        }
+        for (int i = 0; i < 6; i++) {
+            if (points[(count - 3) * 2 + i] != next.points[i]) {
+                return false;
+            }
+        }
+        System.arraycopy(next.points, 6, points, count * 2, (next.count - 3) * 2);
+        count += next.count - 3;
+        return true;
+    }
+
+    // 앞뒤로 남긴 점을 이은 직선에서 tolerance(논리 좌표) 안에 있는 중간 점을 빼고 뺀 점 수를 돌려준다 (StrokeSimplifier와 같은 기준)
+    // 앞뒤 세 점은 이웃한 메시지와 겹치는 점이라 그대로 둔다 - 이음매의 방향이 양쪽 메시지에서 같아야 곡선이 꺾이지 않는다
+    public int simplify(int tolerance) {
+        if (tolerance <= 0 || count < 7) {
+            return 0;
+        }
+        int anchor = 2;   // 마지막으로 남긴 점의 원래 순번 (그 뒤의 원래 점은 아직 덮어쓰지 않았다)
+        int ax = points[4];
+        int ay = points[5];
+        int kept = 3;
+        for (int i = 3; i < count - 3; i++) {
+            int nx = points[i * 2 + 2];
+            int ny = points[i * 2 + 3];
+            boolean near = true;
+            for (int j = anchor + 1; j <= i && near; j++) {
+                near = StrokeSimplifier.isNear(points[j * 2], points[j * 2 + 1], ax, ay, nx, ny, tolerance);
+            }
+            if (!near) {
+                ax = points[i * 2];
+                ay = points[i * 2 + 1];
+                anchor = i;
+                points[kept * 2] = ax;
+                points[kept * 2 + 1] = ay;
+                kept++;
+            }
+        }
+        int dropped = count - 3 - kept;
+        if (dropped > 0) {
+            System.arraycopy(points, (count - 3) * 2, points, kept * 2, 6);
+            count = kept + 3;
+        }
+        return dropped;
+    }
+
+    public int spans() {
+        return count - 3;
+    }
+
+    public String encode() {
+        StringBuilder message = new StringBuilder(Constants.CMD_CURVE.length() + count * CanvasCodec.POINT_CHARS + 32);
+        message.append(Constants.CMD_CURVE).append(Constants.DELIMITER);
+        for (int i = 0; i < count; i++) {
+            CanvasCodec.appendPoint(message, points[i * 2], points[i * 2 + 1]);
+        }
+        return message.append(Constants.DELIMITER)
+            .append((rgb >> 16) & 0xFF).append(',').append((rgb >> 8) & 0xFF).append(',').append(rgb & 0xFF)
+            .append(Constants.DELIMITER).append(size)
+            .append(Constants.DELIMITER).append(eraser)
+            .toString();
+    }
+
+    // 곡선을 대략 CURVE_FLATTEN_PIXELS(기준 캔버스 픽셀) 길이의 선분으로 나눠 out에 넘긴다 (캔버스, 기록, 관전자용)
+    // segment는 재사용하므로 보관하려면 복사해야 한다
+    public void flatten(DrawSegment segment, Consumer<DrawSegment> out) {
+        segment.rgb = rgb;
+        segment.size = size;
+        segment.eraser = eraser;
+        for (int span = 1; span < count - 2; span++) {
+            int x0 = points[span * 2 - 2], y0 = points[span * 2 - 1];
+            int x1 = points[span * 2], y1 = points[span * 2 + 1];
+            int x2 = points[span * 2 + 2], y2 = points[span * 2 + 3];
+            int x3 = points[span * 2 + 4], y3 = points[span * 2 + 5];
+            double length = Math.hypot(x2 - x1, y2 - y1);
+            int steps = Math.max(1, Math.min(16, (int) Math.ceil(length / (Constants.CURVE_FLATTEN_PIXELS * CanvasCodec.SUBPIXELS))));
+            double c1x = x1 + (x2 - x0) / 6.0, c1y = y1 + (y2 - y0) / 6.0;
+            double c2x = x2 - (x3 - x1) / 6.0, c2y = y2 - (y3 - y1) / 6.0;
+            int previousX = x1;
+            int previousY = y1;
+            for (int step = 1; step <= steps; step++) {
+                double t = (double) step / steps;
+                double u = 1 - t;
+                int x = step == steps ? x2 : clamp((int) Math.round(
+                    u * u * u * x1 + 3 * u * u * t * c1x + 3 * u * t * t * c2x + t * t * t * x2), CanvasCodec.WIDTH);
+                int y = step == steps ? y2 : clamp((int) Math.round(
+                    u * u * u * y1 + 3 * u * u * t * c1y + 3 * u * t * t * c2y + t * t * t * y2), CanvasCodec.HEIGHT);
+                if (x == previousX && y == previousY && !(x1 == x2 && y1 == y2)) {
+                    continue;
+                }
+                segment.x1 = previousX;
+                segment.y1 = previousY;
+                segment.x2 = x;
+                segment.y2 = y;
+                out.accept(segment);
+                previousX = x;
+                previousY = y;
+            }
+        }
+    }
+
+    private static int clamp(int value, int max) {
+        return Math.max(0, Math.min(max, value));
+    }
+}
@@ -0,0 +1,54 @@
+package catchping;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+
+// 선분 하나를 그리는 공통 코드 - 게임 화면과 헤드리스 렌더러가 같은 모양으로 그리도록 한다
+// 좌표는 CanvasCodec의 논리 좌표이고 기준 캔버스 크기(FRAME_WIDTH x FRAME_HEIGHT)의 이미지에 그린다. 화면 크기에 맞추는 것은 보여줄 때 한다.
+public class StrokeRenderer {
+    private StrokeRenderer() {
+    }
+
+    public static void draw(Graphics2D g2d, int x1, int y1, int x2, int y2, Color color, int penSize, boolean isEraser) {
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);  // 픽셀 아래 좌표를 살린다
+        // 그리기 모드 또는 지우기 모드
+        g2d.setColor(isEraser ? Color.WHITE : color);
+        g2d.setStroke(new BasicStroke(penSize, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+        g2d.draw(new Line2D.Double(CanvasCodec.toPixel(x1), CanvasCodec.toPixel(y1),
+            CanvasCodec.toPixel(x2), CanvasCodec.toPixel(y2)));
+    }
+
+    public static void draw(Graphics2D g2d, DrawSegment segment) {
+        draw(g2d, segment.x1, segment.y1, segment.x2, segment.y2, new Color(segment.rgb), segment.size, segment.eraser);
+    }
+
+    // CURVE 메시지의 Catmull-Rom 곡선을 베지어 곡선 경로로 그린다 (StrokeCurve 참고). 칠한 영역을 돌려준다
+    public static Rectangle drawCurve(Graphics2D g2d, StrokeCurve curve) {
+        int[] p = curve.points;
+        float unit = 1f / CanvasCodec.SUBPIXELS;
+        Path2D.Float path = new Path2D.Float(Path2D.WIND_NON_ZERO, curve.count);
+        path.moveTo(p[2] * unit, p[3] * unit);
+        for (int i = 2; i < curve.count - 1; i++) {
+            int x0 = p[i * 2 - 4], y0 = p[i * 2 - 3];
+            int x1 = p[i * 2 - 2], y1 = p[i * 2 - 1];
+            int x2 = p[i * 2], y2 = p[i * 2 + 1];
+            int x3 = p[i * 2 + 2], y3 = p[i * 2 + 3];
+            path.curveTo((x1 + (x2 - x0) / 6f) * unit, (y1 + (y2 - y0) / 6f) * unit,
+                (x2 - (x3 - x1) / 6f) * unit, (y2 - (y3 - y1) / 6f) * unit, x2 * unit, y2 * unit);
+        }
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+        g2d.setColor(curve.eraser ? Color.WHITE : new Color(curve.rgb));
+        g2d.setStroke(new BasicStroke(curve.size, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+        g2d.draw(path);
+        Rectangle bounds = path.getBounds();
+        bounds.grow(curve.size, curve.size);
+        return bounds;
+    }
+}
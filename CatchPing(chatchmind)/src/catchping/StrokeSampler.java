@@ -0,0 +1,97 @@
+package catchping;
+
+import java.awt.Point;
+
+// 그리는 쪽(클라이언트)의 선분 샘플링 단계 - 연결이 느리면 마우스 이벤트를 덜 보내고, 좋아지면 다시 모두 보낸다
+// 단계는 직접 잰 왕복 시간과 아직 못 보낸 메시지 수로 정한다. 나빠지면 바로 올리고,
+// 기준보다 충분히 좋은 상태가 RECOVER_MILLIS 동안 이어져야 한 단계씩 내린다 (단계가 자꾸 오르내리지 않게).
+public class StrokeSampler {
+    public static final int LEVELS = 4;
+    // 단계별 기준 - 이보다 나쁘면 그 단계 이상 (0단계는 기준 없음)
+    private static final long[] RTT_MILLIS = {0, 150, 300, 600};
+    private static final long[] QUEUE_DEPTH = {0, 20, 60, 150};
+    private static final double RECOVER_RATIO = 0.6;   // 내려갈 때는 기준의 이만큼보다 좋아야 한다
+    private static final long RECOVER_MILLIS = 3000;
+    // 단계별 샘플링 - 선분 사이 최소 간격(ms)과 최소 거리(기준 캔버스 px), 보내기 전에 모으는 시간(ms)
+    private static final long[] MIN_INTERVAL_MILLIS = {0, 16, 33, 66};
+    private static final int[] MIN_DISTANCE = {0, 3, 6, 12};
+    private static final long[] BATCH_MILLIS = {0, 10, 25, 50};
+
+    public interface LevelListener {
+        void onLevelChanged(int level, long rttMillis, int queueDepth);
+    }
+
+    private volatile int level;
+    private long healthySince = -1;   // 한 단계 내려도 될 만큼 좋아진 시각
+    private long lastSentAt;          // EDT에서만 사용
+    private final LevelListener listener;
+
+    public StrokeSampler(LevelListener listener) {
+        this.listener = listener;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public long batchMillis() {
+        return BATCH_MILLIS[level];
+    }
+
+    // 새 측정값 반영 (아무 스레드에서나)
+    public void update(long rttMillis, int queueDepth, long now) {
+        int changed = -1;
+        synchronized (this) {
+            int target = Math.max(levelFor(rttMillis, RTT_MILLIS, 1.0), levelFor(queueDepth, QUEUE_DEPTH, 1.0));
+            if (target > level) {
+                level = target;
+                healthySince = -1;
+                changed = level;
+            } else if (level > 0 && Math.max(levelFor(rttMillis, RTT_MILLIS, RECOVER_RATIO),
+                    levelFor(queueDepth, QUEUE_DEPTH, RECOVER_RATIO)) < level) {
+                if (healthySince < 0) {
+                    healthySince = now;
+                } else if (now - healthySince >= RECOVER_MILLIS) {
+                    level--;
+                    healthySince = now;
+                    changed = level;
+                }
+            } else {
+                healthySince = -1;
+            }
+        }
+        if (changed >= 0) {
+            listener.onLevelChanged(changed, rttMillis, queueDepth);
+        }
+    }
+
+    private static int levelFor(long value, long[] thresholds, double ratio) {
+        int result = 0;
+        for (int i = 1; i < thresholds.length; i++) {
+            if (value > thresholds[i] * ratio) {
+                result = i;
+            }
+        }
+        return result;
+    }
+
+    // 마우스 이벤트마다 (EDT) - 이번 선분을 보낼지 (점은 논리 좌표). 안 보내면 시작점을 그대로 두고 다음 이벤트에서 더 긴 선분으로 보낸다
+    public boolean accept(Point start, Point end, long now) {
+        int current = level;
+        if (current == 0) {
+            lastSentAt = now;
+            return true;
+        }
+        int distance = MIN_DISTANCE[current] * CanvasCodec.SUBPIXELS;
+        if (now - lastSentAt < MIN_INTERVAL_MILLIS[current] || start.distanceSq(end) < distance * distance) {
+            return false;
+        }
+        lastSentAt = now;
+        return true;
+    }
+
+    // 획이 끝났다 (EDT) - 다음 획의 첫 선분은 바로 보낸다
+    public void onStrokeEnd() {
+        lastSentAt = 0;
+    }
+}
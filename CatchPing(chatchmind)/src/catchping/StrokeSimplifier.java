@@ -0,0 +1,93 @@
+package catchping;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// 그리는 사람의 선분을 이어 받으면서 거의 일직선인 중간 점을 빼고 보낸다 (연결마다 하나)
+// 마지막 선분 하나를 붙잡아 두고, 다음 선분이 이어지며 그동안 뺀 점이 모두 시작점-새 끝점 직선에서 tolerance 안이면
+// 끝점만 늘린다. 벗어나면 붙잡은 선분을 보내고 새 선분을 붙잡는다. 붙잡은 선분은 틱마다 flush()로 내보낸다.
+public class StrokeSimplifier {
+    private static final LongAdder SEGMENTS_IN = ServerMetrics.counter("simplify.segments.in");
+    private static final LongAdder SEGMENTS_OUT = ServerMetrics.counter("simplify.segments.out");
+    private static final LongAdder BYTES_SAVED = ServerMetrics.counter("simplify.bytes.saved");
+    private static final LongAdder CPU_NANOS = ServerMetrics.counter("simplify.cpu.nanos");
+    private static final int MAX_SKIPPED = 32;   // 한 선분으로 합칠 수 있는 최대 점 수
+
+    private final DrawSegment held = new DrawSegment();
+    private boolean holding;
+    private final int[] skipped = new int[MAX_SKIPPED * 2];   // 붙잡은 선분에 합쳐져 빠진 점들
+    private int skippedCount;
+
+    // 선분 하나를 받는다. recipients는 빠진 DRAW 메시지가 갔을 연결 수 (절약한 바이트 계산용)
+    public synchronized void offer(DrawSegment segment, int tolerance, int recipients, Consumer<DrawSegment> out) {
+        SEGMENTS_IN.increment();
+        long start = System.nanoTime();   // 보내는 시간은 빼고 판단과 합치기만 잰다
+        boolean extend = tolerance > 0 && holding && canExtend(segment, tolerance);
+        if (extend) {
+            skipped[skippedCount * 2] = held.x2;
+            skipped[skippedCount * 2 + 1] = held.y2;
+            skippedCount++;
+            held.x2 = segment.x2;
+            held.y2 = segment.y2;
+        }
+        CPU_NANOS.add(System.nanoTime() - start);
+        if (extend) {
+            BYTES_SAVED.add((long) segment.encodedLength() * recipients);
+            return;
+        }
+        flush(out);
+        if (tolerance <= 0) {
+            emit(segment, out);
+        } else {
+            held.copyFrom(segment);
+            holding = true;
+        }
+    }
+
+    // 붙잡은 선분이 있으면 보낸다 - 틱, 지우기, 라운드 종료 때
+    public synchronized void flush(Consumer<DrawSegment> out) {
+        if (holding) {
+            holding = false;
+            skippedCount = 0;
+            emit(held, out);
+        }
+    }
+
+    private static void emit(DrawSegment segment, Consumer<DrawSegment> out) {
+        SEGMENTS_OUT.increment();
+        out.accept(segment);
+    }
+
+    private boolean canExtend(DrawSegment segment, int tolerance) {
+        if (skippedCount == MAX_SKIPPED || held.x2 != segment.x1 || held.y2 != segment.y1 || !held.sameStyle(segment)) {
+            return false;
+        }
+        if (!isNear(held.x2, held.y2, held.x1, held.y1, segment.x2, segment.y2, tolerance)) {
+            return false;
+        }
+        for (int i = 0; i < skippedCount; i++) {
+            if (!isNear(skipped[i * 2], skipped[i * 2 + 1], held.x1, held.y1, segment.x2, segment.y2, tolerance)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 받은 선분 하나당 단순화에 쓴 평균 CPU 시간 (ns)
+    static long nanosPerSegment() {
+        long in = SEGMENTS_IN.sum();
+        return in == 0 ? 0 : CPU_NANOS.sum() / in;
+    }
+
+    // (px, py)와 선분 (ax, ay)-(bx, by) 사이의 거리가 tolerance 이하인지
+    static boolean isNear(int px, int py, int ax, int ay, int bx, int by, int tolerance) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / lengthSquared;
+        t = Math.max(0, Math.min(1, t));
+        double ex = ax + t * dx - px;
+        double ey = ay + t * dy - py;
+        return ex * ex + ey * ey <= (double) tolerance * tolerance;
+    }
+}
@@ -0,0 +1,141 @@
+package catchping;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.LongAdder;
+
+// UDP로 주고받는 선분 스트림 한 방향씩의 상태 (보내는 순번/최근 선분, 받은 순번 창)
+// 데이터그램 하나에 최근 선분 N개를 새 것부터 함께 담아서, 앞 데이터그램이 사라져도 다음 것으로 메운다.
+// 형식: [종류 1B][토큰 8B][에포크 2B][순번 4B][개수 1B] + 선분 13B씩
+// 에포크는 CLEAR마다 올라가고, 이전 에포크의 선분은 지운 캔버스에 다시 그려지지 않도록 버린다.
+public class StrokeStream {
+    public static final byte TYPE_HELLO = 1;       // 클라이언트 -> 서버: 주소 등록
+    public static final byte TYPE_HELLO_ACK = 2;   // 서버 -> 클라이언트: 등록 확인 (양방향 경로 확인)
+    public static final byte TYPE_STROKES = 3;
+    public static final int HELLO_BYTES = 9;
+    private static final int HEADER_BYTES = 16;
+    private static final int WINDOW = 64;          // 중복 확인용 순번 창 크기
+
+    private static final LongAdder RECOVERED = ServerMetrics.counter("udp.segments.recovered");
+    private static final LongAdder DUPLICATE = ServerMetrics.counter("udp.segments.duplicate");
+    private static final LongAdder LATE = ServerMetrics.counter("udp.segments.late");
+
+    private final long token;
+    private final int redundancy;
+
+    // 보내는 쪽 - 최근 선분을 인코딩한 링 버퍼
+    private final byte[][] history;
+    private int historyHead;
+    private int historyCount;
+    private int historyEpoch;
+    private int nextSeq = 1;
+
+    // 받는 쪽 - 가장 큰 순번과 그 아래 WINDOW개의 수신 여부
+    private int highestSeq;
+    private long receivedMask;
+
+    public StrokeStream(long token, int redundancy) {
+        this.token = token;
+        this.redundancy = Math.max(1, Math.min(redundancy, 255));
+        this.history = new byte[this.redundancy][DrawSegment.BINARY_BYTES];
+    }
+
+    public long getToken() {
+        return token;
+    }
+
+    // 선분 하나를 추가하고 보낼 데이터그램을 만든다 (여러 스레드가 같은 수신자에게 보낼 수 있어 매번 새로 만든다)
+    public synchronized ByteBuffer nextDatagram(DrawSegment segment, int epoch) {
+        if (epoch != historyEpoch) {
+            historyCount = 0;  // 지워진 캔버스의 선분은 다시 보내지 않는다
+            historyEpoch = epoch;
+        }
+        historyHead = (historyHead + 1) % redundancy;
+        segment.writeTo(ByteBuffer.wrap(history[historyHead]));
+        historyCount = Math.min(historyCount + 1, redundancy);
+
+        ByteBuffer sendBuffer = ByteBuffer.allocate(HEADER_BYTES + historyCount * DrawSegment.BINARY_BYTES);
+        sendBuffer.put(TYPE_STROKES).putLong(token).putShort((short) epoch).putInt(nextSeq++).put((byte) historyCount);
+        for (int i = 0; i < historyCount; i++) {
+            sendBuffer.put(history[(historyHead - i + redundancy) % redundancy]);
+        }
+        sendBuffer.flip();
+        return sendBuffer;
+    }
+
+    // 처음 받는 선분만 out에 오래된 것부터 채우고 개수를 돌려준다. 형식이 틀리면 -1
+    public synchronized int receive(ByteBuffer packet, DrawSegment[] out) {
+        if (packet.remaining() < HEADER_BYTES || packet.get() != TYPE_STROKES || packet.getLong() != token) {
+            return -1;
+        }
+        packet.getShort();  // 에포크는 호출하는 쪽이 epochOf()로 확인한다
+        int seq = packet.getInt();
+        int count = packet.get() & 0xFF;
+        if (count == 0 || count > out.length || packet.remaining() != count * DrawSegment.BINARY_BYTES) {
+            return -1;
+        }
+
+        int delivered = 0;
+        int base = packet.position();
+        for (int i = count - 1; i >= 0; i--) {
+            if (!markReceived(seq - i)) {
+                continue;
+            }
+            packet.position(base + i * DrawSegment.BINARY_BYTES);
+            if (out[delivered].readFrom(packet)) {
+                delivered++;
+                if (i > 0) {
+                    RECOVERED.increment();  // 앞 데이터그램이 빠졌거나 늦어서 중복분으로 메운 선분
+                }
+            }
+        }
+        return delivered;
+    }
+
+    private boolean markReceived(int seq) {
+        if (seq <= 0) {
+            return false;
+        }
+        if (seq > highestSeq) {
+            int shift = seq - highestSeq;
+            receivedMask = shift >= WINDOW ? 0 : receivedMask << shift;
+            receivedMask |= 1;
+            highestSeq = seq;
+            return true;
+        }
+        int distance = highestSeq - seq;
+        if (distance >= WINDOW) {
+            LATE.increment();
+            return false;
+        }
+        long bit = 1L << distance;
+        if ((receivedMask & bit) != 0) {
+            DUPLICATE.increment();
+            return false;
+        }
+        receivedMask |= bit;
+        return true;
+    }
+
+    public static ByteBuffer hello(byte type, long token) {
+        ByteBuffer buffer = ByteBuffer.allocate(HELLO_BYTES);
+        buffer.put(type).putLong(token).flip();
+        return buffer;
+    }
+
+    public static byte typeOf(ByteBuffer packet) {
+        return packet.get(0);
+    }
+
+    public static long tokenOf(ByteBuffer packet) {
+        return packet.remaining() >= HELLO_BYTES ? packet.getLong(1) : 0;
+    }
+
+    public static int epochOf(ByteBuffer packet) {
+        return packet.getShort(9) & 0xFFFF;
+    }
+
+    // 16비트 에포크를 넘침을 고려해 비교한다
+    public static boolean isStaleEpoch(int packetEpoch, int currentEpoch) {
+        return (short) (packetEpoch - currentEpoch) < 0;
+    }
+}
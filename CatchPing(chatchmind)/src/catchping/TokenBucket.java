@@ -0,0 +1,36 @@
+package catchping;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// 토큰 버킷 속도 제한기 (GCRA - 버킷이 다시 가득 차는 시각 하나만 둔다)
+// 토큰 하나는 interval 나노초만큼의 시간이고, 가득 차는 시각이 지금보다 tolerance 넘게 뒤면 토큰이 없는 것이다.
+// 연결의 읽기 스레드와 UDP 중계 작업, flush 틱이 같은 버킷을 나눠 쓰므로 잠그지 않고 CAS로 소비한다 (객체 할당은 없다).
+public class TokenBucket {
+    private final long interval;    // 토큰 하나가 다시 차는 시간 (ns)
+    private final long tolerance;   // 가득 찬 상태에서 더 꺼낼 수 있는 토큰 수 만큼의 시간 (burst - 1개)
+    private final AtomicLong fullAt;
+
+    public TokenBucket(double ratePerSecond, int burst) {
+        int capacity = Math.max(1, burst);
+        // 속도가 0 이하면 다시 차지 않는다 (burst개를 쓰고 나면 계속 거절한다 - 더해도 넘치지 않는 크기로 잡는다)
+        this.interval = ratePerSecond > 0
+            ? Math.max(1, (long) (1_000_000_000.0 / ratePerSecond)) : Long.MAX_VALUE / 4 / capacity;
+        this.tolerance = interval * (capacity - 1);
+        this.fullAt = new AtomicLong(System.nanoTime());
+    }
+
+    // 토큰 하나를 소비할 수 있으면 true
+    public boolean tryAcquire() {
+        long now = System.nanoTime();
+        while (true) {
+            long full = fullAt.get();
+            if (full - now > tolerance) {
+                return false;
+            }
+            long next = (full - now > 0 ? full : now) + interval;
+            if (fullAt.compareAndSet(full, next)) {
+                return true;
+            }
+        }
+    }
+}